@@ -0,0 +1,41 @@
+package com.traffic.adapter;
+
+import com.traffic.adapter.dto.ControllerStatusDto;
+import com.traffic.adapter.dto.DetectorReadingsDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of generating simulated device answers, which every mock poll pays before any real work.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MockProtocolAdapterBenchmark {
+
+    private static final String CONTROLLER_ID = "fd11.z1.downtown.loc";
+
+    private final MockProtocolAdapter adapter = new MockProtocolAdapter();
+
+    @Benchmark
+    public ControllerStatusDto readStatus() {
+        return adapter.readStatus(CONTROLLER_ID);
+    }
+
+    @Benchmark
+    public DetectorReadingsDto readDetectorReadings() {
+        return adapter.readDetectorReadings(CONTROLLER_ID);
+    }
+}
@@ -0,0 +1,76 @@
+package com.traffic.adapter.nio;
+
+import com.traffic.adapter.dto.DetectorReadingsDto;
+import com.traffic.config.DeviceConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Device call throughput and latency of {@link NioProtocolAdapter} against the loopback
+ * {@link DeviceSimulator}, with many callers spread over a fleet of simulated controllers.
+ * {@code SampleTime} reports the latency percentiles.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(64)
+@State(Scope.Benchmark)
+public class NioProtocolAdapterBenchmark {
+
+    @Param({"10000"})
+    public int controllers;
+
+    @Param({"1", "4"})
+    public int connectionsPerEndpoint;
+
+    private DeviceSimulator simulator;
+    private NioProtocolAdapter adapter;
+    private String[] controllerIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        simulator = new DeviceSimulator(0, 0);
+        simulator.start();
+
+        DeviceConfig config = new DeviceConfig();
+        config.setProtocol(DeviceConfig.Protocol.NIO);
+        config.setDefaultEndpoint("localhost:" + simulator.getPort());
+        config.setConnectionsPerEndpoint(connectionsPerEndpoint);
+        config.setMaxInFlight(256);
+        adapter = new NioProtocolAdapter(config);
+
+        controllerIds = new String[controllers];
+        for (int i = 0; i < controllers; i++) {
+            controllerIds[i] = "fd" + i + ".z" + (i % 16) + ".simulated.loc";
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        adapter.close();
+        simulator.stop();
+    }
+
+    @Benchmark
+    public DetectorReadingsDto readDetectorReadings() {
+        return adapter.readDetectorReadings(controllerIds[ThreadLocalRandom.current().nextInt(controllerIds.length)]);
+    }
+}
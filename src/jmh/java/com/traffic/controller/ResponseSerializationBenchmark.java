@@ -0,0 +1,104 @@
+package com.traffic.controller;
+
+import com.traffic.domain.ControllerStatus;
+import com.traffic.domain.DetectorReading;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of the two most requested response bodies: the current status with its
+ * JSONB error list, and a page of detector history. The service sets no {@code spring.jackson}
+ * properties, so a default mapper matches what the endpoints write.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+
+    private static final JsonMapper JSON_MAPPER = JsonMapper.builder().build();
+
+    @Benchmark
+    public byte[] controllerStatus(StatusState state) {
+        return JSON_MAPPER.writeValueAsBytes(state.status);
+    }
+
+    @Benchmark
+    public byte[] detectorReadingsPage(PageState state) {
+        return JSON_MAPPER.writeValueAsBytes(state.page);
+    }
+
+    @State(Scope.Benchmark)
+    public static class StatusState {
+
+        private ControllerStatus status;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Instant now = Instant.now();
+            status = ControllerStatus.builder()
+                    .id(1L)
+                    .controllerId("fd11.z1.downtown.loc")
+                    .state("DETECTOR_FAILURE")
+                    .program("SP2")
+                    .validFrom(now.minusSeconds(600))
+                    .validTo(now)
+                    .errors(List.of(
+                            ControllerStatus.ErrorInfo.builder().code("E101").message("Detector D1 malfunction").build(),
+                            ControllerStatus.ErrorInfo.builder().code("E301").message("Power supply warning").build()))
+                    .build();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class PageState {
+
+        /** Default page size of the history endpoints and the cursor page maximum. */
+        @Param({"20", "1000"})
+        private int pageSize;
+
+        private Page<DetectorReading> page;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Instant now = Instant.now();
+            List<DetectorReading> readings = new ArrayList<>(pageSize);
+            for (int i = 0; i < pageSize; i++) {
+                readings.add(DetectorReading.builder()
+                        .id((long) i)
+                        .controllerId("fd11.z1.downtown.loc")
+                        .detectorId(1 + i % 4)
+                        .detectorName("D" + (1 + i % 4))
+                        .vehicleCount(i % 50)
+                        .occupancy(BigDecimal.valueOf(i % 10000, 4))
+                        .readingTimestamp(now.minusSeconds(30L * i))
+                        .fetchedAt(now.minusSeconds(30L * i))
+                        .build());
+            }
+            page = new PageImpl<>(readings, PageRequest.of(0, pageSize, Sort.by(Sort.Direction.DESC, "fetchedAt")),
+                    100_000);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.traffic.service;
+
+import com.traffic.adapter.MockProtocolAdapter;
+import com.traffic.adapter.dto.ControllerStatusDto;
+import com.traffic.adapter.dto.DetectorReadingsDto;
+import com.traffic.domain.ControllerStatus;
+import com.traffic.domain.DetectorReading;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DTO to entity mapping of one poll batch, as done by {@link IngestionService#pollControllers(List)}
+ * between polling and writing.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IngestionMappingBenchmark {
+
+    /** Controllers per batch. */
+    @Param({"100", "1000"})
+    private int batchSize;
+
+    private List<ControllerStatusDto> statuses;
+    private List<DetectorReadingsDto> readings;
+    private Instant fetchedAt;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        MockProtocolAdapter adapter = new MockProtocolAdapter();
+        statuses = new ArrayList<>(batchSize);
+        readings = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            String controllerId = "fd" + i + ".z" + (i % 8) + ".bench.loc";
+            statuses.add(adapter.readStatus(controllerId));
+            readings.add(adapter.readDetectorReadings(controllerId));
+        }
+        fetchedAt = Instant.now();
+    }
+
+    @Benchmark
+    public void mapStatuses(Blackhole blackhole) {
+        for (ControllerStatusDto status : statuses) {
+            blackhole.consume(IngestionService.mapToEntity(status, fetchedAt));
+        }
+    }
+
+    @Benchmark
+    public void mapReadings(Blackhole blackhole) {
+        for (DetectorReadingsDto dto : readings) {
+            blackhole.consume(IngestionService.mapToEntities(dto, fetchedAt));
+        }
+    }
+
+    /** Both mappings into the batch lists the writer receives. */
+    @Benchmark
+    public int mapBatch() {
+        List<ControllerStatus> mappedStatuses = new ArrayList<>(batchSize);
+        List<DetectorReading> mappedReadings = new ArrayList<>();
+        for (int i = 0; i < batchSize; i++) {
+            mappedStatuses.add(IngestionService.mapToEntity(statuses.get(i), fetchedAt));
+            mappedReadings.addAll(IngestionService.mapToEntities(readings.get(i), fetchedAt));
+        }
+        return mappedStatuses.size() + mappedReadings.size();
+    }
+}
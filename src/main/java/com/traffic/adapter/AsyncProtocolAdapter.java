@@ -0,0 +1,28 @@
+package com.traffic.adapter;
+
+import com.traffic.adapter.ProtocolAdapter.SnapshotResult;
+import com.traffic.adapter.dto.CommandResultDto;
+import com.traffic.adapter.dto.ControllerSnapshotDto;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of {@link ProtocolAdapter}: every call returns at once with a future of the
+ * answer. Completing a future early, by cancelling it or with {@link CompletableFuture#orTimeout},
+ * gives up the call; the adapter stops waiting for the device and releases whatever the call held.
+ */
+public interface AsyncProtocolAdapter {
+
+    CompletableFuture<ControllerSnapshotDto> readSnapshotAsync(String controllerId);
+
+    /** Completes with one result per controller, like {@link ProtocolAdapter#readSnapshots}. */
+    CompletableFuture<List<SnapshotResult>> readSnapshotsAsync(List<String> controllerIds);
+
+    CompletableFuture<CommandResultDto> sendCommandAsync(String controllerId, String command, String value);
+
+    /** The adapter itself if it is asynchronous already, otherwise a {@link BlockingAdapterBridge} to it. */
+    static AsyncProtocolAdapter of(ProtocolAdapter adapter) {
+        return adapter instanceof AsyncProtocolAdapter async ? async : new BlockingAdapterBridge(adapter);
+    }
+}
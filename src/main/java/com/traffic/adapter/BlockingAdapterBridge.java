@@ -0,0 +1,60 @@
+package com.traffic.adapter;
+
+import com.traffic.adapter.ProtocolAdapter.SnapshotResult;
+import com.traffic.adapter.dto.CommandResultDto;
+import com.traffic.adapter.dto.ControllerSnapshotDto;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Runs the calls of a blocking {@link ProtocolAdapter} on virtual threads. A call whose future is
+ * completed from outside, by cancellation or a timeout, has its thread interrupted.
+ */
+public class BlockingAdapterBridge implements AsyncProtocolAdapter {
+
+    private final ProtocolAdapter delegate;
+
+    public BlockingAdapterBridge(ProtocolAdapter delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public CompletableFuture<ControllerSnapshotDto> readSnapshotAsync(String controllerId) {
+        return run(() -> delegate.readSnapshot(controllerId));
+    }
+
+    @Override
+    public CompletableFuture<List<SnapshotResult>> readSnapshotsAsync(List<String> controllerIds) {
+        return run(() -> delegate.readSnapshots(controllerIds));
+    }
+
+    @Override
+    public CompletableFuture<CommandResultDto> sendCommandAsync(String controllerId, String command, String value) {
+        return run(() -> delegate.sendCommand(controllerId, command, value));
+    }
+
+    private static <T> CompletableFuture<T> run(Supplier<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        AtomicBoolean returned = new AtomicBoolean();
+        Thread thread = Thread.ofVirtual().name("adapter-call").unstarted(() -> {
+            try {
+                T result = call.get();
+                returned.set(true);
+                future.complete(result);
+            } catch (Throwable e) {
+                returned.set(true);
+                future.completeExceptionally(e);
+            }
+        });
+        future.whenComplete((result, error) -> {
+            if (!returned.get()) {
+                thread.interrupt();
+            }
+        });
+        thread.start();
+        return future;
+    }
+}
@@ -0,0 +1,143 @@
+package com.traffic.adapter;
+
+import com.traffic.config.ResilienceConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+
+/**
+ * Circuit breaker of a single controller over a count-based sliding window.
+ * <p>
+ * The circuit opens once {@code failure-rate-threshold} percent of the last
+ * {@code sliding-window-size} calls failed, rejects every call for {@code open-duration-ms},
+ * then lets {@code half-open-calls} trial calls through. It closes with an empty window if all
+ * of them succeed and opens again on the first failure.
+ */
+@Slf4j
+public final class CircuitBreaker {
+
+    private final String controllerId;
+    private final ResilienceConfig config;
+
+    /** Outcome of the most recent calls, {@code true} for a failure. */
+    private final boolean[] window;
+    private int position;
+    private int recorded;
+    private int failed;
+
+    private State state = State.CLOSED;
+    private Instant openedAt;
+    private int trialsPermitted;
+    private int trialsSucceeded;
+
+    CircuitBreaker(String controllerId, ResilienceConfig config) {
+        this.controllerId = controllerId;
+        this.config = config;
+        this.window = new boolean[config.getSlidingWindowSize()];
+    }
+
+    /**
+     * Every permitted call must be followed by {@link #onSuccess()}, {@link #onFailure(Instant)} or
+     * {@link #onCancelled()}.
+     */
+    synchronized boolean tryAcquirePermission(Instant now) {
+        if (state == State.OPEN) {
+            if (now.isBefore(openedAt.plusMillis(config.getOpenDurationMs()))) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trialsPermitted = 0;
+            trialsSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsPermitted >= config.getHalfOpenCalls()) {
+                return false;
+            }
+            trialsPermitted++;
+        }
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++trialsSucceeded >= config.getHalfOpenCalls()) {
+                close();
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    /** The caller gave the call up; a half-open circuit gets the trial back. */
+    synchronized void onCancelled() {
+        if (state == State.HALF_OPEN && trialsPermitted > trialsSucceeded) {
+            trialsPermitted--;
+        }
+    }
+
+    synchronized void onFailure(Instant now) {
+        if (state == State.HALF_OPEN) {
+            open(now);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= config.getMinimumCalls()
+                    && failed * 100 >= config.getFailureRateThreshold() * recorded) {
+                open(now);
+            }
+        }
+    }
+
+    synchronized Snapshot snapshot(int activeCalls) {
+        double failureRate = recorded == 0 ? 0 : failed * 100.0 / recorded;
+        return new Snapshot(controllerId, state, failureRate, recorded, failed, activeCalls,
+                state == State.CLOSED ? null : openedAt);
+    }
+
+    private void record(boolean failure) {
+        if (recorded == window.length) {
+            if (window[position]) {
+                failed--;
+            }
+        } else {
+            recorded++;
+        }
+        window[position] = failure;
+        if (failure) {
+            failed++;
+        }
+        position = (position + 1) % window.length;
+    }
+
+    private void open(Instant now) {
+        if (state == State.CLOSED) {
+            log.warn("Circuit of controller {} opened: {} of the last {} calls failed", controllerId, failed, recorded);
+        } else {
+            log.warn("Circuit of controller {} opened again: trial call failed", controllerId);
+        }
+        state = State.OPEN;
+        openedAt = now;
+    }
+
+    private void close() {
+        log.info("Circuit of controller {} closed", controllerId);
+        state = State.CLOSED;
+        openedAt = null;
+        position = 0;
+        recorded = 0;
+        failed = 0;
+    }
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * @param failureRate percentage of failed calls among {@code bufferedCalls}
+     * @param openedAt    when the circuit last opened, {@code null} while closed
+     */
+    public record Snapshot(String controllerId, State state, double failureRate, int bufferedCalls,
+                           int failedCalls, int activeCalls, Instant openedAt) {
+    }
+}
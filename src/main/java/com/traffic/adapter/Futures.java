@@ -0,0 +1,102 @@
+package com.traffic.adapter;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Composition helpers for {@link AsyncProtocolAdapter} calls.
+ */
+public final class Futures {
+
+    private Futures() {
+    }
+
+    /**
+     * Gives up {@code source} once {@code dependent}, a future derived from it, completes
+     * exceptionally, for example because it was cancelled or timed out.
+     *
+     * @return {@code dependent}
+     */
+    public static <T> CompletableFuture<T> linkCancellation(CompletableFuture<T> dependent, CompletableFuture<?> source) {
+        dependent.whenComplete((result, error) -> {
+            if (error != null) {
+                source.cancel(false);
+            }
+        });
+        return dependent;
+    }
+
+    /**
+     * Makes the call and, if it has not succeeded after {@code hedgeDelayMs} or fails before that,
+     * makes it once more. The first attempt to succeed completes the result and the other one is
+     * cancelled; the result fails only when both attempts failed. Only for idempotent calls.
+     * A delay of 0 or less makes a single attempt.
+     */
+    public static <T> CompletableFuture<T> hedged(Supplier<CompletableFuture<T>> call, long hedgeDelayMs) {
+        if (hedgeDelayMs <= 0) {
+            return call.get();
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        List<CompletableFuture<T>> attempts = new CopyOnWriteArrayList<>();
+        AtomicInteger failures = new AtomicInteger();
+        AtomicBoolean hedgeStarted = new AtomicBoolean();
+
+        BiConsumer<T, Throwable> onAttempt = new BiConsumer<>() {
+            @Override
+            public void accept(T value, Throwable error) {
+                if (error == null) {
+                    result.complete(value);
+                } else if (failures.incrementAndGet() == 2) {
+                    result.completeExceptionally(unwrap(error));
+                } else if (hedgeStarted.compareAndSet(false, true)) {
+                    // The first attempt failed before the hedge delay; retry right away
+                    start(call, attempts, result, this);
+                }
+            }
+        };
+        result.whenComplete((value, error) -> attempts.forEach(attempt -> attempt.cancel(false)));
+
+        start(call, attempts, result, onAttempt);
+        CompletableFuture.delayedExecutor(hedgeDelayMs, MILLISECONDS).execute(() -> {
+            if (hedgeStarted.compareAndSet(false, true)) {
+                start(call, attempts, result, onAttempt);
+            }
+        });
+        return result;
+    }
+
+    /** The actual failure behind the {@link CompletionException} or {@link ExecutionException} wrapping it. */
+    public static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    private static <T> void start(Supplier<CompletableFuture<T>> call, List<CompletableFuture<T>> attempts,
+                                  CompletableFuture<T> result, BiConsumer<T, Throwable> onAttempt) {
+        if (result.isDone()) {
+            return;
+        }
+        CompletableFuture<T> attempt;
+        try {
+            attempt = call.get();
+        } catch (RuntimeException e) {
+            attempt = CompletableFuture.failedFuture(e);
+        }
+        attempts.add(attempt);
+        if (result.isDone()) {
+            attempt.cancel(false);
+        }
+        attempt.whenComplete(onAttempt);
+    }
+}
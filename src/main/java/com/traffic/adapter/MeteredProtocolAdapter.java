@@ -0,0 +1,178 @@
+package com.traffic.adapter;
+
+import com.traffic.adapter.dto.CommandResultDto;
+import com.traffic.adapter.dto.ControllerSnapshotDto;
+import com.traffic.adapter.dto.ControllerStatusDto;
+import com.traffic.adapter.dto.DetectorReadingsDto;
+import com.traffic.domain.Controller;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Times every device call.
+ * <p>
+ * {@code adapter.calls} is tagged by method, zone and outcome and publishes a histogram for
+ * latency percentiles. {@code adapter.controller.calls} is tagged by controller instead and keeps
+ * only count, total and max, so there is one small series per controller for finding slow ones.
+ * Batch reads are timed as a whole in {@code adapter.batch.calls}, with their sizes and failed
+ * controllers in {@code adapter.batch.controllers}. Asynchronous calls given up by the caller are
+ * recorded with outcome {@code cancelled}.
+ */
+public class MeteredProtocolAdapter implements ProtocolAdapter, AsyncProtocolAdapter {
+
+    private final ProtocolAdapter delegate;
+    private final AsyncProtocolAdapter asyncDelegate;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary batchRequested;
+    private final DistributionSummary batchFailed;
+
+    /** Looked up once per method, controller and outcome; registering on every call is far from free. */
+    private final ConcurrentHashMap<CallKey, CallTimers> callTimers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Timer> batchTimers = new ConcurrentHashMap<>();
+
+    public MeteredProtocolAdapter(ProtocolAdapter delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.asyncDelegate = AsyncProtocolAdapter.of(delegate);
+        this.meterRegistry = meterRegistry;
+        this.batchRequested = DistributionSummary.builder("adapter.batch.controllers")
+                .tag("result", "requested")
+                .register(meterRegistry);
+        this.batchFailed = DistributionSummary.builder("adapter.batch.controllers")
+                .tag("result", "failed")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ControllerStatusDto readStatus(String controllerId) {
+        return timed("readStatus", controllerId, () -> delegate.readStatus(controllerId));
+    }
+
+    @Override
+    public DetectorReadingsDto readDetectorReadings(String controllerId) {
+        return timed("readDetectorReadings", controllerId, () -> delegate.readDetectorReadings(controllerId));
+    }
+
+    @Override
+    public CommandResultDto sendCommand(String controllerId, String command, String value) {
+        return timed("sendCommand", controllerId, () -> delegate.sendCommand(controllerId, command, value));
+    }
+
+    @Override
+    public ControllerSnapshotDto readSnapshot(String controllerId) {
+        return timed("readSnapshot", controllerId, () -> delegate.readSnapshot(controllerId));
+    }
+
+    @Override
+    public List<SnapshotResult> readSnapshots(List<String> controllerIds) {
+        long start = System.nanoTime();
+        List<SnapshotResult> results = null;
+        try {
+            results = delegate.readSnapshots(controllerIds);
+            return results;
+        } finally {
+            recordBatch(controllerIds, results, results != null ? "success" : "error", System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public int maxBatchSize() {
+        return delegate.maxBatchSize();
+    }
+
+    @Override
+    public CompletableFuture<ControllerSnapshotDto> readSnapshotAsync(String controllerId) {
+        return timedAsync("readSnapshot", controllerId, () -> asyncDelegate.readSnapshotAsync(controllerId));
+    }
+
+    @Override
+    public CompletableFuture<List<SnapshotResult>> readSnapshotsAsync(List<String> controllerIds) {
+        long start = System.nanoTime();
+        CompletableFuture<List<SnapshotResult>> call = asyncDelegate.readSnapshotsAsync(controllerIds);
+        call.whenComplete((results, error) ->
+                recordBatch(controllerIds, results, outcome(error), System.nanoTime() - start));
+        return call;
+    }
+
+    @Override
+    public CompletableFuture<CommandResultDto> sendCommandAsync(String controllerId, String command, String value) {
+        return timedAsync("sendCommand", controllerId,
+                () -> asyncDelegate.sendCommandAsync(controllerId, command, value));
+    }
+
+    private <T> T timed(String method, String controllerId, Supplier<T> call) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = call.get();
+            outcome = "success";
+            return result;
+        } finally {
+            record(method, controllerId, outcome, System.nanoTime() - start);
+        }
+    }
+
+    private <T> CompletableFuture<T> timedAsync(String method, String controllerId,
+                                                Supplier<CompletableFuture<T>> asyncCall) {
+        long start = System.nanoTime();
+        CompletableFuture<T> call = asyncCall.get();
+        call.whenComplete((result, error) -> record(method, controllerId, outcome(error), System.nanoTime() - start));
+        return call;
+    }
+
+    private static String outcome(Throwable error) {
+        if (error == null) {
+            return "success";
+        }
+        return Futures.unwrap(error) instanceof CancellationException ? "cancelled" : "error";
+    }
+
+    private void record(String method, String controllerId, String outcome, long elapsed) {
+        CallTimers timers = callTimers.computeIfAbsent(new CallKey(method, controllerId, outcome), this::register);
+        timers.byZone().record(elapsed, NANOSECONDS);
+        timers.byController().record(elapsed, NANOSECONDS);
+    }
+
+    private CallTimers register(CallKey key) {
+        String zone = Controller.zoneOf(key.controllerId());
+        // Controllers of one zone share the zone timer; the registry hands back the same instance
+        Timer byZone = Timer.builder("adapter.calls")
+                .tag("method", key.method())
+                .tag("zone", zone != null ? zone : "none")
+                .tag("outcome", key.outcome())
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Timer byController = Timer.builder("adapter.controller.calls")
+                .tag("method", key.method())
+                .tag("controller", key.controllerId())
+                .tag("outcome", key.outcome())
+                .register(meterRegistry);
+        return new CallTimers(byZone, byController);
+    }
+
+    private void recordBatch(List<String> controllerIds, List<SnapshotResult> results, String outcome, long elapsed) {
+        if (results != null) {
+            batchRequested.record(controllerIds.size());
+            batchFailed.record(results.stream().filter(result -> !result.succeeded()).count());
+        }
+        batchTimers.computeIfAbsent(outcome, key -> Timer.builder("adapter.batch.calls")
+                        .tag("outcome", key)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(elapsed, NANOSECONDS);
+    }
+
+    private record CallKey(String method, String controllerId, String outcome) {
+    }
+
+    private record CallTimers(Timer byZone, Timer byController) {
+    }
+}
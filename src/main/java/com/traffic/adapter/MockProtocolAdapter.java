@@ -3,6 +3,8 @@ package com.traffic.adapter;
 import com.traffic.adapter.dto.CommandResultDto;
 import com.traffic.adapter.dto.ControllerStatusDto;
 import com.traffic.adapter.dto.DetectorReadingsDto;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
@@ -12,6 +14,8 @@ import java.util.List;
 import java.util.Random;
 
 @Component
+@Qualifier("device")
+@ConditionalOnProperty(name = "device.protocol", havingValue = "mock", matchIfMissing = true)
 public class MockProtocolAdapter implements ProtocolAdapter {
 
     private static final List<String> STATES = List.of(
@@ -1,9 +1,11 @@
 package com.traffic.adapter;
 
 import com.traffic.adapter.dto.CommandResultDto;
+import com.traffic.adapter.dto.ControllerSnapshotDto;
 import com.traffic.adapter.dto.ControllerStatusDto;
 import com.traffic.adapter.dto.DetectorReadingsDto;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public interface ProtocolAdapter {
@@ -13,4 +15,55 @@ public interface ProtocolAdapter {
     DetectorReadingsDto readDetectorReadings(String controllerId);
 
     CommandResultDto sendCommand(String controllerId, String command, String value);
+
+    /**
+     * Status and detector readings of one controller; adapters whose devices return both in one
+     * exchange override this, the default makes the two single calls.
+     */
+    default ControllerSnapshotDto readSnapshot(String controllerId) {
+        return ControllerSnapshotDto.builder()
+                .controllerId(controllerId)
+                .status(readStatus(controllerId))
+                .readings(readDetectorReadings(controllerId))
+                .build();
+    }
+
+    /**
+     * Snapshots of several controllers, one result per id in the order given. A controller that
+     * cannot be read fails only its own result. The default reads the controllers one after another.
+     */
+    default List<SnapshotResult> readSnapshots(List<String> controllerIds) {
+        List<SnapshotResult> results = new ArrayList<>(controllerIds.size());
+        for (String controllerId : controllerIds) {
+            try {
+                results.add(SnapshotResult.success(readSnapshot(controllerId)));
+            } catch (RuntimeException e) {
+                results.add(SnapshotResult.failure(controllerId, e));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Most controllers {@link #readSnapshots} reads in one exchange. 1 means the adapter has no
+     * batch reads of its own, so callers are better off reading controllers concurrently one by one.
+     */
+    default int maxBatchSize() {
+        return 1;
+    }
+
+    record SnapshotResult(String controllerId, ControllerSnapshotDto snapshot, RuntimeException failure) {
+
+        public static SnapshotResult success(ControllerSnapshotDto snapshot) {
+            return new SnapshotResult(snapshot.getControllerId(), snapshot, null);
+        }
+
+        public static SnapshotResult failure(String controllerId, RuntimeException failure) {
+            return new SnapshotResult(controllerId, null, failure);
+        }
+
+        public boolean succeeded() {
+            return failure == null;
+        }
+    }
 }
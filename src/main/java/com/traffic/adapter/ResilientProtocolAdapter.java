@@ -0,0 +1,268 @@
+package com.traffic.adapter;
+
+import com.traffic.adapter.dto.CommandResultDto;
+import com.traffic.adapter.dto.ControllerSnapshotDto;
+import com.traffic.adapter.dto.ControllerStatusDto;
+import com.traffic.adapter.dto.DetectorReadingsDto;
+import com.traffic.config.ResilienceConfig;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Guards every call to a controller with a per-controller bulkhead and {@link CircuitBreaker}.
+ * <p>
+ * The bulkhead keeps a hanging controller from taking more than {@code resilience.max-concurrent-calls}
+ * of the shared polling and dispatch slots. Once a controller's circuit is open, calls to it fail
+ * immediately with {@link CallNotPermittedException} instead of waiting for the device timeout.
+ * Rejected calls are not counted as failures.
+ * <p>
+ * Batch reads check each controller's circuit and count each controller's result, but take no
+ * bulkhead slots: a batch is one exchange with the device however many controllers it covers.
+ * <p>
+ * Asynchronous calls never wait for a bulkhead slot, they are rejected at once when none is free.
+ * A call the caller gives up on by cancelling it counts as neither success nor failure.
+ */
+public class ResilientProtocolAdapter implements ProtocolAdapter, AsyncProtocolAdapter {
+
+    private final ProtocolAdapter delegate;
+    private final AsyncProtocolAdapter asyncDelegate;
+    private final ResilienceConfig config;
+    private final ConcurrentHashMap<String, ControllerGuard> guards = new ConcurrentHashMap<>();
+
+    public ResilientProtocolAdapter(ProtocolAdapter delegate, ResilienceConfig config) {
+        this.delegate = delegate;
+        this.asyncDelegate = AsyncProtocolAdapter.of(delegate);
+        this.config = config;
+    }
+
+    @Override
+    public ControllerStatusDto readStatus(String controllerId) {
+        return call(controllerId, () -> delegate.readStatus(controllerId));
+    }
+
+    @Override
+    public DetectorReadingsDto readDetectorReadings(String controllerId) {
+        return call(controllerId, () -> delegate.readDetectorReadings(controllerId));
+    }
+
+    @Override
+    public CommandResultDto sendCommand(String controllerId, String command, String value) {
+        return call(controllerId, () -> delegate.sendCommand(controllerId, command, value));
+    }
+
+    @Override
+    public ControllerSnapshotDto readSnapshot(String controllerId) {
+        return call(controllerId, () -> delegate.readSnapshot(controllerId));
+    }
+
+    @Override
+    public List<SnapshotResult> readSnapshots(List<String> controllerIds) {
+        if (!config.isEnabled()) {
+            return delegate.readSnapshots(controllerIds);
+        }
+        Map<String, SnapshotResult> results = new HashMap<>();
+        List<String> permitted = permitBatch(controllerIds, results);
+        if (!permitted.isEmpty()) {
+            List<SnapshotResult> answered;
+            try {
+                answered = delegate.readSnapshots(permitted);
+            } catch (RuntimeException e) {
+                answered = permitted.stream().map(controllerId -> SnapshotResult.failure(controllerId, e)).toList();
+            }
+            recordBatch(answered, results);
+        }
+        return controllerIds.stream().map(results::get).toList();
+    }
+
+    @Override
+    public int maxBatchSize() {
+        return delegate.maxBatchSize();
+    }
+
+    @Override
+    public CompletableFuture<ControllerSnapshotDto> readSnapshotAsync(String controllerId) {
+        return callAsync(controllerId, () -> asyncDelegate.readSnapshotAsync(controllerId));
+    }
+
+    @Override
+    public CompletableFuture<List<SnapshotResult>> readSnapshotsAsync(List<String> controllerIds) {
+        if (!config.isEnabled()) {
+            return asyncDelegate.readSnapshotsAsync(controllerIds);
+        }
+        Map<String, SnapshotResult> results = new HashMap<>();
+        List<String> permitted = permitBatch(controllerIds, results);
+        if (permitted.isEmpty()) {
+            return CompletableFuture.completedFuture(controllerIds.stream().map(results::get).toList());
+        }
+        CompletableFuture<List<SnapshotResult>> call = asyncDelegate.readSnapshotsAsync(permitted);
+        CompletableFuture<List<SnapshotResult>> merged = call.handle((answered, error) -> {
+            if (error != null) {
+                Throwable failure = Futures.unwrap(error);
+                if (failure instanceof CancellationException) {
+                    permitted.forEach(controllerId -> guardOf(controllerId).circuitBreaker.onCancelled());
+                    throw (CancellationException) failure;
+                }
+                RuntimeException exception = failure instanceof RuntimeException runtimeException
+                        ? runtimeException
+                        : new IllegalStateException(failure);
+                answered = permitted.stream().map(controllerId -> SnapshotResult.failure(controllerId, exception)).toList();
+            }
+            recordBatch(answered, results);
+            return controllerIds.stream().map(results::get).toList();
+        });
+        return Futures.linkCancellation(merged, call);
+    }
+
+    @Override
+    public CompletableFuture<CommandResultDto> sendCommandAsync(String controllerId, String command, String value) {
+        return callAsync(controllerId, () -> asyncDelegate.sendCommandAsync(controllerId, command, value));
+    }
+
+    public CircuitBreaker.Snapshot getCircuitBreaker(String controllerId) {
+        ControllerGuard guard = guards.get(controllerId);
+        return guard != null
+                ? guard.snapshot()
+                : new CircuitBreaker.Snapshot(controllerId, CircuitBreaker.State.CLOSED, 0, 0, 0, 0, null);
+    }
+
+    /**
+     * Circuit breakers of every controller called since startup, optionally only those in one state.
+     */
+    public List<CircuitBreaker.Snapshot> getCircuitBreakers(CircuitBreaker.State state) {
+        return guards.values().stream()
+                .map(ControllerGuard::snapshot)
+                .filter(snapshot -> state == null || snapshot.state() == state)
+                .sorted(Comparator.comparing(CircuitBreaker.Snapshot::controllerId))
+                .toList();
+    }
+
+    private <T> T call(String controllerId, Supplier<T> call) {
+        if (!config.isEnabled()) {
+            return call.get();
+        }
+        ControllerGuard guard = guardOf(controllerId);
+
+        try {
+            if (!guard.bulkhead.tryAcquire(config.getMaxWaitMs(), MILLISECONDS)) {
+                throw new CallNotPermittedException(controllerId, "too many concurrent calls");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CallNotPermittedException(controllerId, "interrupted while waiting for a free call slot");
+        }
+
+        try {
+            if (!guard.circuitBreaker.tryAcquirePermission(Instant.now())) {
+                throw new CallNotPermittedException(controllerId, "circuit is open");
+            }
+            try {
+                T result = call.get();
+                guard.circuitBreaker.onSuccess();
+                return result;
+            } catch (RuntimeException | Error e) {
+                guard.circuitBreaker.onFailure(Instant.now());
+                throw e;
+            }
+        } finally {
+            guard.bulkhead.release();
+        }
+    }
+
+    private <T> CompletableFuture<T> callAsync(String controllerId, Supplier<CompletableFuture<T>> call) {
+        if (!config.isEnabled()) {
+            return call.get();
+        }
+        ControllerGuard guard = guardOf(controllerId);
+        if (!guard.bulkhead.tryAcquire()) {
+            return CompletableFuture.failedFuture(new CallNotPermittedException(controllerId, "too many concurrent calls"));
+        }
+        if (!guard.circuitBreaker.tryAcquirePermission(Instant.now())) {
+            guard.bulkhead.release();
+            return CompletableFuture.failedFuture(new CallNotPermittedException(controllerId, "circuit is open"));
+        }
+
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((result, error) -> {
+            guard.bulkhead.release();
+            if (error == null) {
+                guard.circuitBreaker.onSuccess();
+            } else if (Futures.unwrap(error) instanceof CancellationException) {
+                guard.circuitBreaker.onCancelled();
+            } else {
+                guard.circuitBreaker.onFailure(Instant.now());
+            }
+        });
+        return future;
+    }
+
+    /** Controllers of a batch whose circuit lets the call through; the others get a rejected result. */
+    private List<String> permitBatch(List<String> controllerIds, Map<String, SnapshotResult> results) {
+        List<String> permitted = new ArrayList<>(controllerIds.size());
+        Instant now = Instant.now();
+        for (String controllerId : controllerIds) {
+            if (guardOf(controllerId).circuitBreaker.tryAcquirePermission(now)) {
+                permitted.add(controllerId);
+            } else {
+                results.put(controllerId, SnapshotResult.failure(controllerId,
+                        new CallNotPermittedException(controllerId, "circuit is open")));
+            }
+        }
+        return permitted;
+    }
+
+    private void recordBatch(List<SnapshotResult> answered, Map<String, SnapshotResult> results) {
+        Instant completed = Instant.now();
+        for (SnapshotResult result : answered) {
+            CircuitBreaker circuitBreaker = guardOf(result.controllerId()).circuitBreaker;
+            if (result.succeeded()) {
+                circuitBreaker.onSuccess();
+            } else {
+                circuitBreaker.onFailure(completed);
+            }
+            results.put(result.controllerId(), result);
+        }
+    }
+
+    private ControllerGuard guardOf(String controllerId) {
+        return guards.computeIfAbsent(controllerId, id -> new ControllerGuard(id, config));
+    }
+
+    private static final class ControllerGuard {
+        private final CircuitBreaker circuitBreaker;
+        private final Semaphore bulkhead;
+        private final int maxConcurrentCalls;
+
+        private ControllerGuard(String controllerId, ResilienceConfig config) {
+            this.circuitBreaker = new CircuitBreaker(controllerId, config);
+            this.maxConcurrentCalls = config.getMaxConcurrentCalls();
+            this.bulkhead = new Semaphore(maxConcurrentCalls);
+        }
+
+        private CircuitBreaker.Snapshot snapshot() {
+            return circuitBreaker.snapshot(maxConcurrentCalls - bulkhead.availablePermits());
+        }
+    }
+
+    public static class CallNotPermittedException extends RuntimeException {
+        public CallNotPermittedException(String controllerId, String reason) {
+            super("Call to controller " + controllerId + " rejected: " + reason);
+        }
+    }
+}
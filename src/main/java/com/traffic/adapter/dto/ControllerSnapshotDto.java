@@ -0,0 +1,17 @@
+package com.traffic.adapter.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ControllerSnapshotDto {
+
+    private String controllerId;
+    private ControllerStatusDto status;
+    private DetectorReadingsDto readings;
+}
@@ -0,0 +1,267 @@
+package com.traffic.adapter.nio;
+
+import com.traffic.adapter.ProtocolAdapter.SnapshotResult;
+import com.traffic.adapter.dto.CommandResultDto;
+import com.traffic.adapter.dto.ControllerSnapshotDto;
+import com.traffic.adapter.dto.ControllerStatusDto;
+import com.traffic.adapter.dto.DetectorReadingsDto;
+import com.traffic.domain.OccupancyConverter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary framing spoken between {@link NioProtocolAdapter} and {@link DeviceSimulator}.
+ * <p>
+ * A frame is an {@code int} length of the rest, an {@code int} request id and a {@code byte} type,
+ * followed by the body. Answers repeat the id of their request, so any number of requests can be in
+ * flight on one connection and answers may arrive in any order. Strings are an unsigned
+ * {@code short} byte count ({@code 0xFFFF} for null) and UTF-8, timestamps epoch milliseconds
+ * ({@code Long.MIN_VALUE} for null) and occupancy basis points.
+ * <p>
+ * {@link #READ_SNAPSHOTS} reads status and detectors of a group of controllers in one exchange;
+ * its answer holds one entry per controller, each either both bodies or an error message.
+ */
+final class DeviceProtocol {
+
+    static final byte READ_STATUS = 1;
+    static final byte READ_DETECTORS = 2;
+    static final byte SEND_COMMAND = 3;
+    static final byte READ_SNAPSHOTS = 4;
+    static final byte ERROR = 127;
+
+    /** Largest frame either side accepts, length prefix included. */
+    static final int MAX_FRAME = 64 * 1024;
+
+    private static final int NULL_STRING = 0xFFFF;
+
+    private DeviceProtocol() {
+    }
+
+    static ByteBuffer request(int requestId, byte type, String... fields) {
+        FrameWriter frame = new FrameWriter(requestId, type);
+        for (String field : fields) {
+            frame.putString(field);
+        }
+        return frame.finish();
+    }
+
+    static ByteBuffer snapshotsRequest(int requestId, List<String> controllerIds) {
+        FrameWriter frame = new FrameWriter(requestId, READ_SNAPSHOTS).putShort(controllerIds.size());
+        for (String controllerId : controllerIds) {
+            frame.putString(controllerId);
+        }
+        return frame.finish();
+    }
+
+    static ByteBuffer status(int requestId, ControllerStatusDto status) {
+        FrameWriter frame = new FrameWriter(requestId, READ_STATUS);
+        putStatus(frame, status);
+        return frame.finish();
+    }
+
+    static ByteBuffer detectors(int requestId, DetectorReadingsDto readings) {
+        FrameWriter frame = new FrameWriter(requestId, READ_DETECTORS);
+        putDetectors(frame, readings);
+        return frame.finish();
+    }
+
+    static ByteBuffer snapshots(int requestId, List<SnapshotResult> results) {
+        FrameWriter frame = new FrameWriter(requestId, READ_SNAPSHOTS).putShort(results.size());
+        for (SnapshotResult result : results) {
+            if (result.succeeded()) {
+                frame.putBoolean(true);
+                putStatus(frame, result.snapshot().getStatus());
+                putDetectors(frame, result.snapshot().getReadings());
+            } else {
+                frame.putBoolean(false).putString(result.controllerId()).putString(result.failure().getMessage());
+            }
+        }
+        return frame.finish();
+    }
+
+    private static void putStatus(FrameWriter frame, ControllerStatusDto status) {
+        frame.putString(status.getControllerId())
+                .putString(status.getState())
+                .putString(status.getProgram())
+                .putInstant(status.getLastUpdated());
+        List<ControllerStatusDto.ErrorDto> errors = status.getErrors() != null ? status.getErrors() : List.of();
+        frame.putShort(errors.size());
+        for (ControllerStatusDto.ErrorDto error : errors) {
+            frame.putString(error.getCode()).putString(error.getMessage());
+        }
+    }
+
+    private static void putDetectors(FrameWriter frame, DetectorReadingsDto readings) {
+        frame.putString(readings.getControllerId())
+                .putShort(readings.getDetectors().size());
+        for (DetectorReadingsDto.DetectorDto detector : readings.getDetectors()) {
+            Short occupancy = OccupancyConverter.toBasisPoints(detector.getOccupancy());
+            frame.putShort(detector.getId())
+                    .putString(detector.getName())
+                    .putInt(detector.getVehicleCount() != null ? detector.getVehicleCount() : -1)
+                    .putShort(occupancy != null ? occupancy : -1)
+                    .putInstant(detector.getTimestamp());
+        }
+    }
+
+    static ByteBuffer commandResult(int requestId, CommandResultDto result) {
+        return new FrameWriter(requestId, SEND_COMMAND)
+                .putString(result.getControllerId())
+                .putString(result.getCommand())
+                .putBoolean(result.isSuccess())
+                .putString(result.getValue())
+                .putInstant(result.getTimestamp())
+                .finish();
+    }
+
+    static ByteBuffer error(int requestId, String message) {
+        return new FrameWriter(requestId, ERROR).putString(message).finish();
+    }
+
+    static ControllerStatusDto readStatus(ByteBuffer body) {
+        ControllerStatusDto.ControllerStatusDtoBuilder status = ControllerStatusDto.builder()
+                .controllerId(getString(body))
+                .state(getString(body))
+                .program(getString(body))
+                .lastUpdated(getInstant(body));
+        int errorCount = Short.toUnsignedInt(body.getShort());
+        List<ControllerStatusDto.ErrorDto> errors = new ArrayList<>(errorCount);
+        for (int i = 0; i < errorCount; i++) {
+            errors.add(ControllerStatusDto.ErrorDto.builder().code(getString(body)).message(getString(body)).build());
+        }
+        return status.errors(errors).build();
+    }
+
+    static DetectorReadingsDto readDetectors(ByteBuffer body) {
+        String controllerId = getString(body);
+        int detectorCount = Short.toUnsignedInt(body.getShort());
+        List<DetectorReadingsDto.DetectorDto> detectors = new ArrayList<>(detectorCount);
+        for (int i = 0; i < detectorCount; i++) {
+            int id = body.getShort();
+            String name = getString(body);
+            int vehicleCount = body.getInt();
+            short occupancy = body.getShort();
+            detectors.add(DetectorReadingsDto.DetectorDto.builder()
+                    .id(id)
+                    .name(name)
+                    .vehicleCount(vehicleCount >= 0 ? vehicleCount : null)
+                    .occupancy(occupancy >= 0 ? OccupancyConverter.fromBasisPoints(occupancy) : null)
+                    .timestamp(getInstant(body))
+                    .build());
+        }
+        return DetectorReadingsDto.builder().controllerId(controllerId).detectors(detectors).build();
+    }
+
+    static List<SnapshotResult> readSnapshots(ByteBuffer body) {
+        int count = Short.toUnsignedInt(body.getShort());
+        List<SnapshotResult> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (body.get() != 0) {
+                ControllerStatusDto status = readStatus(body);
+                results.add(SnapshotResult.success(ControllerSnapshotDto.builder()
+                        .controllerId(status.getControllerId())
+                        .status(status)
+                        .readings(readDetectors(body))
+                        .build()));
+            } else {
+                String controllerId = getString(body);
+                results.add(SnapshotResult.failure(controllerId, new NioProtocolAdapter.DeviceException(
+                        "controller " + controllerId, "device answered with an error: " + getString(body))));
+            }
+        }
+        return results;
+    }
+
+    static CommandResultDto readCommandResult(ByteBuffer body) {
+        return CommandResultDto.builder()
+                .controllerId(getString(body))
+                .command(getString(body))
+                .success(body.get() != 0)
+                .value(getString(body))
+                .timestamp(getInstant(body))
+                .build();
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        if (length == NULL_STRING) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static Instant getInstant(ByteBuffer buffer) {
+        long millis = buffer.getLong();
+        return millis != Long.MIN_VALUE ? Instant.ofEpochMilli(millis) : null;
+    }
+
+    /** Writes one frame into a growing heap buffer and fills in the length prefix at the end. */
+    private static final class FrameWriter {
+
+        private ByteBuffer buffer = ByteBuffer.allocate(256);
+
+        private FrameWriter(int requestId, byte type) {
+            buffer.position(Integer.BYTES);
+            buffer.putInt(requestId).put(type);
+        }
+
+        private FrameWriter putString(String value) {
+            if (value == null) {
+                return putShort(NULL_STRING);
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length >= NULL_STRING) {
+                throw new IllegalArgumentException("String of " + bytes.length + " bytes does not fit into a frame");
+            }
+            ensure(Short.BYTES + bytes.length);
+            buffer.putShort((short) bytes.length).put(bytes);
+            return this;
+        }
+
+        private FrameWriter putShort(int value) {
+            ensure(Short.BYTES);
+            buffer.putShort((short) value);
+            return this;
+        }
+
+        private FrameWriter putInt(int value) {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+            return this;
+        }
+
+        private FrameWriter putBoolean(boolean value) {
+            ensure(1);
+            buffer.put((byte) (value ? 1 : 0));
+            return this;
+        }
+
+        private FrameWriter putInstant(Instant value) {
+            ensure(Long.BYTES);
+            buffer.putLong(value != null ? value.toEpochMilli() : Long.MIN_VALUE);
+            return this;
+        }
+
+        private ByteBuffer finish() {
+            buffer.flip();
+            if (buffer.limit() > MAX_FRAME) {
+                throw new IllegalArgumentException("Frame of " + buffer.limit() + " bytes exceeds " + MAX_FRAME);
+            }
+            return buffer.putInt(0, buffer.limit() - Integer.BYTES);
+        }
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                buffer = grown.put(buffer);
+            }
+        }
+    }
+}
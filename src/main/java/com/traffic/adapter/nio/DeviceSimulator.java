@@ -0,0 +1,271 @@
+package com.traffic.adapter.nio;
+
+import com.traffic.adapter.MockProtocolAdapter;
+import com.traffic.adapter.ProtocolAdapter.SnapshotResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Loopback device server speaking {@link DeviceProtocol}, so {@link NioProtocolAdapter} can be run and
+ * benchmarked against any number of controllers without hardware. Every controller id is accepted and
+ * answered with {@link MockProtocolAdapter} data, after {@code latencyMs} if set. One selector thread
+ * serves all connections.
+ */
+@Slf4j
+public class DeviceSimulator implements AutoCloseable {
+
+    private final int port;
+    private final long latencyNanos;
+    private final MockProtocolAdapter devices = new MockProtocolAdapter();
+    private final AtomicInteger acceptedConnections = new AtomicInteger();
+    private final AtomicLong requestsServed = new AtomicLong();
+    private final List<Session> sessions = new ArrayList<>();
+    private final ArrayDeque<DelayedAnswer> delayed = new ArrayDeque<>();
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * @param port port to listen on, 0 for any free one (see {@link #getPort()})
+     */
+    public DeviceSimulator(int port, long latencyMs) {
+        this.port = port;
+        this.latencyNanos = MILLISECONDS.toNanos(latencyMs);
+    }
+
+    public void start() throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        thread = Thread.ofPlatform().name("device-simulator").daemon(true).start(this::run);
+        log.info("Device simulator listening on port {}", getPort());
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /** Connections accepted since start, to check that clients reuse theirs. */
+    public int getAcceptedConnections() {
+        return acceptedConnections.get();
+    }
+
+    /** Requests answered since start; a batch read is one request. */
+    public long getRequestsServed() {
+        return requestsServed.get();
+    }
+
+    public void stop() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        if (thread != null) {
+            try {
+                thread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    private void run() {
+        try (Selector ownSelector = selector; ServerSocketChannel ownServer = server) {
+            while (running) {
+                DelayedAnswer next = delayed.peek();
+                if (next == null) {
+                    selector.select();
+                } else {
+                    long wait = NANOSECONDS.toMillis(next.due - System.nanoTime());
+                    if (wait > 0) {
+                        selector.select(wait);
+                    } else {
+                        selector.selectNow();
+                    }
+                }
+
+                Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                while (selected.hasNext()) {
+                    SelectionKey key = selected.next();
+                    selected.remove();
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        ((Session) key.attachment()).handle(key);
+                    }
+                }
+
+                // Latency is fixed, so answers fall due in the order the requests arrived
+                long now = System.nanoTime();
+                while (!delayed.isEmpty() && now - delayed.peek().due >= 0) {
+                    DelayedAnswer answer = delayed.poll();
+                    answer.session.send(answer.frame);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Device simulator stopped", e);
+        } finally {
+            List.copyOf(sessions).forEach(Session::close);
+            log.info("Device simulator on port {} stopped", port);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Session session = new Session(channel);
+        session.key = channel.register(selector, SelectionKey.OP_READ, session);
+        sessions.add(session);
+        acceptedConnections.incrementAndGet();
+    }
+
+    private ByteBuffer answer(ByteBuffer request) {
+        int requestId = request.getInt();
+        byte type = request.get();
+        requestsServed.incrementAndGet();
+        try {
+            return switch (type) {
+                case DeviceProtocol.READ_STATUS ->
+                        DeviceProtocol.status(requestId, devices.readStatus(DeviceProtocol.getString(request)));
+                case DeviceProtocol.READ_DETECTORS ->
+                        DeviceProtocol.detectors(requestId, devices.readDetectorReadings(DeviceProtocol.getString(request)));
+                case DeviceProtocol.SEND_COMMAND -> DeviceProtocol.commandResult(requestId, devices.sendCommand(
+                        DeviceProtocol.getString(request), DeviceProtocol.getString(request), DeviceProtocol.getString(request)));
+                case DeviceProtocol.READ_SNAPSHOTS -> {
+                    int count = Short.toUnsignedInt(request.getShort());
+                    List<String> controllerIds = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        controllerIds.add(DeviceProtocol.getString(request));
+                    }
+                    List<SnapshotResult> snapshots = devices.readSnapshots(controllerIds);
+                    yield DeviceProtocol.snapshots(requestId, snapshots);
+                }
+                default -> DeviceProtocol.error(requestId, "unknown request type " + type);
+            };
+        } catch (RuntimeException e) {
+            return DeviceProtocol.error(requestId, e.getMessage());
+        }
+    }
+
+    private record DelayedAnswer(long due, Session session, ByteBuffer frame) {
+    }
+
+    private final class Session {
+
+        private final SocketChannel channel;
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(DeviceProtocol.MAX_FRAME);
+        private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+        private SelectionKey key;
+
+        private Session(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        private void handle(SelectionKey selected) {
+            try {
+                if (selected.isReadable()) {
+                    read();
+                }
+                if (selected.isValid() && selected.isWritable()) {
+                    write();
+                }
+            } catch (IOException e) {
+                log.debug("Simulator connection closed: {}", e.getMessage());
+                close();
+            }
+        }
+
+        private void read() throws IOException {
+            if (channel.read(readBuffer) < 0) {
+                close();
+                return;
+            }
+            readBuffer.flip();
+            while (readBuffer.remaining() >= Integer.BYTES) {
+                int start = readBuffer.position();
+                int length = readBuffer.getInt(start);
+                if (length < Integer.BYTES + 1 || length > DeviceProtocol.MAX_FRAME - Integer.BYTES) {
+                    throw new IOException("invalid frame length " + length);
+                }
+                if (readBuffer.remaining() < Integer.BYTES + length) {
+                    break;
+                }
+                ByteBuffer answer = answer(readBuffer.slice(start + Integer.BYTES, length));
+                readBuffer.position(start + Integer.BYTES + length);
+                if (latencyNanos > 0) {
+                    delayed.add(new DelayedAnswer(System.nanoTime() + latencyNanos, this, answer));
+                } else {
+                    outbound.add(answer);
+                }
+            }
+            readBuffer.compact();
+            write();
+        }
+
+        private void send(ByteBuffer frame) {
+            if (!channel.isOpen()) {
+                return;
+            }
+            outbound.add(frame);
+            try {
+                write();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        private void write() throws IOException {
+            while (!outbound.isEmpty()) {
+                channel.write(outbound.toArray(ByteBuffer[]::new));
+                while (!outbound.isEmpty() && !outbound.peek().hasRemaining()) {
+                    outbound.poll();
+                }
+                if (!outbound.isEmpty()) {
+                    break;
+                }
+            }
+            key.interestOps(outbound.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+
+        private void close() {
+            sessions.remove(this);
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Closing simulator connection failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,576 @@
+package com.traffic.adapter.nio;
+
+import com.traffic.adapter.AsyncProtocolAdapter;
+import com.traffic.adapter.Futures;
+import com.traffic.adapter.ProtocolAdapter;
+import com.traffic.adapter.dto.CommandResultDto;
+import com.traffic.adapter.dto.ControllerSnapshotDto;
+import com.traffic.adapter.dto.ControllerStatusDto;
+import com.traffic.adapter.dto.DetectorReadingsDto;
+import com.traffic.config.DeviceConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Talks to controllers over TCP with {@link DeviceProtocol}, using non-blocking sockets.
+ * <p>
+ * All connections are driven by {@code device.selector-threads} selector threads. A connection to an
+ * endpoint stays open and is shared by every controller behind it; requests are written back to back
+ * without waiting for earlier answers, up to {@code device.max-in-flight} per connection, and answers
+ * are matched to requests by id. Connection state is only touched on its selector thread, callers
+ * hand requests over through a task queue. A request not answered within
+ * {@code device.request-timeout-ms} fails with {@link DeviceException}; a broken connection fails
+ * everything sent on it and is reopened by the next request.
+ * <p>
+ * Batch reads send one {@link DeviceProtocol#READ_SNAPSHOTS} request per connection and group of
+ * {@code device.max-batch-size} controllers, all at once.
+ * <p>
+ * The adapter is asynchronous underneath; the blocking methods wait for the futures of
+ * {@link AsyncProtocolAdapter}. Cancelling a future drops its request unless it is already on the
+ * wire, in which case the answer is ignored when it arrives.
+ */
+@Component
+@Qualifier("device")
+@ConditionalOnProperty(name = "device.protocol", havingValue = "nio")
+@Slf4j
+public class NioProtocolAdapter implements ProtocolAdapter, AsyncProtocolAdapter, AutoCloseable {
+
+    private static final long TICK_MS = 20;
+
+    /** Added to the request timeout when a blocking caller waits, so the selector thread fails it first. */
+    private static final long AWAIT_MARGIN_MS = 1000;
+
+    private final DeviceConfig config;
+    private final InetSocketAddress defaultEndpoint;
+    private final Map<String, InetSocketAddress> endpoints = new HashMap<>();
+    private final List<SelectorLoop> loops = new ArrayList<>();
+    private final ConcurrentHashMap<ConnectionKey, Connection> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final AtomicInteger nextRequestId = new AtomicInteger();
+
+    public NioProtocolAdapter(DeviceConfig config) {
+        this.config = config;
+        this.defaultEndpoint = parseEndpoint(config.getDefaultEndpoint());
+        config.getEndpoints().forEach((controllerId, endpoint) -> endpoints.put(controllerId, parseEndpoint(endpoint)));
+        for (int i = 0; i < config.getSelectorThreads(); i++) {
+            loops.add(new SelectorLoop(i));
+        }
+    }
+
+    @Override
+    public ControllerStatusDto readStatus(String controllerId) {
+        return await(call(controllerId, DeviceProtocol.READ_STATUS, DeviceProtocol::readStatus, controllerId));
+    }
+
+    @Override
+    public DetectorReadingsDto readDetectorReadings(String controllerId) {
+        return await(call(controllerId, DeviceProtocol.READ_DETECTORS, DeviceProtocol::readDetectors, controllerId));
+    }
+
+    @Override
+    public CommandResultDto sendCommand(String controllerId, String command, String value) {
+        return await(sendCommandAsync(controllerId, command, value));
+    }
+
+    @Override
+    public ControllerSnapshotDto readSnapshot(String controllerId) {
+        return await(readSnapshotAsync(controllerId));
+    }
+
+    @Override
+    public List<SnapshotResult> readSnapshots(List<String> controllerIds) {
+        return await(readSnapshotsAsync(controllerIds));
+    }
+
+    @Override
+    public int maxBatchSize() {
+        return config.getMaxBatchSize();
+    }
+
+    @Override
+    public CompletableFuture<ControllerSnapshotDto> readSnapshotAsync(String controllerId) {
+        CompletableFuture<List<SnapshotResult>> call = readSnapshotsAsync(List.of(controllerId));
+        return Futures.linkCancellation(call.thenApply(results -> {
+            SnapshotResult result = results.getFirst();
+            if (!result.succeeded()) {
+                throw result.failure();
+            }
+            return result.snapshot();
+        }), call);
+    }
+
+    @Override
+    public CompletableFuture<List<SnapshotResult>> readSnapshotsAsync(List<String> controllerIds) {
+        Map<Connection, List<String>> byConnection = new LinkedHashMap<>();
+        for (String controllerId : controllerIds) {
+            byConnection.computeIfAbsent(connectionFor(controllerId), connection -> new ArrayList<>()).add(controllerId);
+        }
+
+        Map<List<String>, CompletableFuture<List<SnapshotResult>>> calls = new LinkedHashMap<>();
+        byConnection.forEach((connection, ids) -> {
+            for (int from = 0; from < ids.size(); from += config.getMaxBatchSize()) {
+                List<String> batch = ids.subList(from, Math.min(from + config.getMaxBatchSize(), ids.size()));
+                String target = batch.size() == 1
+                        ? "controller " + batch.getFirst()
+                        : "batch of " + batch.size() + " controllers from " + batch.getFirst();
+                calls.put(batch, call(connection, target,
+                        requestId -> DeviceProtocol.snapshotsRequest(requestId, batch), DeviceProtocol::readSnapshots));
+            }
+        });
+
+        // A failed request fails the controllers of its batch only, the others still get their answers
+        Map<String, SnapshotResult> results = new ConcurrentHashMap<>();
+        CompletableFuture<?>[] answered = calls.entrySet().stream()
+                .map(entry -> entry.getValue().handle((answer, error) -> {
+                    if (error == null) {
+                        answer.forEach(result -> results.put(result.controllerId(), result));
+                    } else {
+                        RuntimeException failure = asRuntimeException(Futures.unwrap(error));
+                        entry.getKey().forEach(controllerId ->
+                                results.put(controllerId, SnapshotResult.failure(controllerId, failure)));
+                    }
+                    return null;
+                }))
+                .toArray(CompletableFuture[]::new);
+
+        CompletableFuture<List<SnapshotResult>> merged = CompletableFuture.allOf(answered).thenApply(done ->
+                controllerIds.stream()
+                        .map(controllerId -> results.getOrDefault(controllerId, SnapshotResult.failure(controllerId,
+                                new DeviceException("controller " + controllerId, "missing from the batch answer"))))
+                        .toList());
+        merged.whenComplete((done, error) -> {
+            if (error != null) {
+                calls.values().forEach(call -> call.cancel(false));
+            }
+        });
+        return merged;
+    }
+
+    @Override
+    public CompletableFuture<CommandResultDto> sendCommandAsync(String controllerId, String command, String value) {
+        return call(controllerId, DeviceProtocol.SEND_COMMAND, DeviceProtocol::readCommandResult,
+                controllerId, command, value);
+    }
+
+    /** Open connections, for monitoring and tests. */
+    public int connectionCount() {
+        return (int) connections.values().stream().filter(connection -> connection.open).count();
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        loops.forEach(SelectorLoop::stop);
+    }
+
+    private <T> CompletableFuture<T> call(String controllerId, byte type, Function<ByteBuffer, T> decoder,
+                                          String... fields) {
+        return call(connectionFor(controllerId), "controller " + controllerId,
+                requestId -> DeviceProtocol.request(requestId, type, fields), decoder);
+    }
+
+    private <T> CompletableFuture<T> call(Connection connection, String target, IntFunction<ByteBuffer> encoder,
+                                          Function<ByteBuffer, T> decoder) {
+        int requestId = nextRequestId.incrementAndGet();
+        Request<T> request = new Request<>(requestId, target, encoder.apply(requestId), decoder,
+                System.nanoTime() + MILLISECONDS.toNanos(config.getRequestTimeoutMs()));
+        connection.loop.execute(() -> connection.enqueue(request));
+        if (!connection.loop.running) {
+            request.fail("adapter closed");
+        }
+        return request.future;
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            // The selector thread fails expired requests; the bound only matters if it cannot
+            return future.get(config.getRequestTimeoutMs() + AWAIT_MARGIN_MS, MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw new DeviceException("device", "no answer within " + config.getRequestTimeoutMs() + " ms");
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new DeviceException("device", "interrupted while waiting for the answer");
+        } catch (ExecutionException e) {
+            throw asRuntimeException(Futures.unwrap(e));
+        }
+    }
+
+    private static RuntimeException asRuntimeException(Throwable failure) {
+        return failure instanceof RuntimeException runtimeException
+                ? runtimeException
+                : new DeviceException("device", failure.toString());
+    }
+
+    private Connection connectionFor(String controllerId) {
+        InetSocketAddress endpoint = endpoints.getOrDefault(controllerId, defaultEndpoint);
+        int slot = Math.floorMod(controllerId.hashCode(), config.getConnectionsPerEndpoint());
+        return connections.computeIfAbsent(new ConnectionKey(endpoint, slot), key -> {
+            SelectorLoop loop = loops.get(Math.floorMod(nextLoop.getAndIncrement(), loops.size()));
+            Connection connection = new Connection(key, loop);
+            loop.execute(() -> loop.connections.add(connection));
+            return connection;
+        });
+    }
+
+    private static InetSocketAddress parseEndpoint(String endpoint) {
+        int colon = endpoint.lastIndexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Device endpoint must be host:port, got " + endpoint);
+        }
+        return new InetSocketAddress(endpoint.substring(0, colon), Integer.parseInt(endpoint.substring(colon + 1)));
+    }
+
+    private record ConnectionKey(InetSocketAddress endpoint, int slot) {
+    }
+
+    private static final class Request<T> {
+        private final int id;
+        private final String target;
+        private final ByteBuffer frame;
+        private final Function<ByteBuffer, T> decoder;
+        private final long deadline;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Request(int id, String target, ByteBuffer frame, Function<ByteBuffer, T> decoder, long deadline) {
+            this.id = id;
+            this.target = target;
+            this.frame = frame;
+            this.decoder = decoder;
+            this.deadline = deadline;
+        }
+
+        private void answer(byte type, ByteBuffer body) {
+            try {
+                if (type == DeviceProtocol.ERROR) {
+                    fail("device answered with an error: " + DeviceProtocol.getString(body));
+                } else {
+                    future.complete(decoder.apply(body));
+                }
+            } catch (RuntimeException e) {
+                fail("unreadable answer: " + e);
+            }
+        }
+
+        private void fail(String reason) {
+            future.completeExceptionally(new DeviceException(target, reason));
+        }
+    }
+
+    /** One selector thread and the connections registered with it. */
+    private final class SelectorLoop implements Runnable {
+
+        private final Selector selector;
+        private final Thread thread;
+        private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean wakeupPending = new AtomicBoolean();
+        private final List<Connection> connections = new ArrayList<>();
+        private volatile boolean running = true;
+
+        private SelectorLoop(int index) {
+            try {
+                this.selector = Selector.open();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.thread = Thread.ofPlatform().name("device-selector-" + index).daemon(true).start(this);
+        }
+
+        private void execute(Runnable task) {
+            tasks.add(task);
+            // Saves a wakeup system call per request while the loop has not picked up the previous ones
+            if (wakeupPending.compareAndSet(false, true)) {
+                selector.wakeup();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select(TICK_MS);
+                    wakeupPending.set(false);
+                    runTasks();
+                    Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                    while (selected.hasNext()) {
+                        SelectionKey key = selected.next();
+                        selected.remove();
+                        Connection connection = (Connection) key.attachment();
+                        guarded(connection, () -> connection.handle(key));
+                    }
+                    long now = System.nanoTime();
+                    for (Connection connection : connections) {
+                        guarded(connection, () -> connection.expire(now));
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                log.error("Device selector {} stopped", Thread.currentThread().getName(), e);
+            } finally {
+                runTasks();
+                connections.forEach(connection -> guarded(connection, () -> connection.fail("adapter closed")));
+            }
+        }
+
+        private void runTasks() {
+            for (Runnable task; (task = tasks.poll()) != null; ) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    log.error("Device selector task failed", e);
+                }
+            }
+        }
+
+        /**
+         * Runs work of one connection, failing just that connection on an unexpected error such as a
+         * {@link java.nio.channels.CancelledKeyException}, so the loop keeps serving the others.
+         */
+        private void guarded(Connection connection, Runnable work) {
+            try {
+                work.run();
+            } catch (RuntimeException e) {
+                log.error("Unexpected error on device connection to {}", connection.key.endpoint(), e);
+                try {
+                    connection.fail("unexpected error: " + e);
+                } catch (RuntimeException again) {
+                    log.error("Failing device connection to {} failed", connection.key.endpoint(), again);
+                }
+            }
+        }
+
+        private void stop() {
+            running = false;
+            selector.wakeup();
+            try {
+                thread.join(5000);
+                selector.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                log.warn("Closing device selector {} failed", thread.getName(), e);
+            }
+        }
+    }
+
+    /** A connection to one endpoint; every method runs on {@link #loop}'s thread. */
+    private final class Connection {
+
+        private final ConnectionKey key;
+        private final SelectorLoop loop;
+        private final ArrayDeque<Request<?>> waiting = new ArrayDeque<>();
+        private final LinkedHashMap<Integer, Request<?>> inFlight = new LinkedHashMap<>();
+        private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(DeviceProtocol.MAX_FRAME);
+        private SocketChannel channel;
+        private SelectionKey selectionKey;
+        private long connectDeadline;
+        private volatile boolean open;
+
+        private Connection(ConnectionKey key, SelectorLoop loop) {
+            this.key = key;
+            this.loop = loop;
+        }
+
+        private void enqueue(Request<?> request) {
+            if (!loop.running) {
+                request.fail("adapter closed");
+                return;
+            }
+            waiting.add(request);
+            if (channel == null) {
+                connect();
+            } else if (open) {
+                send();
+            }
+        }
+
+        private void connect() {
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                connectDeadline = System.nanoTime() + MILLISECONDS.toNanos(config.getConnectTimeoutMs());
+                if (channel.connect(key.endpoint())) {
+                    selectionKey = channel.register(loop.selector, SelectionKey.OP_READ, this);
+                    connected();
+                } else {
+                    selectionKey = channel.register(loop.selector, SelectionKey.OP_CONNECT, this);
+                }
+            } catch (IOException e) {
+                fail("cannot connect to " + key.endpoint() + ": " + e.getMessage());
+            }
+        }
+
+        private void connected() {
+            open = true;
+            log.debug("Connected to device endpoint {}", key.endpoint());
+            send();
+        }
+
+        private void handle(SelectionKey selected) {
+            try {
+                if (!selected.isValid()) {
+                    return;
+                }
+                if (selected.isConnectable()) {
+                    channel.finishConnect();
+                    selectionKey.interestOps(SelectionKey.OP_READ);
+                    connected();
+                    return;
+                }
+                if (selected.isReadable()) {
+                    read();
+                }
+                if (selected.isValid() && selected.isWritable()) {
+                    write();
+                }
+            } catch (IOException e) {
+                fail("connection to " + key.endpoint() + " failed: " + e.getMessage());
+            }
+        }
+
+        /** Moves waiting requests onto the wire as far as the in-flight limit allows. */
+        private void send() {
+            while (inFlight.size() < config.getMaxInFlight() && !waiting.isEmpty()) {
+                Request<?> request = waiting.poll();
+                if (!request.future.isDone()) {
+                    inFlight.put(request.id, request);
+                    outbound.add(request.frame);
+                }
+            }
+            try {
+                write();
+            } catch (IOException e) {
+                fail("connection to " + key.endpoint() + " failed: " + e.getMessage());
+            }
+        }
+
+        private void write() throws IOException {
+            while (!outbound.isEmpty()) {
+                channel.write(outbound.toArray(ByteBuffer[]::new));
+                while (!outbound.isEmpty() && !outbound.peek().hasRemaining()) {
+                    outbound.poll();
+                }
+                if (!outbound.isEmpty()) {
+                    break;
+                }
+            }
+            selectionKey.interestOps(outbound.isEmpty()
+                    ? SelectionKey.OP_READ
+                    : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+
+        private void read() throws IOException {
+            if (channel.read(readBuffer) < 0) {
+                throw new IOException("closed by the device");
+            }
+            readBuffer.flip();
+            while (readBuffer.remaining() >= Integer.BYTES) {
+                int start = readBuffer.position();
+                int length = readBuffer.getInt(start);
+                if (length < Integer.BYTES + 1 || length > DeviceProtocol.MAX_FRAME - Integer.BYTES) {
+                    throw new IOException("invalid frame length " + length);
+                }
+                if (readBuffer.remaining() < Integer.BYTES + length) {
+                    break;
+                }
+                ByteBuffer frame = readBuffer.slice(start + Integer.BYTES, length);
+                readBuffer.position(start + Integer.BYTES + length);
+
+                Request<?> request = inFlight.remove(frame.getInt());
+                byte type = frame.get();
+                // Unknown ids are late answers to requests that already timed out
+                if (request != null) {
+                    request.answer(type, frame);
+                }
+            }
+            readBuffer.compact();
+            send();
+        }
+
+        private void expire(long now) {
+            if (channel != null && !open && now - connectDeadline > 0) {
+                fail("no connection to " + key.endpoint() + " within " + config.getConnectTimeoutMs() + " ms");
+                return;
+            }
+            expire(waiting.iterator(), now);
+            expire(inFlight.values().iterator(), now);
+            if (open && !waiting.isEmpty()) {
+                send();
+            }
+        }
+
+        private void expire(Iterator<Request<?>> requests, long now) {
+            // Requests are kept in the order they were made, so the expired ones are at the front
+            while (requests.hasNext()) {
+                Request<?> request = requests.next();
+                if (now - request.deadline < 0) {
+                    return;
+                }
+                requests.remove();
+                request.fail("no answer within " + config.getRequestTimeoutMs() + " ms");
+            }
+        }
+
+        /** Closes the channel and fails every request made on it; the next request reconnects. */
+        private void fail(String reason) {
+            if (channel != null && loop.running) {
+                log.warn("Closing device connection to {}: {}", key.endpoint(), reason);
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.debug("Closing device connection to {} failed", key.endpoint(), e);
+                }
+            }
+            channel = null;
+            selectionKey = null;
+            open = false;
+            outbound.clear();
+            readBuffer.clear();
+            waiting.forEach(request -> request.fail(reason));
+            inFlight.values().forEach(request -> request.fail(reason));
+            waiting.clear();
+            inFlight.clear();
+        }
+    }
+
+    public static class DeviceException extends RuntimeException {
+        public DeviceException(String target, String reason) {
+            super("Call to " + target + " failed: " + reason);
+        }
+    }
+}
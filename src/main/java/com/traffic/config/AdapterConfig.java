@@ -0,0 +1,34 @@
+package com.traffic.config;
+
+import com.traffic.adapter.MeteredProtocolAdapter;
+import com.traffic.adapter.ProtocolAdapter;
+import com.traffic.adapter.ResilientProtocolAdapter;
+import com.traffic.adapter.nio.DeviceSimulator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+@Configuration
+public class AdapterConfig {
+
+    /**
+     * The adapter every service talks to; wraps the device adapter selected by {@code device.protocol}
+     * with circuit breakers and bulkheads. Only calls that reach the device are timed, rejected ones are not.
+     */
+    @Bean
+    @Primary
+    public ResilientProtocolAdapter resilientProtocolAdapter(@Qualifier("device") ProtocolAdapter deviceAdapter,
+                                                             ResilienceConfig resilienceConfig,
+                                                             MeterRegistry meterRegistry) {
+        return new ResilientProtocolAdapter(new MeteredProtocolAdapter(deviceAdapter, meterRegistry), resilienceConfig);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnProperty(name = "device.simulator.enabled", havingValue = "true")
+    public DeviceSimulator deviceSimulator(DeviceConfig deviceConfig) {
+        return new DeviceSimulator(deviceConfig.getSimulator().getPort(), deviceConfig.getSimulator().getLatencyMs());
+    }
+}
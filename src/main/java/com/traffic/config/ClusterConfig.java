@@ -0,0 +1,24 @@
+package com.traffic.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "cluster")
+@Data
+public class ClusterConfig {
+
+    /** When disabled, this instance polls every configured controller. */
+    private boolean enabled = false;
+
+    /** Unique per instance; defaults to host name plus a random suffix. */
+    private String instanceId;
+
+    /** Must be the same on every instance. */
+    private int shardCount = 256;
+
+    private long leaseTtlMs = 15000;
+
+    private long heartbeatIntervalMs = 5000;
+}
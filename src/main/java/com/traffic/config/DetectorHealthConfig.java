@@ -0,0 +1,34 @@
+package com.traffic.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "detector-health")
+@Data
+public class DetectorHealthConfig {
+
+    private boolean enabled = true;
+
+    /** Weight of the newest vehicle count in the moving mean and variance; smaller remembers longer. */
+    private double smoothing = 0.05;
+
+    /** Readings a detector needs before counts far from its mean are reported as anomalous. */
+    private int warmupPolls = 20;
+
+    /** Standard deviations from the moving mean at which a vehicle count is anomalous. */
+    private double anomalyThreshold = 4.0;
+
+    /** Consecutive zero counts after which a detector that used to count traffic is considered stuck. */
+    private int stuckZeroPolls = 20;
+
+    /** Moving mean a detector must have had before its zero streak for it to count as stuck. */
+    private double minActiveMean = 1.0;
+
+    /** Consecutive identical non-zero occupancy values after which a detector is considered frozen. */
+    private int flatlinePolls = 20;
+
+    /** Consecutive readings without count and occupancy after which a detector reports no data. */
+    private int missingPolls = 3;
+}
@@ -0,0 +1,58 @@
+package com.traffic.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "device")
+@Data
+public class DeviceConfig {
+
+    private Protocol protocol = Protocol.MOCK;
+
+    /** {@code host:port} of every controller without an entry in {@link #endpoints}. */
+    private String defaultEndpoint = "localhost:7070";
+
+    /** {@code host:port} per controller id. */
+    private Map<String, String> endpoints = new HashMap<>();
+
+    /** Connections kept open to one endpoint; the controllers behind it are spread over them. */
+    private int connectionsPerEndpoint = 1;
+
+    private int selectorThreads = 2;
+
+    private long connectTimeoutMs = 2000;
+
+    private long requestTimeoutMs = 5000;
+
+    /** How long a command may take end to end before it is recorded as timed out. */
+    private long commandTimeoutMs = 10000;
+
+    /** Requests sent on one connection before its first answer arrives; further requests wait. */
+    private int maxInFlight = 64;
+
+    /** Controllers read with one request; 1 turns batch reads off. */
+    private int maxBatchSize = 100;
+
+    private Simulator simulator = new Simulator();
+
+    @Data
+    public static class Simulator {
+
+        /** Starts a loopback device server in this process, answering for any controller id. */
+        private boolean enabled = false;
+
+        private int port = 7070;
+
+        private long latencyMs = 0;
+    }
+
+    public enum Protocol {
+        MOCK,
+        NIO
+    }
+}
@@ -1,13 +1,78 @@
 package com.traffic.config;
 
+import com.traffic.domain.Controller;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @Configuration
 @ConfigurationProperties(prefix = "ingestion")
 @Data
 public class IngestionConfig {
 
     private long pollingIntervalMs = 30000;
+
+    /** Overrides {@link #pollingIntervalMs} for every controller of a zone. */
+    private Map<String, Long> zoneIntervalsMs = new HashMap<>();
+
+    /** Overrides zone and default intervals for single controllers. */
+    private Map<String, Long> controllerIntervalsMs = new HashMap<>();
+
+    private boolean schedulingEnabled = true;
+
+    /** Controllers that come due within this window of each other are polled as one batch. */
+    private long batchWindowMs = 1000;
+
+    /** Reported states that mean polling more often is pointless; these back off like unreachable controllers. */
+    private List<String> backoffStates = List.of("OFFLINE", "MAINTENANCE");
+
+    private long maxBackoffMs = 600000;
+
+    private int maxConcurrency = 256;
+
+    private long controllerTimeoutMs = 5000;
+
+    private long cycleBudgetMs = 25000;
+
+    /** A read unanswered after this long is sent a second time and the faster answer is used; 0 turns this off. */
+    private long hedgeDelayMs = 0;
+
+    private WriteMode writeMode = WriteMode.JDBC;
+
+    /** Writer threads; every controller is always written by the same one, so its rows stay in order. */
+    private int writers = 1;
+
+    /** Poll cycles a writer may have queued before pollers have to wait for it. */
+    private int writeQueueCapacity = 32;
+
+    /** How long a poller waits for queue space before the cycle's readings are dropped. */
+    private long writeQueueTimeoutMs = 5000;
+
+    /** A writer collects queued cycles into one transaction up to this many readings... */
+    private int writeMaxRows = 20000;
+
+    /** ...or until this long after the first of them arrived. */
+    private long writeLingerMs = 50;
+
+    public long pollingIntervalFor(String controllerId) {
+        Long interval = controllerIntervalsMs.get(controllerId);
+        if (interval == null) {
+            String zone = Controller.zoneOf(controllerId);
+            interval = zone != null ? zoneIntervalsMs.get(zone) : null;
+        }
+        return interval != null ? interval : pollingIntervalMs;
+    }
+
+    public boolean isBackoffState(String state) {
+        return state != null && backoffStates.contains(state);
+    }
+
+    public enum WriteMode {
+        JDBC,
+        JPA
+    }
 }
@@ -0,0 +1,17 @@
+package com.traffic.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "live")
+@Data
+public class LiveConfig {
+
+    private int subscriberBufferCycles = 8;
+
+    private int maxSubscribers = 1000;
+
+    private long subscriptionTimeoutMs = 1800000;
+}
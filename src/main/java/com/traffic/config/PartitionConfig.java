@@ -0,0 +1,17 @@
+package com.traffic.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "partitions")
+@Data
+public class PartitionConfig {
+
+    private long maintenanceIntervalMs = 3600000;
+
+    private int premakeDays = 7;
+
+    private int retentionDays = 90;
+}
@@ -0,0 +1,16 @@
+package com.traffic.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "recent-window")
+@Data
+public class RecentWindowConfig {
+
+    private boolean enabled = true;
+
+    /** Readings kept in memory per controller and detector; 240 covers two hours at a 30 s interval. */
+    private int capacity = 240;
+}
@@ -0,0 +1,32 @@
+package com.traffic.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "resilience")
+@Data
+public class ResilienceConfig {
+
+    private boolean enabled = true;
+
+    /** Percentage of failed calls within the sliding window that opens the circuit. */
+    private int failureRateThreshold = 50;
+
+    /** Number of most recent calls per controller the failure rate is computed over. */
+    private int slidingWindowSize = 10;
+
+    /** Calls needed in the window before the failure rate is evaluated at all. */
+    private int minimumCalls = 5;
+
+    private long openDurationMs = 30000;
+
+    /** Trial calls let through once the open duration has passed; all must succeed to close the circuit. */
+    private int halfOpenCalls = 2;
+
+    /** Bulkhead: calls to one controller that may run at the same time. */
+    private int maxConcurrentCalls = 2;
+
+    private long maxWaitMs = 500;
+}
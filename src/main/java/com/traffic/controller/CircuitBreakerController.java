@@ -0,0 +1,39 @@
+package com.traffic.controller;
+
+import com.traffic.adapter.CircuitBreaker;
+import com.traffic.adapter.ResilientProtocolAdapter;
+import com.traffic.service.ControllerService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/controllers")
+@RequiredArgsConstructor
+public class CircuitBreakerController {
+
+    private final ControllerService controllerService;
+    private final ResilientProtocolAdapter resilientProtocolAdapter;
+
+    /**
+     * Circuit breakers of all controllers called since startup, e.g. {@code ?state=OPEN} for the
+     * controllers currently failing fast.
+     */
+    @GetMapping("/circuit-breakers")
+    public ResponseEntity<List<CircuitBreaker.Snapshot>> getCircuitBreakers(
+            @RequestParam(required = false) CircuitBreaker.State state) {
+        return ResponseEntity.ok(resilientProtocolAdapter.getCircuitBreakers(state));
+    }
+
+    @GetMapping("/{controllerId}/circuit-breaker")
+    public ResponseEntity<CircuitBreaker.Snapshot> getCircuitBreaker(@PathVariable String controllerId) {
+        controllerService.validateController(controllerId);
+        return ResponseEntity.ok(resilientProtocolAdapter.getCircuitBreaker(controllerId));
+    }
+}
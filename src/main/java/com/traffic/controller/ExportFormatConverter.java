@@ -0,0 +1,14 @@
+package com.traffic.controller;
+
+import com.traffic.service.DetectorExportService.ExportFormat;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ExportFormatConverter implements Converter<String, ExportFormat> {
+
+    @Override
+    public ExportFormat convert(String source) {
+        return ExportFormat.fromCode(source);
+    }
+}
@@ -0,0 +1,37 @@
+package com.traffic.controller;
+
+import com.traffic.service.FleetSnapshotService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/controllers")
+@RequiredArgsConstructor
+public class FleetController {
+
+    private final FleetSnapshotService fleetSnapshotService;
+
+    /**
+     * Latest status and detector readings of the given controllers, of a zone, or of the whole
+     * fleet, streamed as {@code {"count": n, "controllers": [...]}}.
+     */
+    @GetMapping("/snapshot")
+    public ResponseEntity<StreamingResponseBody> getSnapshot(
+            @RequestParam(required = false) List<String> ids,
+            @RequestParam(required = false) String zone) {
+
+        List<String> controllerIds = fleetSnapshotService.resolveControllerIds(ids, zone);
+        StreamingResponseBody body = out -> fleetSnapshotService.writeSnapshot(controllerIds, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+}
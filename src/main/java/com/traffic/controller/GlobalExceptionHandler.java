@@ -1,12 +1,16 @@
 package com.traffic.controller;
 
+import com.traffic.service.ControllerService.CommandNotFoundException;
 import com.traffic.service.ControllerService.ControllerNotFoundException;
+import com.traffic.service.ControllerService.ControllerNotOwnedException;
+import com.traffic.service.HistoryCursor.InvalidCursorException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestControllerAdvice
@@ -21,4 +25,36 @@ public class GlobalExceptionHandler {
                         "timestamp", Instant.now().toString()
                 ));
     }
+
+    @ExceptionHandler(CommandNotFoundException.class)
+    public ResponseEntity<Map<String, Object>> handleCommandNotFound(CommandNotFoundException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(Map.of(
+                        "error", "Not Found",
+                        "message", ex.getMessage(),
+                        "timestamp", Instant.now().toString()
+                ));
+    }
+
+    @ExceptionHandler(ControllerNotOwnedException.class)
+    public ResponseEntity<Map<String, Object>> handleControllerNotOwned(ControllerNotOwnedException ex) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", "Conflict");
+        body.put("message", ex.getMessage());
+        if (ex.getOwner() != null) {
+            body.put("owner", ex.getOwner());
+        }
+        body.put("timestamp", Instant.now().toString());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidCursor(InvalidCursorException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of(
+                        "error", "Bad Request",
+                        "message", ex.getMessage(),
+                        "timestamp", Instant.now().toString()
+                ));
+    }
 }
@@ -0,0 +1,78 @@
+package com.traffic.controller;
+
+import com.traffic.config.LiveConfig;
+import com.traffic.service.ControllerService;
+import com.traffic.service.LiveScope;
+import com.traffic.service.LiveUpdate;
+import com.traffic.service.LiveUpdateBroadcaster;
+import com.traffic.service.LiveUpdateSink;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/live")
+@RequiredArgsConstructor
+public class LiveController {
+
+    private final ControllerService controllerService;
+    private final LiveUpdateBroadcaster liveUpdateBroadcaster;
+    private final LiveConfig liveConfig;
+
+    /**
+     * Server-sent events with one {@code update} event per controller and poll cycle. Subscribes
+     * to a single controller, to every controller of a zone, or to the whole fleet.
+     * <p>
+     * Errors are returned without a body: the client only accepts {@code text/event-stream}.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribe(
+            @RequestParam(required = false) String controllerId,
+            @RequestParam(required = false) String zone) throws IOException {
+
+        if (controllerId != null && !controllerService.controllerExists(controllerId)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        SseEmitter emitter = new SseEmitter(liveConfig.getSubscriptionTimeoutMs());
+        // Buffered until the emitter is returned, then flushed with the response headers, so clients
+        // see the stream open before the first cycle
+        emitter.send(SseEmitter.event().comment("subscribed"));
+
+        LiveUpdateBroadcaster.Subscriber subscriber;
+        try {
+            subscriber = liveUpdateBroadcaster.subscribe(new LiveScope(controllerId, zone), new EmitterSink(emitter));
+        } catch (LiveUpdateBroadcaster.TooManySubscribersException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+
+        emitter.onCompletion(() -> liveUpdateBroadcaster.unsubscribe(subscriber));
+        emitter.onTimeout(() -> liveUpdateBroadcaster.unsubscribe(subscriber));
+        emitter.onError(e -> liveUpdateBroadcaster.unsubscribe(subscriber));
+        return ResponseEntity.ok(emitter);
+    }
+
+    private record EmitterSink(SseEmitter emitter) implements LiveUpdateSink {
+
+        @Override
+        public void send(LiveUpdate update) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .name("update")
+                    .id(update.controllerId() + "@" + update.fetchedAt())
+                    .data(update, MediaType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void close() {
+            emitter.complete();
+        }
+    }
+}
@@ -4,16 +4,29 @@ import com.traffic.controller.dto.CommandRequest;
 import com.traffic.domain.CommandExecution;
 import com.traffic.domain.ControllerStatus;
 import com.traffic.domain.DetectorReading;
+import com.traffic.domain.RollupResolution;
+import com.traffic.domain.TrafficRollup;
 import com.traffic.service.ControllerService;
+import com.traffic.service.CursorPage;
+import com.traffic.service.DetectorExportService;
+import com.traffic.service.DetectorExportService.ExportFormat;
+import com.traffic.service.DetectorHealthMonitor.DetectorHealth;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.net.URI;
 import java.time.Instant;
 import java.util.List;
 
@@ -22,7 +35,10 @@ import java.util.List;
 @RequiredArgsConstructor
 public class MonitoringController {
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+
     private final ControllerService controllerService;
+    private final DetectorExportService detectorExportService;
 
     @GetMapping("/status")
     public ResponseEntity<ControllerStatus> getStatus(@PathVariable String controllerId) {
@@ -33,24 +49,87 @@ public class MonitoringController {
         return ResponseEntity.ok(status);
     }
 
+    @GetMapping("/status/history")
+    public ResponseEntity<Page<ControllerStatus>> getStatusHistory(
+            @PathVariable String controllerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @PageableDefault(size = 20, sort = "validFrom", direction = Sort.Direction.DESC) Pageable pageable) {
+
+        Page<ControllerStatus> history = controllerService.getStatusHistory(controllerId, from, to, pageable);
+        return ResponseEntity.ok(history);
+    }
+
     @GetMapping("/detectors")
     public ResponseEntity<List<DetectorReading>> getDetectorReadings(@PathVariable String controllerId) {
         List<DetectorReading> readings = controllerService.getLatestDetectorReadings(controllerId);
         return ResponseEntity.ok(readings);
     }
 
+    @GetMapping("/detectors/health")
+    public ResponseEntity<List<DetectorHealth>> getDetectorHealth(@PathVariable String controllerId) {
+        List<DetectorHealth> health = controllerService.getDetectorHealth(controllerId);
+        return ResponseEntity.ok(health);
+    }
+
     @GetMapping("/detectors/history")
     public ResponseEntity<Page<DetectorReading>> getDetectorReadingsHistory(
             @PathVariable String controllerId,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
-            @PageableDefault(size = 20, sort = "fetchedAt") Pageable pageable) {
+            @PageableDefault(size = 20, sort = {"fetchedAt", "id"}) Pageable pageable) {
 
         Page<DetectorReading> history = controllerService.getDetectorReadingsHistory(
                 controllerId, from, to, pageable);
         return ResponseEntity.ok(history);
     }
 
+    @GetMapping("/detectors/history/cursor")
+    public ResponseEntity<CursorPage<DetectorReading>> getDetectorReadingsHistoryPage(
+            @PathVariable String controllerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+
+        CursorPage<DetectorReading> page = controllerService.getDetectorReadingsHistoryPage(
+                controllerId, from, to, cursor, clampPageSize(size));
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping("/detectors/export")
+    public ResponseEntity<StreamingResponseBody> exportDetectorReadings(
+            @PathVariable String controllerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(defaultValue = "ndjson") ExportFormat format) {
+
+        // Checked up front: once streaming starts the status line is already committed
+        controllerService.validateController(controllerId);
+
+        StreamingResponseBody body = out -> detectorExportService.export(controllerId, from, to, format, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(controllerId + "-detectors." + format.getFileExtension())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
+    @GetMapping("/detectors/rollups")
+    public ResponseEntity<List<TrafficRollup>> getDetectorRollups(
+            @PathVariable String controllerId,
+            @RequestParam RollupResolution resolution,
+            @RequestParam(required = false) Integer detectorId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+
+        List<TrafficRollup> rollups = controllerService.getDetectorRollups(
+                controllerId, detectorId, resolution, from, to);
+        return ResponseEntity.ok(rollups);
+    }
+
     @PostMapping("/commands")
     public ResponseEntity<CommandExecution> sendCommand(
             @PathVariable String controllerId,
@@ -58,7 +137,19 @@ public class MonitoringController {
 
         CommandExecution execution = controllerService.sendCommand(
                 controllerId, request.getCommand(), request.getValue());
-        return ResponseEntity.ok(execution);
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{executionId}")
+                .buildAndExpand(execution.getId())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(execution);
+    }
+
+    @GetMapping("/commands/{executionId}")
+    public ResponseEntity<CommandExecution> getCommand(
+            @PathVariable String controllerId,
+            @PathVariable long executionId) {
+
+        return ResponseEntity.ok(controllerService.getCommand(controllerId, executionId));
     }
 
     @GetMapping("/commands/history")
@@ -69,4 +160,19 @@ public class MonitoringController {
         Page<CommandExecution> history = controllerService.getCommandHistory(controllerId, pageable);
         return ResponseEntity.ok(history);
     }
+
+    @GetMapping("/commands/history/cursor")
+    public ResponseEntity<CursorPage<CommandExecution>> getCommandHistoryPage(
+            @PathVariable String controllerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+
+        CursorPage<CommandExecution> page = controllerService.getCommandHistoryPage(
+                controllerId, cursor, clampPageSize(size));
+        return ResponseEntity.ok(page);
+    }
+
+    private static int clampPageSize(int size) {
+        return Math.clamp(size, 1, MAX_CURSOR_PAGE_SIZE);
+    }
 }
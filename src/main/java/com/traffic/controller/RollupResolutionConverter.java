@@ -0,0 +1,14 @@
+package com.traffic.controller;
+
+import com.traffic.domain.RollupResolution;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+@Component
+public class RollupResolutionConverter implements Converter<String, RollupResolution> {
+
+    @Override
+    public RollupResolution convert(String source) {
+        return RollupResolution.fromCode(source);
+    }
+}
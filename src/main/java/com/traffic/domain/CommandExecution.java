@@ -17,17 +17,29 @@ import java.time.Instant;
 public class CommandExecution {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "command_executions_id_seq")
+    @SequenceGenerator(name = "command_executions_id_seq", sequenceName = "command_executions_id_seq", allocationSize = 50)
     private Long id;
 
-    @Column(name = "controller_id")
+    @Column(name = "controller_key")
+    @Convert(converter = ControllerKeyConverter.class)
     private String controllerId;
 
     private String command;
 
-    private boolean success;
+    @Enumerated(EnumType.STRING)
+    private CommandStatus status;
+
+    /** {@code null} until the controller has answered. */
+    private Boolean success;
 
     private String value;
 
+    /** When the command was accepted; commands run in this order per controller. */
     private Instant executedAt;
+
+    private Instant completedAt;
+
+    /** Instance whose dispatcher queued the command; {@code null} for commands from before V9. */
+    private String dispatchedBy;
 }
@@ -0,0 +1,9 @@
+package com.traffic.domain;
+
+public enum CommandStatus {
+    PENDING,
+    SUCCEEDED,
+    FAILED,
+    /** Not confirmed within {@code device.command-timeout-ms}; the device may or may not have applied it. */
+    TIMED_OUT
+}
@@ -1,6 +1,7 @@
 package com.traffic.domain;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
@@ -12,6 +13,7 @@ import java.time.Instant;
 
 @Entity
 @Table(name = "controllers")
+@EntityListeners(ControllerKeyConverter.class)
 @Data
 @Builder
 @NoArgsConstructor
@@ -22,4 +24,17 @@ public class Controller {
     private String id;
 
     private Instant registeredAt;
+
+    /**
+     * Controller ids follow {@code <device>.<zone>.<location...>}, e.g. {@code fd132.z1.highway.a21.loc}.
+     * Returns the zone segment, or {@code null} if the id has none.
+     */
+    public static String zoneOf(String controllerId) {
+        int start = controllerId.indexOf('.');
+        if (start < 0) {
+            return null;
+        }
+        int end = controllerId.indexOf('.', start + 1);
+        return end < 0 ? controllerId.substring(start + 1) : controllerId.substring(start + 1, end);
+    }
 }
@@ -0,0 +1,39 @@
+package com.traffic.domain;
+
+import com.traffic.repository.ControllerKeys;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Stores the {@code controllerId} of history entities as the controller's integer key. Query
+ * parameters compared against {@code controllerId} are converted as well, so repositories keep
+ * working with the string id.
+ * <p>
+ * Also registered as entity listener on {@link Controller}, to drop cached keys of controllers
+ * that are deleted or registered again.
+ */
+@Converter
+@RequiredArgsConstructor
+public class ControllerKeyConverter implements AttributeConverter<String, Integer> {
+
+    private final ControllerKeys controllerKeys;
+
+    @Override
+    public Integer convertToDatabaseColumn(String controllerId) {
+        return controllerKeys.keyOf(controllerId);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer controllerKey) {
+        return controllerKeys.idOf(controllerKey);
+    }
+
+    @PostPersist
+    @PostRemove
+    void evict(Controller controller) {
+        controllerKeys.evict(controller.getId());
+    }
+}
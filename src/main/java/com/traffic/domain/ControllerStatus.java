@@ -10,32 +10,45 @@ import org.hibernate.type.SqlTypes;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Objects;
 
 @Entity
 @Table(name = "controller_status")
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ControllerStatus {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "controller_status_id_seq")
+    @SequenceGenerator(name = "controller_status_id_seq", sequenceName = "controller_status_id_seq", allocationSize = 50)
     private Long id;
 
-    @Column(name = "controller_id")
+    @Column(name = "controller_key")
+    @Convert(converter = ControllerKeyConverter.class)
     private String controllerId;
 
     private String state;
 
     private String program;
 
-    private Instant fetchedAt;
+    /** First poll that returned this state. */
+    private Instant validFrom;
+
+    /** Latest poll that returned this state; extended in place while nothing changes. */
+    private Instant validTo;
 
     @JdbcTypeCode(SqlTypes.JSON)
     @Column(columnDefinition = "jsonb")
     private List<ErrorInfo> errors;
 
+    public boolean hasSameStateAs(ControllerStatus other) {
+        return Objects.equals(state, other.state)
+                && Objects.equals(program, other.program)
+                && Objects.equals(errors, other.errors);
+    }
+
     @Data
     @Builder
     @NoArgsConstructor
@@ -5,6 +5,8 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -12,24 +14,28 @@ import java.time.Instant;
 @Entity
 @Table(name = "detector_readings")
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class DetectorReading {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "detector_readings_id_seq")
+    @SequenceGenerator(name = "detector_readings_id_seq", sequenceName = "detector_readings_id_seq", allocationSize = 50)
     private Long id;
 
-    @Column(name = "controller_id")
+    @Column(name = "controller_key")
+    @Convert(converter = ControllerKeyConverter.class)
     private String controllerId;
 
+    @JdbcTypeCode(SqlTypes.SMALLINT)
     private Integer detectorId;
 
     private String detectorName;
 
     private Integer vehicleCount;
 
+    @Convert(converter = OccupancyConverter.class)
     private BigDecimal occupancy;
 
     private Instant readingTimestamp;
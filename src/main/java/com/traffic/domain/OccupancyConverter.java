@@ -0,0 +1,32 @@
+package com.traffic.domain;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Stores occupancy (0 to 1, four decimal places) as {@code SMALLINT} basis points.
+ */
+@Converter
+public class OccupancyConverter implements AttributeConverter<BigDecimal, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(BigDecimal occupancy) {
+        return toBasisPoints(occupancy);
+    }
+
+    @Override
+    public BigDecimal convertToEntityAttribute(Short basisPoints) {
+        return fromBasisPoints(basisPoints);
+    }
+
+    public static Short toBasisPoints(BigDecimal occupancy) {
+        return occupancy != null ? occupancy.movePointRight(4).setScale(0, RoundingMode.HALF_UP).shortValueExact() : null;
+    }
+
+    public static BigDecimal fromBasisPoints(Number basisPoints) {
+        return basisPoints != null ? BigDecimal.valueOf(basisPoints.longValue(), 4) : null;
+    }
+}
@@ -0,0 +1,34 @@
+package com.traffic.domain;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Duration;
+import java.time.Instant;
+
+@Getter
+@RequiredArgsConstructor
+public enum RollupResolution {
+
+    ONE_MINUTE("1m", Duration.ofMinutes(1), Duration.ofHours(6)),
+    FIFTEEN_MINUTES("15m", Duration.ofMinutes(15), Duration.ofDays(7)),
+    ONE_HOUR("1h", Duration.ofHours(1), Duration.ofDays(30));
+
+    private final String code;
+    private final Duration bucketSize;
+    private final Duration defaultRange;
+
+    public Instant bucketStart(Instant timestamp) {
+        long bucketSeconds = bucketSize.toSeconds();
+        return Instant.ofEpochSecond(Math.floorDiv(timestamp.getEpochSecond(), bucketSeconds) * bucketSeconds);
+    }
+
+    public static RollupResolution fromCode(String code) {
+        for (RollupResolution resolution : values()) {
+            if (resolution.code.equalsIgnoreCase(code) || resolution.name().equalsIgnoreCase(code)) {
+                return resolution;
+            }
+        }
+        throw new IllegalArgumentException("Unknown rollup resolution: " + code);
+    }
+}
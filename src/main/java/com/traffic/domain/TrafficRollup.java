@@ -0,0 +1,35 @@
+package com.traffic.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrafficRollup {
+
+    private String controllerId;
+
+    /** {@code null} for rollups across all detectors of the controller. */
+    private Integer detectorId;
+
+    private String resolution;
+
+    private Instant bucketStart;
+
+    private int sampleCount;
+
+    private long vehicleCount;
+
+    private BigDecimal occupancyMin;
+
+    private BigDecimal occupancyMax;
+
+    private BigDecimal occupancyAvg;
+}
@@ -1,13 +1,64 @@
 package com.traffic.repository;
 
 import com.traffic.domain.CommandExecution;
+import com.traffic.domain.CommandStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CommandExecutionRepository extends JpaRepository<CommandExecution, Long> {
 
+    Optional<CommandExecution> findByIdAndControllerId(Long id, String controllerId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE CommandExecution ce SET ce.status = :status, ce.success = :success, ce.completedAt = :completedAt " +
+           "WHERE ce.id = :id AND ce.status = com.traffic.domain.CommandStatus.PENDING")
+    int complete(
+            @Param("id") Long id,
+            @Param("status") CommandStatus status,
+            @Param("success") Boolean success,
+            @Param("completedAt") Instant completedAt);
+
+    /**
+     * Fails commands whose dispatching instance is gone: this instance's own from before
+     * {@code startedAt}, and other instances' accepted before {@code acceptedBefore} whose
+     * {@code ingestion_members} heartbeat is missing or older than {@code ttlMs}.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE command_executions ce SET status = 'FAILED', completed_at = :now " +
+                   "WHERE ce.status = 'PENDING' AND CASE WHEN ce.dispatched_by = :instanceId " +
+                   "THEN ce.executed_at < :startedAt " +
+                   "ELSE ce.executed_at < :acceptedBefore AND NOT EXISTS (SELECT 1 FROM ingestion_members m " +
+                   "WHERE m.instance_id = ce.dispatched_by AND m.heartbeat_at > now() - :ttlMs * INTERVAL '1 millisecond') END",
+           nativeQuery = true)
+    int failPendingOfLostInstances(
+            @Param("instanceId") String instanceId,
+            @Param("startedAt") Instant startedAt,
+            @Param("acceptedBefore") Instant acceptedBefore,
+            @Param("ttlMs") long ttlMs,
+            @Param("now") Instant now);
+
     Page<CommandExecution> findByControllerIdOrderByExecutedAtDesc(String controllerId, Pageable pageable);
+
+    @Query("SELECT ce FROM CommandExecution ce WHERE ce.controllerId = :controllerId " +
+           "AND (ce.executedAt, ce.id) < (:beforeExecutedAt, :beforeId) " +
+           "ORDER BY ce.executedAt DESC, ce.id DESC")
+    List<CommandExecution> findPageBefore(
+            @Param("controllerId") String controllerId,
+            @Param("beforeExecutedAt") Instant beforeExecutedAt,
+            @Param("beforeId") long beforeId,
+            Limit limit);
 }
@@ -0,0 +1,70 @@
+package com.traffic.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Translates between the controller ids used by the API and the integer {@code controller_key}
+ * the history tables store instead. A key never changes while its controller exists, so both
+ * directions are cached after the first lookup; deleting or registering a controller evicts it.
+ */
+@Component
+@RequiredArgsConstructor
+public class ControllerKeys {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ConcurrentHashMap<String, Integer> keys = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, String> ids = new ConcurrentHashMap<>();
+
+    /**
+     * The key of a registered controller, or {@code null} if there is no such controller, so
+     * queries for it find nothing and inserts fail on the {@code NOT NULL} constraint.
+     */
+    public Integer keyOf(String controllerId) {
+        if (controllerId == null) {
+            return null;
+        }
+        Integer key = keys.get(controllerId);
+        if (key == null) {
+            List<Integer> found = jdbcTemplate.queryForList(
+                    "SELECT controller_key FROM controllers WHERE id = ?", Integer.class, controllerId);
+            if (found.isEmpty()) {
+                return null;
+            }
+            key = found.getFirst();
+            keys.put(controllerId, key);
+            ids.put(key, controllerId);
+        }
+        return key;
+    }
+
+    public String idOf(Integer controllerKey) {
+        if (controllerKey == null) {
+            return null;
+        }
+        String id = ids.get(controllerKey);
+        if (id == null) {
+            List<String> found = jdbcTemplate.queryForList(
+                    "SELECT id FROM controllers WHERE controller_key = ?", String.class, controllerKey);
+            if (found.isEmpty()) {
+                throw new IllegalStateException("No controller with key " + controllerKey);
+            }
+            id = found.getFirst();
+            keys.put(id, controllerKey);
+            ids.put(controllerKey, id);
+        }
+        return id;
+    }
+
+    public void evict(String controllerId) {
+        Integer key = keys.remove(controllerId);
+        if (key != null) {
+            ids.remove(key);
+        }
+    }
+}
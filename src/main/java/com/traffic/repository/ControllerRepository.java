@@ -2,8 +2,36 @@ package com.traffic.repository;
 
 import com.traffic.domain.Controller;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface ControllerRepository extends JpaRepository<Controller, String> {
+
+    /** Same zone as {@link Controller#zoneOf}: the second dot-separated segment of the id, if there is one. */
+    String IN_ZONE = "(CAST(:zone AS VARCHAR) IS NULL OR (strpos(id, '.') > 0 AND split_part(id, '.', 2) = :zone))";
+
+    /** Ids of every registered controller in the zone, or of all controllers when it is {@code null}. */
+    @Query(value = "SELECT id FROM controllers WHERE " + IN_ZONE + " ORDER BY id COLLATE \"C\"", nativeQuery = true)
+    List<String> findIdsInZone(@Param("zone") String zone);
+
+    /** The registered ones of the given ids, limited to the zone unless it is {@code null}. */
+    @Query(value = "SELECT id FROM controllers WHERE id IN (:ids) AND " + IN_ZONE + " ORDER BY id COLLATE \"C\"",
+           nativeQuery = true)
+    List<String> findIdsInZone(@Param("ids") Collection<String> ids, @Param("zone") String zone);
+
+    /** Inserts the controller unless it exists; safe when several instances register at once. */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO controllers (id, registered_at) VALUES (:id, :registeredAt) " +
+                   "ON CONFLICT (id) DO NOTHING",
+           nativeQuery = true)
+    int registerIfAbsent(@Param("id") String id, @Param("registeredAt") Instant registeredAt);
 }
@@ -1,13 +1,44 @@
 package com.traffic.repository;
 
 import com.traffic.domain.ControllerStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ControllerStatusRepository extends JpaRepository<ControllerStatus, Long> {
 
-    Optional<ControllerStatus> findTopByControllerIdOrderByFetchedAtDesc(String controllerId);
+    Optional<ControllerStatus> findTopByControllerIdOrderByValidFromDesc(String controllerId);
+
+    @Query("SELECT cs FROM ControllerStatus cs WHERE cs.controllerId IN :controllerIds AND cs.validFrom >= :since " +
+           "AND cs.validFrom = (SELECT MAX(cs2.validFrom) FROM ControllerStatus cs2 " +
+           "WHERE cs2.controllerId = cs.controllerId AND cs2.validFrom >= :since)")
+    List<ControllerStatus> findCurrentIntervals(
+            @Param("controllerIds") Collection<String> controllerIds,
+            @Param("since") Instant since);
+
+    @Query("SELECT cs FROM ControllerStatus cs WHERE cs.controllerId = :controllerId " +
+           "AND cs.validTo >= :from AND cs.validFrom <= :to")
+    Page<ControllerStatus> findOverlapping(
+            @Param("controllerId") String controllerId,
+            @Param("from") Instant from,
+            @Param("to") Instant to,
+            Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE ControllerStatus cs SET cs.validTo = :validTo " +
+           "WHERE cs.controllerId = :controllerId AND cs.validFrom = :validFrom")
+    int extendInterval(
+            @Param("controllerId") String controllerId,
+            @Param("validFrom") Instant validFrom,
+            @Param("validTo") Instant validTo);
 }
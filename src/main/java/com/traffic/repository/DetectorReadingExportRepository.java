@@ -0,0 +1,50 @@
+package com.traffic.repository;
+
+import com.traffic.domain.DetectorReading;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.function.Consumer;
+
+import static com.traffic.repository.JdbcSupport.detectorReading;
+import static com.traffic.repository.JdbcSupport.utc;
+
+/**
+ * Streams detector history row by row through a server-side cursor. PostgreSQL only honours
+ * the fetch size inside a transaction, so every stream runs in its own read-only one.
+ */
+@Repository
+public class DetectorReadingExportRepository {
+
+    static final int FETCH_SIZE = 1000;
+
+    private static final String SELECT_HISTORY =
+            "SELECT r.id, c.id AS controller_id, r.detector_id, r.detector_name, r.vehicle_count, r.occupancy, " +
+            "r.reading_timestamp, r.fetched_at FROM detector_readings r " +
+            "JOIN controllers c ON c.controller_key = r.controller_key " +
+            "WHERE c.id = ? AND r.fetched_at >= ? AND r.fetched_at <= ? " +
+            "ORDER BY r.fetched_at, r.id";
+
+    private final JdbcTemplate cursorJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public DetectorReadingExportRepository(DataSource dataSource, PlatformTransactionManager transactionManager) {
+        this.cursorJdbcTemplate = new JdbcTemplate(dataSource);
+        this.cursorJdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public long streamHistory(String controllerId, Instant from, Instant to, Consumer<DetectorReading> consumer) {
+        long[] rows = new long[1];
+        readOnlyTransaction.executeWithoutResult(tx -> cursorJdbcTemplate.query(SELECT_HISTORY, rs -> {
+            consumer.accept(detectorReading(rs));
+            rows[0]++;
+        }, controllerId, utc(from), utc(to)));
+        return rows[0];
+    }
+}
@@ -1,6 +1,7 @@
 package com.traffic.repository;
 
 import com.traffic.domain.DetectorReading;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -25,4 +26,20 @@ public interface DetectorReadingRepository extends JpaRepository<DetectorReading
             Pageable pageable);
 
     Page<DetectorReading> findByControllerId(String controllerId, Pageable pageable);
+
+    /**
+     * The row comparison bounds the {@code (controller_key, fetched_at, id)} index scan at the cursor,
+     * so a deep page reads only its own rows.
+     */
+    @Query("SELECT dr FROM DetectorReading dr WHERE dr.controllerId = :controllerId " +
+           "AND dr.fetchedAt >= :from AND dr.fetchedAt <= :to " +
+           "AND (dr.fetchedAt, dr.id) > (:afterFetchedAt, :afterId) " +
+           "ORDER BY dr.fetchedAt, dr.id")
+    List<DetectorReading> findPageAfter(
+            @Param("controllerId") String controllerId,
+            @Param("from") Instant from,
+            @Param("to") Instant to,
+            @Param("afterFetchedAt") Instant afterFetchedAt,
+            @Param("afterId") long afterId,
+            Limit limit);
 }
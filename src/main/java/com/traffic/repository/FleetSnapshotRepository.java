@@ -0,0 +1,86 @@
+package com.traffic.repository;
+
+import com.traffic.domain.ControllerStatus;
+import com.traffic.domain.DetectorReading;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.stereotype.Repository;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.traffic.repository.JdbcSupport.detectorReading;
+import static com.traffic.repository.JdbcSupport.instant;
+
+/**
+ * Latest status and detector readings for a whole set of controllers in one query each. The
+ * ids are unnested and joined {@code LATERAL} to an {@code ORDER BY ... LIMIT 1} seek, so every
+ * controller costs one index probe instead of a {@code DISTINCT ON} over its full history.
+ */
+@Repository
+@RequiredArgsConstructor
+public class FleetSnapshotRepository {
+
+    private static final String SELECT_LATEST_STATUSES =
+            "SELECT c.id AS controller_id, s.* FROM unnest(?::varchar[]) AS ids(id) " +
+            "JOIN controllers c ON c.id = ids.id " +
+            "CROSS JOIN LATERAL (SELECT id, state, program, valid_from, valid_to, errors " +
+            "FROM controller_status WHERE controller_key = c.controller_key ORDER BY valid_from DESC LIMIT 1) s";
+
+    private static final String SELECT_LATEST_READINGS =
+            "SELECT c.id AS controller_id, r.* FROM unnest(?::varchar[]) AS ids(id) " +
+            "JOIN controllers c ON c.id = ids.id " +
+            "CROSS JOIN LATERAL (SELECT fetched_at FROM detector_readings WHERE controller_key = c.controller_key " +
+            "ORDER BY fetched_at DESC LIMIT 1) latest " +
+            "JOIN detector_readings r ON r.controller_key = c.controller_key AND r.fetched_at = latest.fetched_at " +
+            "ORDER BY c.id, r.detector_id";
+
+    private static final TypeReference<List<ControllerStatus.ErrorInfo>> ERRORS_TYPE = new TypeReference<>() {
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JsonMapper jsonMapper;
+
+    public Map<String, ControllerStatus> findLatestStatuses(Collection<String> controllerIds) {
+        Map<String, ControllerStatus> statuses = new HashMap<>();
+        jdbcTemplate.query(withIds(SELECT_LATEST_STATUSES, controllerIds), rs -> {
+            String errors = rs.getString("errors");
+            ControllerStatus status = ControllerStatus.builder()
+                    .id(rs.getLong("id"))
+                    .controllerId(rs.getString("controller_id"))
+                    .state(rs.getString("state"))
+                    .program(rs.getString("program"))
+                    .validFrom(instant(rs, "valid_from"))
+                    .validTo(instant(rs, "valid_to"))
+                    .errors(errors != null ? jsonMapper.readValue(errors, ERRORS_TYPE) : null)
+                    .build();
+            statuses.put(status.getControllerId(), status);
+        });
+        return statuses;
+    }
+
+    public Map<String, List<DetectorReading>> findLatestReadings(Collection<String> controllerIds) {
+        Map<String, List<DetectorReading>> readings = new LinkedHashMap<>();
+        jdbcTemplate.query(withIds(SELECT_LATEST_READINGS, controllerIds), rs -> {
+            DetectorReading reading = detectorReading(rs);
+            readings.computeIfAbsent(reading.getControllerId(), id -> new ArrayList<>()).add(reading);
+        });
+        return readings;
+    }
+
+    private static PreparedStatementCreator withIds(String sql, Collection<String> controllerIds) {
+        return con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("varchar", controllerIds.toArray()));
+            return ps;
+        };
+    }
+}
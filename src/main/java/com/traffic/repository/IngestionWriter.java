@@ -0,0 +1,17 @@
+package com.traffic.repository;
+
+import com.traffic.domain.ControllerStatus;
+import com.traffic.domain.DetectorReading;
+
+import java.util.List;
+
+public interface IngestionWriter {
+
+    /**
+     * Inserts {@code openedStatuses} as new intervals and moves {@code validTo} of the intervals in
+     * {@code extendedStatuses} forward. An extended interval whose row no longer exists is inserted.
+     * The generated ids are set on {@code readings}.
+     */
+    WriteStats write(List<ControllerStatus> openedStatuses, List<ControllerStatus> extendedStatuses,
+                     List<DetectorReading> readings);
+}
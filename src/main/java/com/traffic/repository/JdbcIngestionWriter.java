@@ -0,0 +1,155 @@
+package com.traffic.repository;
+
+import com.traffic.domain.ControllerStatus;
+import com.traffic.domain.DetectorReading;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+import static com.traffic.domain.OccupancyConverter.toBasisPoints;
+import static com.traffic.repository.JdbcSupport.utc;
+
+/**
+ * Writes a whole poll cycle with multi-row {@code INSERT ... VALUES (...), (...)} statements,
+ * so a cycle costs one round trip per {@value #ROWS_PER_STATEMENT} rows instead of one per row.
+ * Extended status intervals go out as one JDBC batch of {@code UPDATE}s.
+ */
+@Component
+@ConditionalOnProperty(name = "ingestion.write-mode", havingValue = "jdbc", matchIfMissing = true)
+@RequiredArgsConstructor
+public class JdbcIngestionWriter implements IngestionWriter {
+
+    static final int ROWS_PER_STATEMENT = 500;
+
+    private static final String STATUS_INSERT =
+            "INSERT INTO controller_status (controller_key, state, program, valid_from, valid_to, errors) VALUES ";
+    private static final String STATUS_ROW = "(?, ?, ?, ?, ?, ?::jsonb)";
+
+    private static final String STATUS_EXTEND =
+            "UPDATE controller_status SET valid_to = ? WHERE controller_key = ? AND valid_from = ?";
+
+    private static final String READING_INSERT =
+            "INSERT INTO detector_readings (controller_key, detector_id, detector_name, vehicle_count, " +
+            "occupancy, reading_timestamp, fetched_at) VALUES ";
+    private static final String READING_ROW = "(?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JsonMapper jsonMapper;
+    private final ControllerKeys controllerKeys;
+
+    @Override
+    public WriteStats write(List<ControllerStatus> openedStatuses, List<ControllerStatus> extendedStatuses,
+                            List<DetectorReading> readings) {
+        long start = System.nanoTime();
+        List<ControllerStatus> missing = extendIntervals(extendedStatuses);
+        List<ControllerStatus> inserts = new ArrayList<>(openedStatuses);
+        inserts.addAll(missing);
+        insertInChunks(STATUS_INSERT, STATUS_ROW, inserts, this::bindStatus);
+        insertReadings(readings);
+        return new WriteStats(inserts.size(), extendedStatuses.size() - missing.size(), readings.size(),
+                Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private List<ControllerStatus> extendIntervals(List<ControllerStatus> statuses) {
+        if (statuses.isEmpty()) {
+            return List.of();
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(STATUS_EXTEND, statuses, ROWS_PER_STATEMENT, (ps, status) -> {
+            ps.setObject(1, utc(status.getValidTo()));
+            ps.setObject(2, controllerKeys.keyOf(status.getControllerId()), Types.INTEGER);
+            ps.setObject(3, utc(status.getValidFrom()));
+        });
+
+        // Rows can vanish under us (retention, manual cleanup); re-open those intervals
+        List<ControllerStatus> missing = new ArrayList<>();
+        int i = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count == 0) {
+                    missing.add(statuses.get(i));
+                }
+                i++;
+            }
+        }
+        return missing;
+    }
+
+    private int bindStatus(PreparedStatement ps, int index, ControllerStatus status) throws SQLException {
+        ps.setObject(index++, controllerKeys.keyOf(status.getControllerId()), Types.INTEGER);
+        ps.setString(index++, status.getState());
+        ps.setString(index++, status.getProgram());
+        ps.setObject(index++, utc(status.getValidFrom()));
+        ps.setObject(index++, utc(status.getValidTo()));
+        ps.setString(index++, status.getErrors() != null ? jsonMapper.writeValueAsString(status.getErrors()) : null);
+        return index;
+    }
+
+    private int bindReading(PreparedStatement ps, int index, DetectorReading reading) throws SQLException {
+        ps.setObject(index++, controllerKeys.keyOf(reading.getControllerId()), Types.INTEGER);
+        ps.setObject(index++, reading.getDetectorId(), Types.SMALLINT);
+        ps.setString(index++, reading.getDetectorName());
+        ps.setObject(index++, reading.getVehicleCount(), Types.INTEGER);
+        ps.setObject(index++, toBasisPoints(reading.getOccupancy()), Types.SMALLINT);
+        ps.setObject(index++, utc(reading.getReadingTimestamp()));
+        ps.setObject(index++, utc(reading.getFetchedAt()));
+        return index;
+    }
+
+    /**
+     * Inserts readings like {@link #insertInChunks} and copies the generated ids back onto them, so
+     * the in-memory recent window serves the same ids as the database. PostgreSQL returns the rows
+     * of a multi-row {@code VALUES} insert in the order they were listed.
+     */
+    private void insertReadings(List<DetectorReading> readings) {
+        for (int from = 0; from < readings.size(); from += ROWS_PER_STATEMENT) {
+            List<DetectorReading> chunk = readings.subList(from, Math.min(from + ROWS_PER_STATEMENT, readings.size()));
+            String insert = multiRowInsert(READING_INSERT, READING_ROW, chunk.size()) + " RETURNING id";
+            List<Long> ids = jdbcTemplate.query(insert,
+                    ps -> {
+                        int index = 1;
+                        for (DetectorReading reading : chunk) {
+                            index = bindReading(ps, index, reading);
+                        }
+                    },
+                    (rs, rowNum) -> rs.getLong(1));
+            for (int i = 0; i < chunk.size(); i++) {
+                chunk.get(i).setId(ids.get(i));
+            }
+        }
+    }
+
+    private <T> void insertInChunks(String insert, String row, List<T> rows, RowBinder<T> binder) {
+        for (int from = 0; from < rows.size(); from += ROWS_PER_STATEMENT) {
+            List<T> chunk = rows.subList(from, Math.min(from + ROWS_PER_STATEMENT, rows.size()));
+            jdbcTemplate.update(multiRowInsert(insert, row, chunk.size()), ps -> {
+                int index = 1;
+                for (T value : chunk) {
+                    index = binder.bind(ps, index, value);
+                }
+            });
+        }
+    }
+
+    private static String multiRowInsert(String insert, String row, int rowCount) {
+        StringJoiner values = new StringJoiner(", ", insert, "");
+        for (int i = 0; i < rowCount; i++) {
+            values.add(row);
+        }
+        return values.toString();
+    }
+
+    @FunctionalInterface
+    private interface RowBinder<T> {
+        int bind(PreparedStatement ps, int index, T value) throws SQLException;
+    }
+}
@@ -0,0 +1,45 @@
+package com.traffic.repository;
+
+import com.traffic.domain.DetectorReading;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static com.traffic.domain.OccupancyConverter.fromBasisPoints;
+
+/**
+ * Binds and reads {@link Instant}s the same way Hibernate does for the entity timestamp
+ * columns, so rows written over plain JDBC read back identically through JPA and vice versa.
+ * Also maps the history rows that more than one JDBC repository reads.
+ */
+final class JdbcSupport {
+
+    private JdbcSupport() {
+    }
+
+    static OffsetDateTime utc(Instant instant) {
+        return instant != null ? instant.atOffset(ZoneOffset.UTC) : null;
+    }
+
+    static Instant instant(ResultSet rs, String column) throws SQLException {
+        OffsetDateTime value = rs.getObject(column, OffsetDateTime.class);
+        return value != null ? value.toInstant() : null;
+    }
+
+    /** Expects the controller id joined in as {@code controller_id}. */
+    static DetectorReading detectorReading(ResultSet rs) throws SQLException {
+        return DetectorReading.builder()
+                .id(rs.getLong("id"))
+                .controllerId(rs.getString("controller_id"))
+                .detectorId(rs.getObject("detector_id", Integer.class))
+                .detectorName(rs.getString("detector_name"))
+                .vehicleCount(rs.getObject("vehicle_count", Integer.class))
+                .occupancy(fromBasisPoints(rs.getObject("occupancy", Integer.class)))
+                .readingTimestamp(instant(rs, "reading_timestamp"))
+                .fetchedAt(instant(rs, "fetched_at"))
+                .build();
+    }
+}
@@ -0,0 +1,40 @@
+package com.traffic.repository;
+
+import com.traffic.domain.ControllerStatus;
+import com.traffic.domain.DetectorReading;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "ingestion.write-mode", havingValue = "jpa")
+@RequiredArgsConstructor
+public class JpaIngestionWriter implements IngestionWriter {
+
+    private final ControllerStatusRepository controllerStatusRepository;
+    private final DetectorReadingRepository detectorReadingRepository;
+
+    @Override
+    public WriteStats write(List<ControllerStatus> openedStatuses, List<ControllerStatus> extendedStatuses,
+                            List<DetectorReading> readings) {
+        long start = System.nanoTime();
+        List<ControllerStatus> inserts = new ArrayList<>(openedStatuses);
+        int extended = 0;
+        for (ControllerStatus status : extendedStatuses) {
+            if (controllerStatusRepository.extendInterval(
+                    status.getControllerId(), status.getValidFrom(), status.getValidTo()) > 0) {
+                extended++;
+            } else {
+                inserts.add(status.toBuilder().id(null).build());
+            }
+        }
+        controllerStatusRepository.saveAll(inserts);
+        detectorReadingRepository.saveAll(readings);
+        return new WriteStats(inserts.size(), extended, readings.size(),
+                Duration.ofNanos(System.nanoTime() - start));
+    }
+}
@@ -0,0 +1,137 @@
+package com.traffic.repository;
+
+import com.traffic.domain.RollupResolution;
+import com.traffic.domain.TrafficRollup;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.traffic.repository.JdbcSupport.instant;
+import static com.traffic.repository.JdbcSupport.utc;
+
+@Repository
+@RequiredArgsConstructor
+public class RollupRepository {
+
+    private static final String MERGE_COLUMNS =
+            "sample_count = target.sample_count + EXCLUDED.sample_count, " +
+            "vehicle_count = target.vehicle_count + EXCLUDED.vehicle_count, " +
+            "occupancy_samples = target.occupancy_samples + EXCLUDED.occupancy_samples, " +
+            "occupancy_sum = target.occupancy_sum + EXCLUDED.occupancy_sum, " +
+            "occupancy_min = LEAST(target.occupancy_min, EXCLUDED.occupancy_min), " +
+            "occupancy_max = GREATEST(target.occupancy_max, EXCLUDED.occupancy_max)";
+
+    private static final String UPSERT_DETECTOR =
+            "INSERT INTO detector_rollups AS target (controller_id, detector_id, resolution, bucket_start, " +
+            "sample_count, vehicle_count, occupancy_samples, occupancy_sum, occupancy_min, occupancy_max) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (controller_id, detector_id, resolution, bucket_start) DO UPDATE SET " + MERGE_COLUMNS;
+
+    private static final String UPSERT_CONTROLLER =
+            "INSERT INTO controller_rollups AS target (controller_id, resolution, bucket_start, " +
+            "sample_count, vehicle_count, occupancy_samples, occupancy_sum, occupancy_min, occupancy_max) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (controller_id, resolution, bucket_start) DO UPDATE SET " + MERGE_COLUMNS;
+
+    private static final String SELECT_COLUMNS =
+            "resolution, bucket_start, sample_count, vehicle_count, occupancy_min, occupancy_max, " +
+            "ROUND(occupancy_sum / NULLIF(occupancy_samples, 0), 4) AS occupancy_avg";
+
+    // Upserts take row locks; a fixed order keeps concurrent writers from deadlocking on each other.
+    private static final Comparator<RollupDelta> LOCK_ORDER = Comparator
+            .comparing(RollupDelta::controllerId)
+            .thenComparing(RollupDelta::detectorId, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(RollupDelta::resolution)
+            .thenComparing(RollupDelta::bucketStart);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void upsert(List<RollupDelta> deltas) {
+        List<RollupDelta> detectorDeltas = deltas.stream()
+                .filter(d -> d.detectorId() != null)
+                .sorted(LOCK_ORDER)
+                .toList();
+        List<RollupDelta> controllerDeltas = deltas.stream()
+                .filter(d -> d.detectorId() == null)
+                .sorted(LOCK_ORDER)
+                .toList();
+
+        jdbcTemplate.batchUpdate(UPSERT_DETECTOR, detectorDeltas, detectorDeltas.size(), (ps, d) -> {
+            ps.setString(1, d.controllerId());
+            ps.setInt(2, d.detectorId());
+            bindMeasures(ps, 3, d);
+        });
+        jdbcTemplate.batchUpdate(UPSERT_CONTROLLER, controllerDeltas, controllerDeltas.size(), (ps, d) -> {
+            ps.setString(1, d.controllerId());
+            bindMeasures(ps, 2, d);
+        });
+    }
+
+    public List<TrafficRollup> findDetectorRollups(String controllerId, int detectorId,
+                                                   RollupResolution resolution, Instant from, Instant to) {
+        return jdbcTemplate.query(
+                "SELECT controller_id, detector_id, " + SELECT_COLUMNS + " FROM detector_rollups " +
+                "WHERE controller_id = ? AND detector_id = ? AND resolution = ? " +
+                "AND bucket_start >= ? AND bucket_start < ? ORDER BY bucket_start",
+                rollupMapper(true), controllerId, detectorId, resolution.getCode(), utc(from), utc(to));
+    }
+
+    public List<TrafficRollup> findControllerRollups(String controllerId, RollupResolution resolution,
+                                                     Instant from, Instant to) {
+        return jdbcTemplate.query(
+                "SELECT controller_id, " + SELECT_COLUMNS + " FROM controller_rollups " +
+                "WHERE controller_id = ? AND resolution = ? " +
+                "AND bucket_start >= ? AND bucket_start < ? ORDER BY bucket_start",
+                rollupMapper(false), controllerId, resolution.getCode(), utc(from), utc(to));
+    }
+
+    private static void bindMeasures(PreparedStatement ps, int index, RollupDelta d) throws SQLException {
+        ps.setString(index++, d.resolution().getCode());
+        ps.setObject(index++, utc(d.bucketStart()));
+        ps.setInt(index++, d.sampleCount());
+        ps.setLong(index++, d.vehicleCount());
+        ps.setInt(index++, d.occupancySamples());
+        ps.setBigDecimal(index++, d.occupancySum());
+        ps.setBigDecimal(index++, d.occupancyMin());
+        ps.setBigDecimal(index, d.occupancyMax());
+    }
+
+    private static RowMapper<TrafficRollup> rollupMapper(boolean perDetector) {
+        return (rs, rowNum) -> TrafficRollup.builder()
+                .controllerId(rs.getString("controller_id"))
+                .detectorId(perDetector ? rs.getInt("detector_id") : null)
+                .resolution(rs.getString("resolution"))
+                .bucketStart(instant(rs, "bucket_start"))
+                .sampleCount(rs.getInt("sample_count"))
+                .vehicleCount(rs.getLong("vehicle_count"))
+                .occupancyMin(rs.getBigDecimal("occupancy_min"))
+                .occupancyMax(rs.getBigDecimal("occupancy_max"))
+                .occupancyAvg(rs.getBigDecimal("occupancy_avg"))
+                .build();
+    }
+
+    /**
+     * Contribution of one batch of readings to a single bucket; {@code detectorId} is
+     * {@code null} for the controller-wide rollup.
+     */
+    public record RollupDelta(
+            String controllerId,
+            Integer detectorId,
+            RollupResolution resolution,
+            Instant bucketStart,
+            int sampleCount,
+            long vehicleCount,
+            int occupancySamples,
+            BigDecimal occupancySum,
+            BigDecimal occupancyMin,
+            BigDecimal occupancyMax) {
+    }
+}
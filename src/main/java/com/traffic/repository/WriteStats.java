@@ -0,0 +1,15 @@
+package com.traffic.repository;
+
+import java.time.Duration;
+
+public record WriteStats(int statusRows, int extendedStatusRows, int readingRows, Duration duration) {
+
+    public int totalRows() {
+        return statusRows + extendedStatusRows + readingRows;
+    }
+
+    public double rowsPerSecond() {
+        long nanos = duration.toNanos();
+        return nanos == 0 ? 0 : totalRows() * 1_000_000_000d / nanos;
+    }
+}
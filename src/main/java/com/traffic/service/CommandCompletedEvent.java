@@ -0,0 +1,6 @@
+package com.traffic.service;
+
+import com.traffic.domain.CommandStatus;
+
+public record CommandCompletedEvent(String controllerId, Long executionId, CommandStatus status) {
+}
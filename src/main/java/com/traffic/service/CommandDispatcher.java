@@ -0,0 +1,158 @@
+package com.traffic.service;
+
+import com.traffic.adapter.AsyncProtocolAdapter;
+import com.traffic.adapter.Futures;
+import com.traffic.adapter.ProtocolAdapter;
+import com.traffic.adapter.ResilientProtocolAdapter.CallNotPermittedException;
+import com.traffic.adapter.dto.CommandResultDto;
+import com.traffic.config.ClusterConfig;
+import com.traffic.config.DeviceConfig;
+import com.traffic.domain.CommandExecution;
+import com.traffic.domain.CommandStatus;
+import com.traffic.repository.CommandExecutionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Sends accepted commands to their controllers off the request thread. Commands for the same
+ * controller run strictly one after another in the order they were dispatched; different
+ * controllers run in parallel. A command the device has not confirmed within
+ * {@code device.command-timeout-ms} is recorded as {@link CommandStatus#TIMED_OUT}, but the next
+ * command of its controller is only sent once the device or the adapter has settled the call;
+ * results are recorded on virtual threads.
+ */
+@Component
+@Slf4j
+public class CommandDispatcher {
+
+    private final AsyncProtocolAdapter protocolAdapter;
+    private final DeviceConfig deviceConfig;
+    private final CommandExecutionRepository commandExecutionRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ShardLeaseManager shardLeaseManager;
+    private final ClusterConfig clusterConfig;
+
+    private final ExecutorService executor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("command-dispatch-", 0).factory());
+
+    /** Last queued command per controller; the next one is chained behind it. */
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    private final Instant startedAt = Instant.now();
+
+    public CommandDispatcher(ProtocolAdapter protocolAdapter, DeviceConfig deviceConfig,
+                             CommandExecutionRepository commandExecutionRepository,
+                             ApplicationEventPublisher eventPublisher, ShardLeaseManager shardLeaseManager,
+                             ClusterConfig clusterConfig) {
+        this.protocolAdapter = AsyncProtocolAdapter.of(protocolAdapter);
+        this.deviceConfig = deviceConfig;
+        this.commandExecutionRepository = commandExecutionRepository;
+        this.eventPublisher = eventPublisher;
+        this.shardLeaseManager = shardLeaseManager;
+        this.clusterConfig = clusterConfig;
+    }
+
+    /** Recorded as {@code dispatched_by} of the commands this instance accepts. */
+    public String getInstanceId() {
+        return shardLeaseManager.getInstanceId();
+    }
+
+    /**
+     * Queues a persisted {@link CommandStatus#PENDING} execution. Must be called after the row is
+     * committed, otherwise the completion update may not find it.
+     */
+    public CompletableFuture<Void> dispatch(CommandExecution execution) {
+        String controllerId = execution.getControllerId();
+        CompletableFuture<Void> settled = new CompletableFuture<>();
+        CompletableFuture<Void> previous = tails.put(controllerId, settled);
+        settled.whenComplete((result, error) -> tails.remove(controllerId, settled));
+
+        return (previous != null ? previous : CompletableFuture.<Void>completedFuture(null))
+                .thenCompose(ignored -> {
+                    CompletableFuture<CommandResultDto> call = send(execution);
+                    // A command that timed out may still be on the wire, so the next one waits for
+                    // the device (or the adapter's own timeout) rather than for the command timeout
+                    call.whenComplete((result, error) -> settled.complete(null));
+                    return call.copy().orTimeout(deviceConfig.getCommandTimeoutMs(), MILLISECONDS);
+                })
+                .handleAsync((result, error) -> {
+                    record(execution, result, error);
+                    return null;
+                }, executor);
+    }
+
+    /**
+     * Commands still pending whose dispatching instance is gone were lost with its queue: this
+     * instance's own from before it started, and those of instances that have had no membership
+     * heartbeat for {@code cluster.lease-ttl-ms}. Commands of live instances are left alone, as they
+     * may still be on the wire. Lost commands are failed rather than re-sent, since the device may
+     * already have applied them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${cluster.heartbeat-interval-ms}")
+    public void failAbandonedCommands() {
+        long ttlMs = clusterConfig.getLeaseTtlMs();
+        Instant now = Instant.now();
+        // A new instance may accept commands before its first heartbeat is visible
+        int abandoned = commandExecutionRepository.failPendingOfLostInstances(
+                getInstanceId(), startedAt, now.minusMillis(ttlMs), ttlMs, now);
+        if (abandoned > 0) {
+            log.warn("Marked {} commands left pending by stopped instances as failed", abandoned);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private CompletableFuture<CommandResultDto> send(CommandExecution execution) {
+        try {
+            return protocolAdapter.sendCommandAsync(execution.getControllerId(), execution.getCommand(),
+                    execution.getValue());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void record(CommandExecution execution, CommandResultDto result, Throwable error) {
+        Throwable failure = error != null ? Futures.unwrap(error) : null;
+        CommandStatus status = failure instanceof TimeoutException ? CommandStatus.TIMED_OUT
+                : failure == null && result.isSuccess() ? CommandStatus.SUCCEEDED
+                : CommandStatus.FAILED;
+        // Whether a command that timed out was applied is unknown
+        Boolean success = status != CommandStatus.TIMED_OUT ? status == CommandStatus.SUCCEEDED : null;
+        if (failure instanceof CallNotPermittedException) {
+            log.warn("Command {} not sent: {}", execution.getId(), failure.getMessage());
+        } else if (failure instanceof TimeoutException) {
+            log.warn("Command {} to controller {} not confirmed within {} ms",
+                    execution.getId(), execution.getControllerId(), deviceConfig.getCommandTimeoutMs());
+        } else if (failure != null) {
+            log.error("Error sending command {} to controller {}", execution.getId(), execution.getControllerId(), failure);
+        }
+
+        try {
+            if (commandExecutionRepository.complete(execution.getId(), status, success, Instant.now()) == 0) {
+                log.warn("Command {} was already given up; its result {} is not recorded", execution.getId(), status);
+                return;
+            }
+        } catch (Exception e) {
+            log.error("Error recording result of command {}", execution.getId(), e);
+        }
+        eventPublisher.publishEvent(new CommandCompletedEvent(execution.getControllerId(), execution.getId(), status));
+    }
+}
@@ -0,0 +1,218 @@
+package com.traffic.service;
+
+import com.traffic.adapter.AsyncProtocolAdapter;
+import com.traffic.adapter.Futures;
+import com.traffic.adapter.ProtocolAdapter;
+import com.traffic.adapter.ProtocolAdapter.SnapshotResult;
+import com.traffic.adapter.ResilientProtocolAdapter.CallNotPermittedException;
+import com.traffic.adapter.dto.ControllerSnapshotDto;
+import com.traffic.config.IngestionConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Polls controllers concurrently through {@link AsyncProtocolAdapter}, without a thread per controller.
+ * <p>
+ * At most {@code ingestion.max-concurrency} controllers are talked to at once, each call is given up
+ * after {@code ingestion.controller-timeout-ms}, and whatever has not answered when
+ * {@code ingestion.cycle-budget-ms} runs out is cancelled and left out of the result. With
+ * {@code ingestion.hedge-delay-ms} set, a read still unanswered after that delay is sent once more
+ * and the slower of the two is cancelled.
+ * <p>
+ * Adapters with batch reads ({@link ProtocolAdapter#maxBatchSize()} above 1) are handed groups of
+ * controllers instead; a group then counts as one controller towards these limits.
+ */
+@Component
+@Slf4j
+public class ControllerPoller {
+
+    private final AsyncProtocolAdapter protocolAdapter;
+    private final int batchSize;
+    private final IngestionConfig ingestionConfig;
+    private final Permits permits;
+    private final Set<CompletableFuture<?>> polling = ConcurrentHashMap.newKeySet();
+
+    public ControllerPoller(ProtocolAdapter protocolAdapter, IngestionConfig ingestionConfig) {
+        this.protocolAdapter = AsyncProtocolAdapter.of(protocolAdapter);
+        this.batchSize = Math.max(1, protocolAdapter.maxBatchSize());
+        this.ingestionConfig = ingestionConfig;
+        this.permits = new Permits(ingestionConfig.getMaxConcurrency());
+    }
+
+    public List<PollResult> pollAll(List<String> controllerIds) {
+        long cycleDeadline = System.nanoTime() + MILLISECONDS.toNanos(ingestionConfig.getCycleBudgetMs());
+
+        Map<List<String>, CompletableFuture<List<PollResult>>> inFlight = new LinkedHashMap<>();
+        for (int from = 0; from < controllerIds.size(); from += batchSize) {
+            List<String> batch = controllerIds.subList(from, Math.min(from + batchSize, controllerIds.size()));
+            inFlight.put(batch, poll(batch));
+        }
+
+        try {
+            CompletableFuture.allOf(inFlight.values().toArray(CompletableFuture[]::new))
+                    .get(Math.max(0, cycleDeadline - System.nanoTime()), NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Whatever is still open is cancelled below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<PollResult> results = new ArrayList<>(controllerIds.size());
+        inFlight.forEach((batch, poll) -> {
+            if (poll.isDone() && !poll.isCompletedExceptionally()) {
+                results.addAll(poll.join());
+            } else if (poll.cancel(false)) {
+                log.warn("Cycle budget of {} ms exhausted before {} answered",
+                        ingestionConfig.getCycleBudgetMs(), describe(batch));
+            }
+        });
+        return results;
+    }
+
+    /** Completes with the controllers of the batch that answered; failures are logged, never thrown. */
+    private CompletableFuture<List<PollResult>> poll(List<String> batch) {
+        CompletableFuture<List<PollResult>> poll = new CompletableFuture<>();
+        polling.add(poll);
+        poll.whenComplete((results, error) -> polling.remove(poll));
+
+        CompletableFuture<Void> permit = permits.acquire();
+        Futures.linkCancellation(poll, permit);
+        permit.thenRun(() -> {
+            CompletableFuture<List<SnapshotResult>> read;
+            try {
+                read = Futures.hedged(() -> read(batch), ingestionConfig.getHedgeDelayMs())
+                        .orTimeout(ingestionConfig.getControllerTimeoutMs(), MILLISECONDS);
+            } catch (RuntimeException e) {
+                read = CompletableFuture.failedFuture(e);
+            }
+            read.whenComplete((answered, error) -> {
+                permits.release();
+                poll.complete(error == null ? collect(answered) : failed(batch, error));
+            });
+            Futures.linkCancellation(poll, read);
+        });
+        return poll;
+    }
+
+    private CompletableFuture<List<SnapshotResult>> read(List<String> batch) {
+        if (batch.size() > 1) {
+            return protocolAdapter.readSnapshotsAsync(batch);
+        }
+        CompletableFuture<ControllerSnapshotDto> call = protocolAdapter.readSnapshotAsync(batch.getFirst());
+        return Futures.linkCancellation(call.thenApply(snapshot -> List.of(SnapshotResult.success(snapshot))), call);
+    }
+
+    private static List<PollResult> collect(List<SnapshotResult> answered) {
+        List<PollResult> polled = new ArrayList<>(answered.size());
+        for (SnapshotResult result : answered) {
+            if (result.succeeded()) {
+                polled.add(new PollResult(result.controllerId(), result.snapshot().getStatus(),
+                        result.snapshot().getReadings()));
+            } else {
+                logFailure("controller " + result.controllerId(), result.failure());
+            }
+        }
+        return polled;
+    }
+
+    private List<PollResult> failed(List<String> batch, Throwable error) {
+        Throwable failure = Futures.unwrap(error);
+        if (failure instanceof TimeoutException) {
+            failure = new TimeoutException("no answer within " + ingestionConfig.getControllerTimeoutMs() + " ms");
+        }
+        if (!(failure instanceof CancellationException)) {
+            logFailure(describe(batch), failure);
+        }
+        return List.of();
+    }
+
+    private static void logFailure(String controllers, Throwable failure) {
+        if (failure instanceof TimeoutException timeout) {
+            log.warn("Polling {} timed out: {}", controllers, timeout.getMessage());
+        } else if (failure instanceof CallNotPermittedException rejected) {
+            log.debug("Skipped polling {}: {}", controllers, rejected.getMessage());
+        } else {
+            log.error("Error polling {}", controllers, failure);
+        }
+    }
+
+    private static String describe(List<String> batch) {
+        return batch.size() == 1
+                ? "controller " + batch.getFirst()
+                : "batch of " + batch.size() + " controllers from " + batch.getFirst();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        List.copyOf(polling).forEach(poll -> poll.cancel(false));
+    }
+
+    /**
+     * A semaphore whose waiters are futures instead of threads. A released permit goes to the
+     * longest waiting caller; releases made while handing one over are passed on by the same loop,
+     * so calls that fail at once cannot pile up on the stack.
+     */
+    private static final class Permits {
+
+        private final ArrayDeque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+        private int available;
+        private boolean handingOver;
+
+        private Permits(int permits) {
+            this.available = permits;
+        }
+
+        private synchronized CompletableFuture<Void> acquire() {
+            if (available > 0) {
+                available--;
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> waiter = new CompletableFuture<>();
+            waiters.add(waiter);
+            return waiter;
+        }
+
+        private void release() {
+            synchronized (this) {
+                available++;
+                if (handingOver) {
+                    return;
+                }
+                handingOver = true;
+            }
+            while (true) {
+                CompletableFuture<Void> next;
+                synchronized (this) {
+                    if (available == 0 || waiters.isEmpty()) {
+                        handingOver = false;
+                        return;
+                    }
+                    available--;
+                    next = waiters.poll();
+                }
+                // A waiter cancelled in the meantime gives the permit straight back
+                if (!next.complete(null)) {
+                    synchronized (this) {
+                        available++;
+                    }
+                }
+            }
+        }
+    }
+}
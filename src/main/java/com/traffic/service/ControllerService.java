@@ -1,44 +1,91 @@
 package com.traffic.service;
 
-import com.traffic.adapter.ProtocolAdapter;
-import com.traffic.adapter.dto.CommandResultDto;
 import com.traffic.domain.CommandExecution;
+import com.traffic.domain.CommandStatus;
 import com.traffic.domain.ControllerStatus;
 import com.traffic.domain.DetectorReading;
+import com.traffic.domain.RollupResolution;
+import com.traffic.domain.TrafficRollup;
 import com.traffic.repository.CommandExecutionRepository;
 import com.traffic.repository.ControllerRepository;
 import com.traffic.repository.ControllerStatusRepository;
 import com.traffic.repository.DetectorReadingRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
 public class ControllerService {
 
-    private final ProtocolAdapter protocolAdapter;
+    /** Open end of a history range; also used by {@link DetectorExportService}. */
+    static final Instant END_OF_TIME = Instant.parse("9999-12-31T00:00:00Z");
+
     private final ControllerRepository controllerRepository;
     private final ControllerStatusRepository controllerStatusRepository;
     private final DetectorReadingRepository detectorReadingRepository;
     private final CommandExecutionRepository commandExecutionRepository;
+    private final LiveStateStore liveStateStore;
+    private final RecentReadingsStore recentReadingsStore;
+    private final DetectorHealthMonitor detectorHealthMonitor;
+    private final RollupService rollupService;
+    private final CommandDispatcher commandDispatcher;
+    private final ShardLeaseManager shardLeaseManager;
 
     public ControllerStatus getLatestStatus(String controllerId) {
+        LiveStateStore.LiveState live = liveStateStore.get(controllerId);
+        if (live != null) {
+            return live.status();
+        }
         validateController(controllerId);
-        return controllerStatusRepository.findTopByControllerIdOrderByFetchedAtDesc(controllerId)
+        return controllerStatusRepository.findTopByControllerIdOrderByValidFromDesc(controllerId)
                 .orElse(null);
     }
 
+    /**
+     * Status intervals overlapping {@code [from, to]}; each entry covers every poll between its
+     * {@code validFrom} and {@code validTo} that returned the same state.
+     */
+    public Page<ControllerStatus> getStatusHistory(String controllerId, Instant from, Instant to, Pageable pageable) {
+        validateController(controllerId);
+        return controllerStatusRepository.findOverlapping(
+                controllerId,
+                from != null ? from : Instant.EPOCH,
+                to != null ? to : END_OF_TIME,
+                pageable);
+    }
+
     public List<DetectorReading> getLatestDetectorReadings(String controllerId) {
+        LiveStateStore.LiveState live = liveStateStore.get(controllerId);
+        if (live != null) {
+            return live.readings();
+        }
         validateController(controllerId);
         return detectorReadingRepository.findLatestByControllerId(controllerId);
     }
 
+    /**
+     * Health of the controller's detectors as judged from the readings this instance ingested;
+     * empty until the controller has been polled. Only the instance polling the controller has it.
+     *
+     * @throws ControllerNotOwnedException if another instance polls the controller
+     */
+    public List<DetectorHealthMonitor.DetectorHealth> getDetectorHealth(String controllerId) {
+        validateController(controllerId);
+        if (!shardLeaseManager.owns(controllerId)) {
+            throw new ControllerNotOwnedException(controllerId, shardLeaseManager.ownerOf(controllerId));
+        }
+        return detectorHealthMonitor.getHealth(controllerId);
+    }
+
     public Page<DetectorReading> getDetectorReadingsHistory(
             String controllerId,
             Instant from,
@@ -46,28 +93,69 @@ public class ControllerService {
             Pageable pageable) {
         validateController(controllerId);
 
+        Pageable stable = withIdTiebreak(pageable);
         if (from != null && to != null) {
-            return detectorReadingRepository.findByControllerIdAndFetchedAtBetween(
-                    controllerId, from, to, pageable);
+            return recentReadingsStore.findPage(controllerId, from, to, stable)
+                    .orElseGet(() -> detectorReadingRepository.findByControllerIdAndFetchedAtBetween(
+                            controllerId, from, to, stable));
         }
-        return detectorReadingRepository.findByControllerId(controllerId, pageable);
+        return detectorReadingRepository.findByControllerId(controllerId, stable);
     }
 
-    @Transactional
-    public CommandExecution sendCommand(String controllerId, String command, String value) {
+    public CursorPage<DetectorReading> getDetectorReadingsHistoryPage(
+            String controllerId,
+            Instant from,
+            Instant to,
+            String cursor,
+            int size) {
+        validateController(controllerId);
+
+        Instant rangeStart = from != null ? from : Instant.EPOCH;
+        Instant rangeEnd = to != null ? to : END_OF_TIME;
+        HistoryCursor after = cursor != null
+                ? HistoryCursor.decode(cursor)
+                : new HistoryCursor(rangeStart, Long.MIN_VALUE);
+
+        List<DetectorReading> rows = detectorReadingRepository.findPageAfter(
+                controllerId, rangeStart, rangeEnd, after.timestamp(), after.id(), Limit.of(size + 1));
+        return toCursorPage(rows, size, r -> new HistoryCursor(r.getFetchedAt(), r.getId()));
+    }
+
+    public List<TrafficRollup> getDetectorRollups(
+            String controllerId,
+            Integer detectorId,
+            RollupResolution resolution,
+            Instant from,
+            Instant to) {
         validateController(controllerId);
+        return rollupService.getRollups(controllerId, detectorId, resolution, from, to);
+    }
 
-        CommandResultDto result = protocolAdapter.sendCommand(controllerId, command, value);
+    /**
+     * Records the command as {@link CommandStatus#PENDING} and hands it to the dispatcher; the
+     * returned execution is updated in the database once the controller has answered.
+     */
+    public CommandExecution sendCommand(String controllerId, String command, String value) {
+        validateController(controllerId);
 
-        CommandExecution execution = CommandExecution.builder()
+        CommandExecution execution = commandExecutionRepository.save(CommandExecution.builder()
                 .controllerId(controllerId)
                 .command(command)
-                .success(result.isSuccess())
+                .status(CommandStatus.PENDING)
                 .value(value)
-                .executedAt(result.getTimestamp())
-                .build();
+                .executedAt(Instant.now())
+                .dispatchedBy(commandDispatcher.getInstanceId())
+                .build());
 
-        return commandExecutionRepository.save(execution);
+        // save() has committed its own transaction, so the dispatcher can update the row
+        commandDispatcher.dispatch(execution);
+        return execution;
+    }
+
+    public CommandExecution getCommand(String controllerId, long executionId) {
+        validateController(controllerId);
+        return commandExecutionRepository.findByIdAndControllerId(executionId, controllerId)
+                .orElseThrow(() -> new CommandNotFoundException(controllerId, executionId));
     }
 
     public Page<CommandExecution> getCommandHistory(String controllerId, Pageable pageable) {
@@ -75,7 +163,44 @@ public class ControllerService {
         return commandExecutionRepository.findByControllerIdOrderByExecutedAtDesc(controllerId, pageable);
     }
 
-    private void validateController(String controllerId) {
+    public CursorPage<CommandExecution> getCommandHistoryPage(String controllerId, String cursor, int size) {
+        validateController(controllerId);
+
+        HistoryCursor before = cursor != null
+                ? HistoryCursor.decode(cursor)
+                : new HistoryCursor(END_OF_TIME, Long.MAX_VALUE);
+
+        List<CommandExecution> rows = commandExecutionRepository.findPageBefore(
+                controllerId, before.timestamp(), before.id(), Limit.of(size + 1));
+        return toCursorPage(rows, size, e -> new HistoryCursor(e.getExecutedAt(), e.getId()));
+    }
+
+    private static <T> CursorPage<T> toCursorPage(List<T> rows, int size, Function<T, HistoryCursor> position) {
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, rows.size(), null);
+        }
+        List<T> content = rows.subList(0, size);
+        return new CursorPage<>(content, size, position.apply(content.get(size - 1)).encode());
+    }
+
+    /**
+     * Appends {@code id} to a sort that lacks it, so readings sharing a timestamp keep one order across
+     * pages and come back the same from the database and from {@link RecentReadingsStore}.
+     */
+    private static Pageable withIdTiebreak(Pageable pageable) {
+        Sort sort = pageable.getSort();
+        if (pageable.isUnpaged() || sort.isUnsorted() || sort.getOrderFor("id") != null) {
+            return pageable;
+        }
+        Sort.Direction direction = sort.iterator().next().getDirection();
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort.and(Sort.by(direction, "id")));
+    }
+
+    public boolean controllerExists(String controllerId) {
+        return controllerRepository.existsById(controllerId);
+    }
+
+    public void validateController(String controllerId) {
         if (!controllerRepository.existsById(controllerId)) {
             throw new ControllerNotFoundException(controllerId);
         }
@@ -86,4 +211,24 @@ public class ControllerService {
             super("Controller not found: " + controllerId);
         }
     }
+
+    public static class CommandNotFoundException extends RuntimeException {
+        public CommandNotFoundException(String controllerId, long executionId) {
+            super("Command " + executionId + " not found for controller " + controllerId);
+        }
+    }
+
+    public static class ControllerNotOwnedException extends RuntimeException {
+        private final String owner;
+
+        public ControllerNotOwnedException(String controllerId, String owner) {
+            super("Controller " + controllerId + " is polled by " + (owner != null ? "instance " + owner : "no instance right now"));
+            this.owner = owner;
+        }
+
+        /** The instance polling the controller, or {@code null} while its shard is unowned. */
+        public String getOwner() {
+            return owner;
+        }
+    }
 }
@@ -0,0 +1,9 @@
+package com.traffic.service;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing. {@code nextCursor} is {@code null} on the last page.
+ */
+public record CursorPage<T>(List<T> content, int size, String nextCursor) {
+}
@@ -0,0 +1,111 @@
+package com.traffic.service;
+
+import com.traffic.domain.DetectorReading;
+import com.traffic.repository.DetectorReadingExportRepository;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Writes detector history straight from the database cursor to an output stream, one row at
+ * a time, so memory use does not depend on the size of the exported range.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DetectorExportService {
+
+    private static final String CSV_HEADER =
+            "id,controllerId,detectorId,detectorName,vehicleCount,occupancy,readingTimestamp,fetchedAt\n";
+
+    private final DetectorReadingExportRepository exportRepository;
+    private final JsonMapper jsonMapper;
+
+    public void export(String controllerId, Instant from, Instant to, ExportFormat format, OutputStream target)
+            throws IOException {
+        OutputStream out = new BufferedOutputStream(target, 64 * 1024);
+        ObjectWriter rowWriter = jsonMapper.writerFor(DetectorReading.class);
+        long start = System.nanoTime();
+
+        if (format == ExportFormat.CSV) {
+            out.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+        }
+        long rows = exportRepository.streamHistory(
+                controllerId,
+                from != null ? from : Instant.EPOCH,
+                to != null ? to : ControllerService.END_OF_TIME,
+                reading -> {
+                    try {
+                        if (format == ExportFormat.CSV) {
+                            out.write(toCsv(reading).getBytes(StandardCharsets.UTF_8));
+                        } else {
+                            out.write(rowWriter.writeValueAsBytes(reading));
+                            out.write('\n');
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        out.flush();
+
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        log.info("Exported {} detector readings of controller {} as {} in {} ms ({} rows/s)",
+                rows, controllerId, format, elapsed.toMillis(),
+                elapsed.isZero() ? rows : Math.round(rows * 1_000_000_000d / elapsed.toNanos()));
+    }
+
+    private static String toCsv(DetectorReading r) {
+        return r.getId() + "," +
+                csvField(r.getControllerId()) + "," +
+                nullToEmpty(r.getDetectorId()) + "," +
+                csvField(r.getDetectorName()) + "," +
+                nullToEmpty(r.getVehicleCount()) + "," +
+                nullToEmpty(r.getOccupancy()) + "," +
+                nullToEmpty(r.getReadingTimestamp()) + "," +
+                nullToEmpty(r.getFetchedAt()) + "\n";
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String nullToEmpty(Object value) {
+        return value != null ? value.toString() : "";
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum ExportFormat {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String fileExtension;
+
+        public static ExportFormat fromCode(String code) {
+            for (ExportFormat format : values()) {
+                if (format.name().equalsIgnoreCase(code)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unknown export format: " + code);
+        }
+    }
+}
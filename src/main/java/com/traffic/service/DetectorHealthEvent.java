@@ -0,0 +1,9 @@
+package com.traffic.service;
+
+import com.traffic.service.DetectorHealthMonitor.HealthStatus;
+
+import java.time.Instant;
+
+public record DetectorHealthEvent(String controllerId, int detectorId, HealthStatus previous, HealthStatus current,
+                                  Instant at) {
+}
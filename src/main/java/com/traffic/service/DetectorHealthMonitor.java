@@ -0,0 +1,254 @@
+package com.traffic.service;
+
+import com.traffic.config.DetectorHealthConfig;
+import com.traffic.domain.DetectorReading;
+import com.traffic.domain.OccupancyConverter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Judges every detector from its readings as they are ingested, without looking at history.
+ * <p>
+ * Each detector keeps a handful of numbers: an exponentially weighted moving mean and variance of
+ * its vehicle count, the length of its current zero-count streak, how many readings in a row had
+ * the same occupancy and how many had no values at all. Every reading updates them in constant
+ * time and memory. A detector is
+ * <ul>
+ *     <li>{@link HealthStatus#NO_DATA} after {@code missing-polls} readings without count and occupancy,</li>
+ *     <li>{@link HealthStatus#STUCK_ZERO} after {@code stuck-zero-polls} zero counts, if it counted
+ *     traffic before (a quiet road at night is not a broken loop),</li>
+ *     <li>{@link HealthStatus#FLATLINE} after {@code flatline-polls} identical non-zero occupancy values,</li>
+ *     <li>{@link HealthStatus#ANOMALOUS} while its count is more than {@code anomaly-threshold} standard
+ *     deviations from its moving mean, once it has {@code warmup-polls} readings.</li>
+ * </ul>
+ * Every change of a detector's status is published as a {@link DetectorHealthEvent}. State starts
+ * empty at startup and when a controller moves to another instance.
+ */
+@Component
+@Slf4j
+public class DetectorHealthMonitor {
+
+    private final DetectorHealthConfig config;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, ControllerHealth> controllers = new ConcurrentHashMap<>();
+    private final AtomicInteger unhealthy = new AtomicInteger();
+
+    public DetectorHealthMonitor(DetectorHealthConfig config, ApplicationEventPublisher eventPublisher,
+                                 MeterRegistry meterRegistry) {
+        this.config = config;
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("detector.health.unhealthy", unhealthy, AtomicInteger::get)
+                .description("Detectors whose status is not OK")
+                .register(meterRegistry);
+    }
+
+    /** Feeds one poll of a controller's detectors into their statistics. */
+    public void observe(String controllerId, List<DetectorReading> readings, Instant fetchedAt) {
+        if (!config.isEnabled() || readings.isEmpty()) {
+            return;
+        }
+        List<DetectorHealthEvent> events = controllers.computeIfAbsent(controllerId, ControllerHealth::new)
+                .observe(readings, fetchedAt);
+        for (DetectorHealthEvent event : events) {
+            if (event.current() == HealthStatus.OK) {
+                log.info("Detector {} of controller {} is healthy again after {}",
+                        event.detectorId(), controllerId, event.previous());
+            } else {
+                log.warn("Detector {} of controller {} is {}", event.detectorId(), controllerId, event.current());
+            }
+            Counter.builder("detector.health.events")
+                    .tag("status", event.current().name())
+                    .register(meterRegistry)
+                    .increment();
+            eventPublisher.publishEvent(event);
+        }
+    }
+
+    /** Current health of every detector of the controller seen since startup, ordered by detector id. */
+    public List<DetectorHealth> getHealth(String controllerId) {
+        ControllerHealth health = controllers.get(controllerId);
+        return health != null ? health.snapshot() : List.of();
+    }
+
+    public void removeIf(Predicate<String> controllerId) {
+        controllers.entrySet().removeIf(entry -> controllerId.test(entry.getKey()) && entry.getValue().discard());
+    }
+
+    public enum HealthStatus {
+        OK,
+        ANOMALOUS,
+        FLATLINE,
+        STUCK_ZERO,
+        NO_DATA
+    }
+
+    public record DetectorHealth(int detectorId, String detectorName, HealthStatus status, Instant since,
+                                 Instant lastSeen, long samples, double vehicleCountMean,
+                                 double vehicleCountStdDev, Integer lastVehicleCount, BigDecimal lastOccupancy,
+                                 double deviation, int zeroCountStreak, int unchangedOccupancyStreak) {
+    }
+
+    private final class ControllerHealth {
+
+        private final String controllerId;
+        private final Map<Integer, DetectorStats> detectors = new TreeMap<>();
+        private boolean discarded;
+
+        private ControllerHealth(String controllerId) {
+            this.controllerId = controllerId;
+        }
+
+        private synchronized List<DetectorHealthEvent> observe(List<DetectorReading> readings, Instant fetchedAt) {
+            List<DetectorHealthEvent> events = new ArrayList<>(0);
+            // A poll racing removeIf may still hold this instance; its changes would never be undone
+            if (discarded) {
+                return events;
+            }
+            for (DetectorReading reading : readings) {
+                int detectorId = reading.getDetectorId() != null ? reading.getDetectorId() : 0;
+                DetectorStats stats = detectors.computeIfAbsent(detectorId, id -> new DetectorStats(id, fetchedAt));
+                // A late poll overlapping a newer one would count its readings twice
+                if (stats.lastSeen != null && !fetchedAt.isAfter(stats.lastSeen)) {
+                    continue;
+                }
+                HealthStatus previous = stats.status;
+                stats.add(reading, fetchedAt);
+                if (stats.status != previous) {
+                    // Adjusted under the lock, so discard() subtracts exactly what was added
+                    if (stats.status == HealthStatus.OK) {
+                        unhealthy.decrementAndGet();
+                    } else if (previous == HealthStatus.OK) {
+                        unhealthy.incrementAndGet();
+                    }
+                    events.add(new DetectorHealthEvent(controllerId, detectorId, previous, stats.status, fetchedAt));
+                }
+            }
+            return events;
+        }
+
+        private synchronized List<DetectorHealth> snapshot() {
+            return detectors.values().stream().map(DetectorStats::snapshot).toList();
+        }
+
+        /** Takes this controller's detectors out of the unhealthy gauge; always true, for removeIf. */
+        private synchronized boolean discard() {
+            discarded = true;
+            unhealthy.addAndGet(-(int) detectors.values().stream().filter(stats -> stats.status != HealthStatus.OK).count());
+            return true;
+        }
+    }
+
+    /** Running statistics of one detector; guarded by its {@link ControllerHealth}. */
+    private final class DetectorStats {
+
+        private static final int NO_OCCUPANCY = -1;
+
+        private final int detectorId;
+        private String name;
+        private HealthStatus status = HealthStatus.OK;
+        private Instant since;
+        private Instant lastSeen;
+
+        private long samples;
+        private double mean;
+        private double variance;
+        private double deviation;
+        private Integer lastCount;
+        private int zeroStreak;
+        private double meanBeforeZeros;
+        private int lastOccupancy = NO_OCCUPANCY;
+        private int sameOccupancyStreak;
+        private int missingStreak;
+
+        private DetectorStats(int detectorId, Instant since) {
+            this.detectorId = detectorId;
+            this.since = since;
+        }
+
+        private void add(DetectorReading reading, Instant fetchedAt) {
+            name = reading.getDetectorName();
+            lastSeen = fetchedAt;
+            Integer count = reading.getVehicleCount();
+            Short occupancy = OccupancyConverter.toBasisPoints(reading.getOccupancy());
+
+            missingStreak = count == null && occupancy == null ? missingStreak + 1 : 0;
+            deviation = 0;
+            if (count != null) {
+                addCount(count);
+            }
+            if (occupancy != null) {
+                sameOccupancyStreak = occupancy == 0 ? 0 : occupancy == lastOccupancy ? sameOccupancyStreak + 1 : 1;
+                lastOccupancy = occupancy;
+            }
+
+            HealthStatus next = judge();
+            if (next != status) {
+                status = next;
+                since = fetchedAt;
+            }
+        }
+
+        private void addCount(int count) {
+            // Judged against the statistics before this reading, so a spike cannot hide itself
+            if (samples >= config.getWarmupPolls()) {
+                deviation = (count - mean) / Math.max(Math.sqrt(variance), 1.0);
+            }
+            if (count == 0) {
+                if (zeroStreak++ == 0) {
+                    meanBeforeZeros = mean;
+                }
+            } else {
+                zeroStreak = 0;
+            }
+            if (samples == 0) {
+                mean = count;
+            } else {
+                // Incremental exponentially weighted mean and variance (Finch, 2009)
+                double difference = count - mean;
+                double increment = config.getSmoothing() * difference;
+                mean += increment;
+                variance = (1 - config.getSmoothing()) * (variance + difference * increment);
+            }
+            samples++;
+            lastCount = count;
+        }
+
+        private HealthStatus judge() {
+            if (missingStreak >= config.getMissingPolls()) {
+                return HealthStatus.NO_DATA;
+            }
+            if (zeroStreak >= config.getStuckZeroPolls() && meanBeforeZeros >= config.getMinActiveMean()) {
+                return HealthStatus.STUCK_ZERO;
+            }
+            if (sameOccupancyStreak >= config.getFlatlinePolls()) {
+                return HealthStatus.FLATLINE;
+            }
+            if (Math.abs(deviation) >= config.getAnomalyThreshold()) {
+                return HealthStatus.ANOMALOUS;
+            }
+            return HealthStatus.OK;
+        }
+
+        private DetectorHealth snapshot() {
+            return new DetectorHealth(detectorId, name, status, since, lastSeen, samples, mean, Math.sqrt(variance),
+                    lastCount, lastOccupancy != NO_OCCUPANCY ? OccupancyConverter.fromBasisPoints((short) lastOccupancy) : null,
+                    deviation, zeroStreak, sameOccupancyStreak);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.traffic.service;
+
+import com.traffic.domain.ControllerStatus;
+import com.traffic.domain.DetectorReading;
+import com.traffic.repository.ControllerRepository;
+import com.traffic.repository.FleetSnapshotRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Latest status and detector readings for many controllers in one response. Controllers are
+ * handled in chunks of {@value #CHUNK_SIZE}: live state is used where ingestion has it, the rest
+ * is loaded with one set-based query per chunk, and each chunk is written out before the next
+ * is loaded, so memory stays flat however large the fleet is.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FleetSnapshotService {
+
+    static final int CHUNK_SIZE = 500;
+
+    private final ControllerRepository controllerRepository;
+    private final FleetSnapshotRepository fleetSnapshotRepository;
+    private final LiveStateStore liveStateStore;
+    private final JsonMapper jsonMapper;
+
+    /**
+     * Registered controllers matching the request: the given ids, every controller of a zone,
+     * or the whole fleet when neither is given. Unknown ids are left out.
+     */
+    public List<String> resolveControllerIds(Collection<String> ids, String zone) {
+        return ids != null && !ids.isEmpty()
+                ? controllerRepository.findIdsInZone(ids, zone)
+                : controllerRepository.findIdsInZone(zone);
+    }
+
+    public void writeSnapshot(List<String> controllerIds, OutputStream out) {
+        long start = System.nanoTime();
+        int fromDatabase = 0;
+
+        try (JsonGenerator generator = jsonMapper.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeNumberProperty("count", controllerIds.size());
+            generator.writeName("controllers");
+            generator.writeStartArray();
+
+            for (int from = 0; from < controllerIds.size(); from += CHUNK_SIZE) {
+                List<String> chunk = controllerIds.subList(from, Math.min(from + CHUNK_SIZE, controllerIds.size()));
+
+                List<String> missing = new ArrayList<>();
+                for (String id : chunk) {
+                    if (liveStateStore.get(id) == null) {
+                        missing.add(id);
+                    }
+                }
+                Map<String, ControllerStatus> statuses = missing.isEmpty()
+                        ? Map.of() : fleetSnapshotRepository.findLatestStatuses(missing);
+                Map<String, List<DetectorReading>> readings = missing.isEmpty()
+                        ? Map.of() : fleetSnapshotRepository.findLatestReadings(missing);
+                fromDatabase += missing.size();
+
+                for (String id : chunk) {
+                    LiveStateStore.LiveState live = liveStateStore.get(id);
+                    ControllerSnapshot snapshot = live != null
+                            ? new ControllerSnapshot(id, live.status(), live.readings())
+                            : new ControllerSnapshot(id, statuses.get(id), readings.getOrDefault(id, List.of()));
+                    jsonMapper.writeValue(generator, snapshot);
+                }
+                generator.flush();
+            }
+
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+
+        log.debug("Wrote snapshot of {} controllers ({} from database) in {} ms",
+                controllerIds.size(), fromDatabase, Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    public record ControllerSnapshot(String controllerId, ControllerStatus status, List<DetectorReading> readings) {
+    }
+}
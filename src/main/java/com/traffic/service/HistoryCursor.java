@@ -0,0 +1,37 @@
+package com.traffic.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Position in a history listing: the timestamp and id of the last row of the previous page.
+ * Serialized as an opaque URL-safe token so clients cannot depend on its layout.
+ */
+public record HistoryCursor(Instant timestamp, long id) {
+
+    public String encode() {
+        String raw = timestamp.getEpochSecond() + "." + timestamp.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static HistoryCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int dot = raw.indexOf('.');
+            int colon = raw.indexOf(':');
+            Instant timestamp = Instant.ofEpochSecond(
+                    Long.parseLong(raw.substring(0, dot)),
+                    Long.parseLong(raw.substring(dot + 1, colon)));
+            return new HistoryCursor(timestamp, Long.parseLong(raw.substring(colon + 1)));
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException(token);
+        }
+    }
+
+    public static class InvalidCursorException extends RuntimeException {
+        public InvalidCursorException(String token) {
+            super("Invalid cursor: " + token);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.traffic.service;
+
+import com.traffic.config.IngestionConfig;
+import com.traffic.repository.WriteStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Meters of the ingestion cycle, one sample per {@link IngestionService#pollControllers(List)} call.
+ * <p>
+ * The cycle is split into {@code poll} (waiting for controllers) and {@code mapping} (DTOs to
+ * entities and interval tracking). {@code persistence} is timed per write of
+ * {@link WriteBehindPipeline}, which may cover several cycles. A cycle that takes longer than the
+ * shortest polling interval among its controllers counts as an overrun: those controllers are
+ * already due again when it ends.
+ */
+@Component
+public class IngestionMetrics {
+
+    private final IngestionConfig ingestionConfig;
+
+    private final Timer cycle;
+    private final Timer poll;
+    private final Timer mapping;
+    private final Timer persistence;
+    private final Counter overruns;
+    private final DistributionSummary controllersPolled;
+    private final DistributionSummary controllersAnswered;
+    private final DistributionSummary statusRowsOpened;
+    private final DistributionSummary statusRowsExtended;
+    private final DistributionSummary readingRows;
+    private final Counter droppedReadings;
+    private final MeterRegistry meterRegistry;
+
+    public IngestionMetrics(MeterRegistry meterRegistry, IngestionConfig ingestionConfig) {
+        this.ingestionConfig = ingestionConfig;
+        this.meterRegistry = meterRegistry;
+        this.cycle = phase(meterRegistry, "total");
+        this.poll = phase(meterRegistry, "poll");
+        this.mapping = phase(meterRegistry, "mapping");
+        this.persistence = phase(meterRegistry, "persistence");
+        this.overruns = Counter.builder("ingestion.cycle.overruns")
+                .description("Cycles that took longer than the polling interval of their controllers")
+                .register(meterRegistry);
+        this.controllersPolled = DistributionSummary.builder("ingestion.cycle.controllers")
+                .tag("result", "polled")
+                .register(meterRegistry);
+        this.controllersAnswered = DistributionSummary.builder("ingestion.cycle.controllers")
+                .tag("result", "answered")
+                .register(meterRegistry);
+        this.statusRowsOpened = rows(meterRegistry, "controller_status", "insert");
+        this.statusRowsExtended = rows(meterRegistry, "controller_status", "update");
+        this.readingRows = rows(meterRegistry, "detector_readings", "insert");
+        this.droppedReadings = Counter.builder("ingestion.readings.dropped")
+                .description("Readings dropped because the database writers were too far behind")
+                .register(meterRegistry);
+        TimeGauge.builder("ingestion.polling.interval", ingestionConfig, MILLISECONDS,
+                        IngestionConfig::getPollingIntervalMs)
+                .description("Default polling interval, to compare cycle durations against")
+                .register(meterRegistry);
+    }
+
+    public void recordPoll(long nanos) {
+        poll.record(nanos, NANOSECONDS);
+    }
+
+    public void recordMapping(long nanos) {
+        mapping.record(nanos, NANOSECONDS);
+    }
+
+    public void recordWrite(WriteStats stats, long nanos) {
+        persistence.record(nanos, NANOSECONDS);
+        statusRowsOpened.record(stats.statusRows());
+        statusRowsExtended.record(stats.extendedStatusRows());
+        readingRows.record(stats.readingRows());
+    }
+
+    public void recordDroppedReadings(int readings) {
+        droppedReadings.increment(readings);
+    }
+
+    public <T> void monitorWriteQueue(T pipeline, ToDoubleFunction<T> queuedCycles) {
+        Gauge.builder("ingestion.write.queue", pipeline, queuedCycles)
+                .description("Poll cycles waiting to be written")
+                .register(meterRegistry);
+    }
+
+    public void recordCycle(List<String> controllerIds, int answered, long nanos) {
+        cycle.record(nanos, NANOSECONDS);
+        controllersPolled.record(controllerIds.size());
+        controllersAnswered.record(answered);
+
+        long shortestInterval = Long.MAX_VALUE;
+        for (String controllerId : controllerIds) {
+            shortestInterval = Math.min(shortestInterval, ingestionConfig.pollingIntervalFor(controllerId));
+        }
+        if (NANOSECONDS.toMillis(nanos) > shortestInterval) {
+            overruns.increment();
+        }
+    }
+
+    private static Timer phase(MeterRegistry meterRegistry, String phase) {
+        return Timer.builder("ingestion.cycle")
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static DistributionSummary rows(MeterRegistry meterRegistry, String table, String operation) {
+        return DistributionSummary.builder("ingestion.rows.written")
+                .description("Rows written per write")
+                .baseUnit("rows")
+                .tag("table", table)
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+}
@@ -1,23 +1,20 @@
 package com.traffic.service;
 
-import com.traffic.adapter.ProtocolAdapter;
 import com.traffic.adapter.dto.ControllerStatusDto;
 import com.traffic.adapter.dto.DetectorReadingsDto;
 import com.traffic.config.ControllersConfig;
-import com.traffic.domain.Controller;
 import com.traffic.domain.ControllerStatus;
 import com.traffic.domain.DetectorReading;
 import com.traffic.repository.ControllerRepository;
-import com.traffic.repository.ControllerStatusRepository;
-import com.traffic.repository.DetectorReadingRepository;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -25,63 +22,98 @@ import java.util.List;
 @Slf4j
 public class IngestionService {
 
-    private final ProtocolAdapter protocolAdapter;
+    private final ControllerPoller controllerPoller;
     private final ControllersConfig controllersConfig;
     private final ControllerRepository controllerRepository;
-    private final ControllerStatusRepository controllerStatusRepository;
-    private final DetectorReadingRepository detectorReadingRepository;
+    private final WriteBehindPipeline writeBehindPipeline;
+    private final LiveStateStore liveStateStore;
+    private final StatusIntervalTracker statusIntervalTracker;
+    private final LiveUpdateBroadcaster liveUpdateBroadcaster;
+    private final DetectorHealthMonitor detectorHealthMonitor;
+    private final IngestionMetrics ingestionMetrics;
 
+    /** Runs on every instance at startup; each insert is its own transaction. */
     @PostConstruct
-    @Transactional
     public void registerControllers() {
         List<String> controllerIds = controllersConfig.getIds();
         log.info("Registering {} controllers", controllerIds.size());
 
+        Instant registeredAt = Instant.now();
         for (String controllerId : controllerIds) {
-            if (!controllerRepository.existsById(controllerId)) {
-                Controller controller = Controller.builder()
-                        .id(controllerId)
-                        .registeredAt(Instant.now())
-                        .build();
-                controllerRepository.save(controller);
+            if (controllerRepository.registerIfAbsent(controllerId, registeredAt) > 0) {
                 log.info("Registered controller: {}", controllerId);
             }
         }
     }
 
-    @Scheduled(fixedRateString = "${ingestion.polling-interval-ms}")
-    @Transactional
+    /**
+     * Polls every configured controller once and waits until the results are stored. Regular
+     * polling goes through {@link PollingScheduler}, which calls {@link #pollControllers(List)} with
+     * whichever controllers are due.
+     */
     public void pollControllers() {
-        List<String> controllerIds = controllersConfig.getIds();
-        Instant fetchedAt = Instant.now();
+        pollControllers(controllersConfig.getIds());
+        flush();
+    }
+
+    /**
+     * Polls the given controllers, updates the live state and detector health and queues the results for
+     * {@link WriteBehindPipeline}. Neither a connection nor a transaction is held while polling.
+     *
+     * @return the current status of every controller that answered
+     */
+    public List<ControllerStatus> pollControllers(List<String> controllerIds) {
+        // Database timestamps keep microseconds; interval lookups compare valid_from for equality
+        Instant fetchedAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        long cycleStart = System.nanoTime();
 
         log.debug("Polling {} controllers", controllerIds.size());
 
-        for (String controllerId : controllerIds) {
+        List<PollResult> results = controllerPoller.pollAll(controllerIds);
+        long mappingStart = System.nanoTime();
+        ingestionMetrics.recordPoll(mappingStart - cycleStart);
+
+        List<ControllerStatus> statuses = new ArrayList<>(results.size());
+        List<DetectorReading> readings = new ArrayList<>();
+        List<List<DetectorReading>> readingsByController = new ArrayList<>(results.size());
+        for (PollResult result : results) {
             try {
-                pollStatus(controllerId, fetchedAt);
-                pollDetectorReadings(controllerId, fetchedAt);
+                ControllerStatus status = mapToEntity(result.status(), fetchedAt);
+                List<DetectorReading> controllerReadings = mapToEntities(result.readings(), fetchedAt);
+                statuses.add(status);
+                readings.addAll(controllerReadings);
+                readingsByController.add(controllerReadings);
             } catch (Exception e) {
-                log.error("Error polling controller {}: {}", controllerId, e.getMessage());
+                log.error("Error mapping poll result for controller {}", result.controllerId(), e);
             }
         }
-    }
 
-    private void pollStatus(String controllerId, Instant fetchedAt) {
-        ControllerStatusDto statusDto = protocolAdapter.readStatus(controllerId);
-        ControllerStatus status = mapToEntity(statusDto, fetchedAt);
-        controllerStatusRepository.save(status);
-        log.debug("Saved status for controller {}: {}", controllerId, status.getState());
+        StatusIntervalTracker.StatusChanges changes = statusIntervalTracker.track(statuses, fetchedAt);
+        List<LiveUpdate> liveUpdates = new ArrayList<>(statuses.size());
+        for (int i = 0; i < statuses.size(); i++) {
+            ControllerStatus status = changes.current().get(i);
+            liveStateStore.update(status, readingsByController.get(i));
+            detectorHealthMonitor.observe(status.getControllerId(), readingsByController.get(i), fetchedAt);
+            liveUpdates.add(new LiveUpdate(status.getControllerId(), status, readingsByController.get(i), fetchedAt));
+        }
+        liveUpdateBroadcaster.publish(liveUpdates);
+        ingestionMetrics.recordMapping(System.nanoTime() - mappingStart);
+
+        writeBehindPipeline.submit(changes.opened(), changes.extended(), readings);
+        ingestionMetrics.recordCycle(controllerIds, results.size(), System.nanoTime() - cycleStart);
+
+        log.info("Polled {} of {} controllers in {} ms, queued {} status intervals opened, {} extended and {} readings",
+                results.size(), controllerIds.size(), Duration.between(fetchedAt, Instant.now()).toMillis(),
+                changes.opened().size(), changes.extended().size(), readings.size());
+        return changes.current();
     }
 
-    private void pollDetectorReadings(String controllerId, Instant fetchedAt) {
-        DetectorReadingsDto readingsDto = protocolAdapter.readDetectorReadings(controllerId);
-        List<DetectorReading> readings = mapToEntities(readingsDto, fetchedAt);
-        detectorReadingRepository.saveAll(readings);
-        log.debug("Saved {} detector readings for controller {}", readings.size(), controllerId);
+    /** Waits until every cycle polled so far is stored. */
+    public void flush() {
+        writeBehindPipeline.flush();
     }
 
-    private ControllerStatus mapToEntity(ControllerStatusDto dto, Instant fetchedAt) {
+    static ControllerStatus mapToEntity(ControllerStatusDto dto, Instant fetchedAt) {
         List<ControllerStatus.ErrorInfo> errors = dto.getErrors() != null
                 ? dto.getErrors().stream()
                     .map(e -> ControllerStatus.ErrorInfo.builder()
@@ -95,12 +127,13 @@ public class IngestionService {
                 .controllerId(dto.getControllerId())
                 .state(dto.getState())
                 .program(dto.getProgram())
-                .fetchedAt(fetchedAt)
+                .validFrom(fetchedAt)
+                .validTo(fetchedAt)
                 .errors(errors)
                 .build();
     }
 
-    private List<DetectorReading> mapToEntities(DetectorReadingsDto dto, Instant fetchedAt) {
+    static List<DetectorReading> mapToEntities(DetectorReadingsDto dto, Instant fetchedAt) {
         return dto.getDetectors().stream()
                 .map(d -> DetectorReading.builder()
                         .controllerId(dto.getControllerId())
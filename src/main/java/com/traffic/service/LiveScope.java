@@ -0,0 +1,19 @@
+package com.traffic.service;
+
+import com.traffic.domain.Controller;
+
+/**
+ * What a live subscriber wants to see: a single controller, every controller of a zone,
+ * or the whole fleet when neither is set.
+ */
+public record LiveScope(String controllerId, String zone) {
+
+    public static final LiveScope FLEET = new LiveScope(null, null);
+
+    public boolean matches(String candidateId) {
+        if (controllerId != null) {
+            return controllerId.equals(candidateId);
+        }
+        return zone == null || zone.equals(Controller.zoneOf(candidateId));
+    }
+}
@@ -0,0 +1,41 @@
+package com.traffic.service;
+
+import com.traffic.domain.ControllerStatus;
+import com.traffic.domain.DetectorReading;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Latest polled status and detector readings per controller, kept in memory so the
+ * "current state" endpoints do not have to query history tables.
+ * <p>
+ * Entries are immutable snapshots swapped in atomically by ingestion, so readers never lock.
+ * Only successful polls populate the store; until a controller has been polled after startup,
+ * callers fall back to the database.
+ */
+@Component
+public class LiveStateStore {
+
+    private final ConcurrentHashMap<String, LiveState> states = new ConcurrentHashMap<>();
+
+    public void update(ControllerStatus status, List<DetectorReading> readings) {
+        LiveState incoming = new LiveState(status, List.copyOf(readings), status.getValidTo());
+        states.merge(status.getControllerId(), incoming,
+                (current, next) -> next.fetchedAt().isBefore(current.fetchedAt()) ? current : next);
+    }
+
+    public LiveState get(String controllerId) {
+        return states.get(controllerId);
+    }
+
+    public void removeIf(Predicate<String> controllerId) {
+        states.keySet().removeIf(controllerId);
+    }
+
+    public record LiveState(ControllerStatus status, List<DetectorReading> readings, Instant fetchedAt) {
+    }
+}
@@ -0,0 +1,11 @@
+package com.traffic.service;
+
+import com.traffic.domain.ControllerStatus;
+import com.traffic.domain.DetectorReading;
+
+import java.time.Instant;
+import java.util.List;
+
+public record LiveUpdate(String controllerId, ControllerStatus status, List<DetectorReading> readings,
+                         Instant fetchedAt) {
+}
@@ -0,0 +1,134 @@
+package com.traffic.service;
+
+import com.traffic.config.LiveConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process fan-out of live updates to subscribers. Publishing never blocks ingestion: each
+ * subscriber has its own buffer of up to {@code live.subscriber-buffer-cycles} poll cycles,
+ * drained by a virtual thread, and a subscriber whose buffer is full is evicted rather than
+ * slowing everyone else down.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LiveUpdateBroadcaster {
+
+    private final LiveConfig liveConfig;
+    private final LiveStateStore liveStateStore;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    /** Reserved before a subscriber is added, so concurrent subscribes cannot overshoot the limit. */
+    private final AtomicInteger active = new AtomicInteger();
+
+    public Subscriber subscribe(LiveScope scope, LiveUpdateSink sink) {
+        if (active.incrementAndGet() > liveConfig.getMaxSubscribers()) {
+            active.decrementAndGet();
+            throw new TooManySubscribersException(liveConfig.getMaxSubscribers());
+        }
+        Subscriber subscriber = new Subscriber(scope, sink, liveConfig.getSubscriberBufferCycles());
+        if (scope.controllerId() != null) {
+            // Single-controller subscribers start from the current state instead of waiting a cycle
+            LiveStateStore.LiveState live = liveStateStore.get(scope.controllerId());
+            if (live != null) {
+                subscriber.queue.offer(List.of(new LiveUpdate(scope.controllerId(), live.status(), live.readings(),
+                        live.fetchedAt())));
+            }
+        }
+        subscribers.add(subscriber);
+        subscriber.drainer = Thread.ofVirtual().name("live-subscriber").start(() -> drain(subscriber));
+        log.debug("Live subscriber added for {} ({} active)", scope, active.get());
+        return subscriber;
+    }
+
+    /**
+     * Hands one poll cycle's updates to every subscriber, each receiving the updates its scope matches.
+     */
+    public void publish(List<LiveUpdate> cycle) {
+        for (Subscriber subscriber : subscribers) {
+            List<LiveUpdate> matching = cycle.stream()
+                    .filter(update -> subscriber.scope.matches(update.controllerId()))
+                    .toList();
+            if (!matching.isEmpty() && !subscriber.queue.offer(matching)) {
+                log.warn("Evicting slow live subscriber for {}: {} cycles pending",
+                        subscriber.scope, subscriber.queue.size());
+                unsubscribe(subscriber);
+            }
+        }
+    }
+
+    public void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscribers.remove(subscriber);
+        active.decrementAndGet();
+        if (subscriber.drainer != null) {
+            subscriber.drainer.interrupt();
+        }
+        try {
+            subscriber.sink.close();
+        } catch (Exception e) {
+            log.debug("Error closing live subscriber for {}", subscriber.scope, e);
+        }
+    }
+
+    public int subscriberCount() {
+        return active.get();
+    }
+
+    // Runs on context close, before graceful shutdown would wait for the open streams to end
+    @EventListener(ContextClosedEvent.class)
+    public void shutdown() {
+        subscribers.forEach(this::unsubscribe);
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            while (!subscriber.closed.get()) {
+                for (LiveUpdate update : subscriber.queue.take()) {
+                    subscriber.sink.send(update);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.debug("Live subscriber for {} went away: {}", subscriber.scope, e.getMessage());
+        } finally {
+            unsubscribe(subscriber);
+        }
+    }
+
+    public static final class Subscriber {
+        private final LiveScope scope;
+        private final LiveUpdateSink sink;
+        private final BlockingQueue<List<LiveUpdate>> queue;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile Thread drainer;
+
+        private Subscriber(LiveScope scope, LiveUpdateSink sink, int bufferSize) {
+            this.scope = scope;
+            this.sink = sink;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+
+    public static class TooManySubscribersException extends RuntimeException {
+        public TooManySubscribersException(int maxSubscribers) {
+            super("Live subscriber limit reached: " + maxSubscribers);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.traffic.service;
+
+import java.io.IOException;
+
+/**
+ * Where a live subscriber's updates end up, e.g. an SSE connection. Called from the
+ * subscriber's own drainer thread, so it may block.
+ */
+public interface LiveUpdateSink {
+
+    void send(LiveUpdate update) throws IOException;
+
+    default void close() {
+    }
+}
@@ -0,0 +1,157 @@
+package com.traffic.service;
+
+import com.traffic.config.PartitionConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the daily partitions of the history tables in shape: creates partitions
+ * {@code partitions.premake-days} ahead and drops whole partitions once they fall out of
+ * {@code partitions.retention-days}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PartitionMaintenanceService {
+
+    static final List<String> PARTITIONED_TABLES = List.of("detector_readings", "controller_status");
+
+    private static final Map<String, String> PARTITION_KEYS = Map.of(
+            "detector_readings", "fetched_at",
+            "controller_status", "valid_from");
+
+    /**
+     * A bound instant as the UTC wall time the {@code TIMESTAMP} history columns hold, whatever the
+     * session time zone. Partition bounds are zone-less dates and mean UTC days as well.
+     */
+    private static final String UTC_BOUND = "(?::timestamptz AT TIME ZONE 'UTC')";
+
+    private static final DateTimeFormatter SUFFIX_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PartitionConfig partitionConfig;
+
+    @Scheduled(fixedRateString = "${partitions.maintenance-interval-ms}")
+    public void maintainPartitions() {
+        // The UTC day, which StatusIntervalTracker splits intervals at, not the session's CURRENT_DATE
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDate expiredBefore = today.minusDays(partitionConfig.getRetentionDays());
+
+        for (String table : PARTITIONED_TABLES) {
+            for (int i = 0; i <= partitionConfig.getPremakeDays(); i++) {
+                try {
+                    ensurePartition(table, today.plusDays(i));
+                } catch (Exception e) {
+                    log.error("Error creating partition of {} for {}", table, today.plusDays(i), e);
+                }
+            }
+            try {
+                dropExpiredPartitions(table, expiredBefore);
+            } catch (Exception e) {
+                log.error("Error dropping expired partitions of {}", table, e);
+            }
+        }
+    }
+
+    public void ensurePartition(String table, LocalDate day) {
+        String partition = partitionName(table, day);
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition);
+        if (Boolean.TRUE.equals(exists)) {
+            return;
+        }
+
+        String key = PARTITION_KEYS.get(table);
+        String from = day.toString();
+        String to = day.plusDays(1).toString();
+        OffsetDateTime fromUtc = utcStartOf(day);
+        OffsetDateTime toUtc = utcStartOf(day.plusDays(1));
+        boolean created = Boolean.TRUE.equals(transactionTemplate.execute(tx -> {
+            // Every instance runs maintenance; the lock makes the check and the create one step
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(hashtext(?))", partition);
+            if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition))) {
+                return false;
+            }
+
+            Boolean strayRows = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM " + table + "_default " +
+                    "WHERE " + key + " >= " + UTC_BOUND + " AND " + key + " < " + UTC_BOUND + ")",
+                    Boolean.class, fromUtc, toUtc);
+
+            if (Boolean.TRUE.equals(strayRows)) {
+                // Rows for this day already sit in the DEFAULT partition, which would make
+                // CREATE ... PARTITION OF fail. Move them into a standalone table and attach it.
+                jdbcTemplate.execute("CREATE TABLE " + partition + " (LIKE " + table + " INCLUDING DEFAULTS)");
+                jdbcTemplate.update("WITH moved AS (DELETE FROM " + table + "_default " +
+                        "WHERE " + key + " >= " + UTC_BOUND + " AND " + key + " < " + UTC_BOUND + " RETURNING *) " +
+                        "INSERT INTO " + partition + " SELECT * FROM moved", fromUtc, toUtc);
+                jdbcTemplate.execute("ALTER TABLE " + table + " ATTACH PARTITION " + partition +
+                        " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+            } else {
+                jdbcTemplate.execute("CREATE TABLE " + partition + " PARTITION OF " + table +
+                        " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+            }
+            return true;
+        }));
+        if (created) {
+            log.info("Created partition {}", partition);
+        }
+    }
+
+    void dropExpiredPartitions(String table, LocalDate expiredBefore) {
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT child.relname FROM pg_inherits " +
+                "JOIN pg_class parent ON parent.oid = pg_inherits.inhparent " +
+                "JOIN pg_class child ON child.oid = pg_inherits.inhrelid " +
+                "WHERE parent.relname = ?", String.class, table);
+
+        for (String partition : partitions) {
+            LocalDate day = partitionDay(table, partition);
+            if (day != null && !day.plusDays(1).isAfter(expiredBefore)) {
+                // Another instance may have dropped it first
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+                log.info("Dropped expired partition {}", partition);
+            }
+        }
+
+        int purged = jdbcTemplate.update(
+                "DELETE FROM " + table + "_default WHERE " + PARTITION_KEYS.get(table) + " < " + UTC_BOUND,
+                utcStartOf(expiredBefore));
+        if (purged > 0) {
+            log.info("Purged {} expired rows from {}_default", purged, table);
+        }
+    }
+
+    private static OffsetDateTime utcStartOf(LocalDate day) {
+        return day.atStartOfDay().atOffset(ZoneOffset.UTC);
+    }
+
+    static String partitionName(String table, LocalDate day) {
+        return table + "_p" + SUFFIX_FORMAT.format(day);
+    }
+
+    private static LocalDate partitionDay(String table, String partition) {
+        String prefix = table + "_p";
+        if (!partition.startsWith(prefix)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(partition.substring(prefix.length()), SUFFIX_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
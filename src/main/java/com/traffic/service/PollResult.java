@@ -0,0 +1,10 @@
+package com.traffic.service;
+
+import com.traffic.adapter.dto.ControllerStatusDto;
+import com.traffic.adapter.dto.DetectorReadingsDto;
+
+public record PollResult(
+        String controllerId,
+        ControllerStatusDto status,
+        DetectorReadingsDto readings) {
+}
@@ -0,0 +1,227 @@
+package com.traffic.service;
+
+import com.traffic.config.ControllersConfig;
+import com.traffic.config.IngestionConfig;
+import com.traffic.domain.ControllerStatus;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Polls each controller on its own schedule instead of the whole fleet at one global rate.
+ * <p>
+ * Every controller sits in a {@link DelayQueue} with its next due time. The first poll is placed
+ * at a random point within the controller's interval so the fleet is spread out evenly. Controllers
+ * that come due within {@code ingestion.batch-window-ms} of each other are polled and written as
+ * one batch. A controller that does not answer, or reports one of {@code ingestion.backoff-states},
+ * is rescheduled with exponential backoff up to {@code ingestion.max-backoff-ms}. A controller that
+ * just executed a command is polled right away. Controllers whose shard is held by another instance
+ * (see {@link ShardLeaseManager}) stay scheduled but are skipped until this instance owns them.
+ */
+@Component
+@Slf4j
+public class PollingScheduler {
+
+    private static final double JITTER = 0.1;
+
+    private final Function<List<String>, List<ControllerStatus>> poller;
+    private final List<String> controllerIds;
+    private final Predicate<String> ownership;
+    private final IngestionConfig ingestionConfig;
+
+    private final DelayQueue<DuePoll> queue = new DelayQueue<>();
+    private final Map<String, ControllerSchedule> schedules = new ConcurrentHashMap<>();
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("polling-batch-", 0).factory());
+
+    private volatile Thread loop;
+
+    @Autowired
+    public PollingScheduler(IngestionService ingestionService, ControllersConfig controllersConfig,
+                            ShardLeaseManager shardLeaseManager, IngestionConfig ingestionConfig) {
+        this(ingestionService::pollControllers, controllersConfig.getIds(), shardLeaseManager::owns, ingestionConfig);
+    }
+
+    PollingScheduler(Function<List<String>, List<ControllerStatus>> poller, List<String> controllerIds,
+                     Predicate<String> ownership, IngestionConfig ingestionConfig) {
+        this.poller = poller;
+        this.controllerIds = controllerIds;
+        this.ownership = ownership;
+        this.ingestionConfig = ingestionConfig;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!ingestionConfig.isSchedulingEnabled()) {
+            log.info("Polling scheduler disabled");
+            return;
+        }
+        for (String controllerId : controllerIds) {
+            ControllerSchedule schedule = new ControllerSchedule(controllerId);
+            schedules.put(controllerId, schedule);
+            long interval = ingestionConfig.pollingIntervalFor(controllerId);
+            enqueue(schedule, ThreadLocalRandom.current().nextLong(Math.max(1, interval)));
+        }
+        loop = Thread.ofPlatform().name("polling-scheduler").daemon(true).start(this::run);
+        log.info("Polling scheduler started for {} controllers", schedules.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (loop != null) {
+            loop.interrupt();
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Polls the controller as soon as possible, or right after its current poll if one is running.
+     */
+    public void triggerNow(String controllerId) {
+        ControllerSchedule schedule = schedules.get(controllerId);
+        if (schedule == null) {
+            return;
+        }
+        synchronized (schedule) {
+            if (schedule.inFlight) {
+                schedule.triggered = true;
+            } else {
+                enqueue(schedule, 0);
+            }
+        }
+    }
+
+    @EventListener
+    public void onCommandCompleted(CommandCompletedEvent event) {
+        triggerNow(event.controllerId());
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<DuePoll> due = new ArrayList<>();
+                due.add(queue.take());
+                long windowEnd = System.nanoTime() + MILLISECONDS.toNanos(ingestionConfig.getBatchWindowMs());
+                DuePoll next;
+                while ((next = queue.poll(Math.max(0, windowEnd - System.nanoTime()), NANOSECONDS)) != null) {
+                    due.add(next);
+                }
+
+                List<String> batch = new ArrayList<>(due.size());
+                for (DuePoll poll : due) {
+                    ControllerSchedule schedule = poll.schedule();
+                    synchronized (schedule) {
+                        // Entries superseded by triggerNow are skipped
+                        if (poll.generation() != schedule.generation || schedule.inFlight) {
+                            continue;
+                        }
+                        if (ownership.test(schedule.controllerId)) {
+                            schedule.inFlight = true;
+                            batch.add(schedule.controllerId);
+                        } else {
+                            // Another instance polls it; check again after a regular interval
+                            schedule.failures = 0;
+                            enqueue(schedule, nextDelayMs(schedule.controllerId, 0));
+                        }
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    executor.execute(() -> pollBatch(batch));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void pollBatch(List<String> batch) {
+        Map<String, ControllerStatus> answered;
+        try {
+            answered = poller.apply(batch).stream()
+                    .collect(Collectors.toMap(ControllerStatus::getControllerId, s -> s, (a, b) -> b));
+        } catch (Exception e) {
+            // Not the controllers' fault; keep their regular schedule
+            log.error("Error polling batch of {} controllers", batch.size(), e);
+            answered = null;
+        }
+
+        for (String controllerId : batch) {
+            ControllerSchedule schedule = schedules.get(controllerId);
+            synchronized (schedule) {
+                schedule.inFlight = false;
+                if (answered != null) {
+                    ControllerStatus status = answered.get(controllerId);
+                    boolean healthy = status != null && !ingestionConfig.isBackoffState(status.getState());
+                    schedule.failures = healthy ? 0 : schedule.failures + 1;
+                }
+                long delay = schedule.triggered ? 0 : nextDelayMs(controllerId, schedule.failures);
+                schedule.triggered = false;
+                enqueue(schedule, delay);
+            }
+        }
+    }
+
+    long nextDelayMs(String controllerId, int failures) {
+        long interval = ingestionConfig.pollingIntervalFor(controllerId);
+        long delay = interval;
+        if (failures > 0) {
+            // Doubles per failed poll; the shift is capped so it cannot overflow
+            delay = Math.min(interval << Math.min(failures, 20), Math.max(interval, ingestionConfig.getMaxBackoffMs()));
+        }
+        double jitter = 1 + ThreadLocalRandom.current().nextDouble(-JITTER, JITTER);
+        return Math.round(delay * jitter);
+    }
+
+    private void enqueue(ControllerSchedule schedule, long delayMs) {
+        synchronized (schedule) {
+            schedule.generation++;
+            queue.add(new DuePoll(schedule, schedule.generation, System.nanoTime() + MILLISECONDS.toNanos(delayMs)));
+        }
+    }
+
+    private static final class ControllerSchedule {
+        private final String controllerId;
+        private long generation;
+        private int failures;
+        private boolean inFlight;
+        private boolean triggered;
+
+        private ControllerSchedule(String controllerId) {
+            this.controllerId = controllerId;
+        }
+    }
+
+    private record DuePoll(ControllerSchedule schedule, long generation, long dueAtNanos) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtNanos - System.nanoTime(), NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtNanos, ((DuePoll) other).dueAtNanos);
+        }
+    }
+}
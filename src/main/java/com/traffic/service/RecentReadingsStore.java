@@ -0,0 +1,306 @@
+package com.traffic.service;
+
+import com.traffic.config.RecentWindowConfig;
+import com.traffic.domain.DetectorReading;
+import com.traffic.domain.OccupancyConverter;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Recent detector history kept in memory, so history requests for the last hour or two do not
+ * have to reach the database.
+ * <p>
+ * Every controller and detector gets a fixed-capacity ring of primitive arrays: ids, timestamps as
+ * epoch microseconds (the precision the database keeps), vehicle counts and occupancy in basis
+ * points (as stored in the database). Queries binary-search and merge the rings by
+ * index and only build {@link DetectorReading} objects for the rows of the requested page.
+ * <p>
+ * A controller's window starts at its first poll recorded by this instance, or at the oldest
+ * reading a full ring still holds if that is later. Requests reaching further back are left to
+ * the database.
+ */
+@Component
+public class RecentReadingsStore {
+
+    private static final String SORT_PROPERTY = "fetchedAt";
+    private static final String TIEBREAK_PROPERTY = "id";
+
+    private final RecentWindowConfig config;
+    private final ConcurrentHashMap<String, ControllerWindow> windows = new ConcurrentHashMap<>();
+
+    public RecentReadingsStore(RecentWindowConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Adds the readings of one poll cycle. Call after they were written, so they carry their ids.
+     */
+    public void record(List<DetectorReading> readings) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        // Ingestion lists readings controller by controller; each run is added under one lock
+        int start = 0;
+        for (int i = 1; i <= readings.size(); i++) {
+            String controllerId = readings.get(start).getControllerId();
+            if (i == readings.size() || !readings.get(i).getControllerId().equals(controllerId)) {
+                windows.computeIfAbsent(controllerId, id -> new ControllerWindow(id, config.getCapacity()))
+                        .record(readings.subList(start, i));
+                start = i;
+            }
+        }
+    }
+
+    /**
+     * The requested page if the whole range from {@code from} on is held in memory and the page is
+     * sorted by {@code fetchedAt}, optionally then {@code id} in the same direction (or not at all);
+     * otherwise empty and the caller queries the database. Readings sharing a timestamp are ordered by
+     * id either way, as the database orders them.
+     */
+    public Optional<Page<DetectorReading>> findPage(String controllerId, Instant from, Instant to, Pageable pageable) {
+        if (!config.isEnabled()) {
+            return Optional.empty();
+        }
+        ControllerWindow window = windows.get(controllerId);
+        List<Sort.Order> orders = pageable.getSort().toList();
+        if (window == null || !orders.isEmpty() && !isFetchedAtThenId(orders)) {
+            return Optional.empty();
+        }
+        boolean ascending = orders.isEmpty() || orders.getFirst().isAscending();
+        return Optional.ofNullable(window.page(micros(from), micros(to), ascending, pageable));
+    }
+
+    public void removeIf(Predicate<String> controllerId) {
+        windows.keySet().removeIf(controllerId);
+    }
+
+    private static boolean isFetchedAtThenId(List<Sort.Order> orders) {
+        Sort.Order first = orders.getFirst();
+        if (!first.getProperty().equals(SORT_PROPERTY) || orders.size() > 2) {
+            return false;
+        }
+        return orders.size() == 1 || orders.get(1).getProperty().equals(TIEBREAK_PROPERTY)
+                && orders.get(1).getDirection() == first.getDirection();
+    }
+
+    /** Rounds to microseconds half up, as the JDBC driver does when binding timestamps. */
+    static long micros(Instant instant) {
+        long micros = Math.multiplyExact(instant.getEpochSecond(), 1_000_000L) + instant.getNano() / 1000;
+        return instant.getNano() % 1000 >= 500 ? micros + 1 : micros;
+    }
+
+    private static Instant instant(long micros) {
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1000);
+    }
+
+    private static final class ControllerWindow {
+
+        private final String controllerId;
+        private final int capacity;
+
+        /** Ordered by detector id; the merge orders readings sharing a timestamp by reading id. */
+        private final List<DetectorRing> rings = new ArrayList<>();
+        private long coveredSince = Long.MIN_VALUE;
+        private long latest = Long.MIN_VALUE;
+
+        private ControllerWindow(String controllerId, int capacity) {
+            this.controllerId = controllerId;
+            this.capacity = capacity;
+        }
+
+        private synchronized void record(List<DetectorReading> readings) {
+            long first = Long.MAX_VALUE;
+            long last = Long.MIN_VALUE;
+            for (DetectorReading reading : readings) {
+                long fetchedAt = micros(reading.getFetchedAt());
+                first = Math.min(first, fetchedAt);
+                last = Math.max(last, fetchedAt);
+            }
+
+            if (coveredSince == Long.MIN_VALUE) {
+                coveredSince = first;
+            } else if (first < latest) {
+                // Polls of this controller overlapped; what the database holds around them is no
+                // longer certain to be here, so start over after everything seen so far
+                rings.clear();
+                coveredSince = Math.max(latest, last) + 1;
+                latest = coveredSince;
+                return;
+            }
+
+            for (DetectorReading reading : readings) {
+                ringFor(reading.getDetectorId() != null ? reading.getDetectorId() : 0).add(reading);
+            }
+            latest = Math.max(latest, last);
+        }
+
+        private DetectorRing ringFor(int detectorId) {
+            int i = 0;
+            while (i < rings.size() && rings.get(i).detectorId < detectorId) {
+                i++;
+            }
+            if (i == rings.size() || rings.get(i).detectorId != detectorId) {
+                rings.add(i, new DetectorRing(detectorId, capacity));
+            }
+            return rings.get(i);
+        }
+
+        private synchronized Page<DetectorReading> page(long from, long to, boolean ascending, Pageable pageable) {
+            long windowStart = coveredSince;
+            for (DetectorRing ring : rings) {
+                if (ring.size == capacity) {
+                    windowStart = Math.max(windowStart, ring.fetchedAt(0));
+                }
+            }
+            if (from < windowStart) {
+                return null;
+            }
+
+            int count = rings.size();
+            int[] next = new int[count];
+            int[] end = new int[count];
+            long total = 0;
+            for (int r = 0; r < count; r++) {
+                DetectorRing ring = rings.get(r);
+                int lower = ring.firstAtOrAfter(from);
+                int upper = ring.firstAtOrAfter(to == Long.MAX_VALUE ? to : to + 1);
+                total += Math.max(0, upper - lower);
+                next[r] = ascending ? lower : upper - 1;
+                end[r] = ascending ? upper : lower - 1;
+            }
+
+            long skip = pageable.isPaged() ? pageable.getOffset() : 0;
+            int size = pageable.isPaged() ? pageable.getPageSize() : (int) Math.min(total, Integer.MAX_VALUE);
+            List<DetectorReading> content = new ArrayList<>((int) Math.min(size, Math.max(0, total - skip)));
+            int step = ascending ? 1 : -1;
+            while (content.size() < size) {
+                int pick = -1;
+                for (int r = 0; r < count; r++) {
+                    if (next[r] == end[r]) {
+                        continue;
+                    }
+                    if (pick < 0) {
+                        pick = r;
+                        continue;
+                    }
+                    int comparison = rings.get(r).compare(next[r], rings.get(pick), next[pick]);
+                    if (ascending ? comparison < 0 : comparison > 0) {
+                        pick = r;
+                    }
+                }
+                if (pick < 0) {
+                    break;
+                }
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    content.add(rings.get(pick).toReading(controllerId, next[pick]));
+                }
+                next[pick] += step;
+            }
+            return new PageImpl<>(content, pageable, total);
+        }
+    }
+
+    /**
+     * Readings of one detector in arrival order. Logical index 0 is the oldest reading held.
+     */
+    private static final class DetectorRing {
+
+        private static final int NULL_INT = Integer.MIN_VALUE;
+        private static final long NULL_LONG = Long.MIN_VALUE;
+
+        private final int detectorId;
+        private final long[] ids;
+        private final long[] fetchedAt;
+        private final long[] readingTimestamp;
+        private final int[] vehicleCount;
+        private final int[] occupancyBasisPoints;
+        private final String[] names;
+        private int head;
+        private int size;
+
+        private DetectorRing(int detectorId, int capacity) {
+            this.detectorId = detectorId;
+            this.ids = new long[capacity];
+            this.fetchedAt = new long[capacity];
+            this.readingTimestamp = new long[capacity];
+            this.vehicleCount = new int[capacity];
+            this.occupancyBasisPoints = new int[capacity];
+            this.names = new String[capacity];
+        }
+
+        private void add(DetectorReading reading) {
+            int capacity = ids.length;
+            String previousName = size > 0 ? names[(head - 1 + capacity) % capacity] : null;
+
+            ids[head] = reading.getId() != null ? reading.getId() : NULL_LONG;
+            fetchedAt[head] = micros(reading.getFetchedAt());
+            readingTimestamp[head] = reading.getReadingTimestamp() != null
+                    ? micros(reading.getReadingTimestamp()) : NULL_LONG;
+            vehicleCount[head] = reading.getVehicleCount() != null ? reading.getVehicleCount() : NULL_INT;
+            occupancyBasisPoints[head] = reading.getOccupancy() != null
+                    ? OccupancyConverter.toBasisPoints(reading.getOccupancy()) : NULL_INT;
+            // Names hardly ever change; share one instance instead of keeping one per reading
+            names[head] = reading.getDetectorName() != null && reading.getDetectorName().equals(previousName)
+                    ? previousName : reading.getDetectorName();
+
+            head = (head + 1) % capacity;
+            if (size < capacity) {
+                size++;
+            }
+        }
+
+        private int physical(int logical) {
+            return (head - size + logical + ids.length) % ids.length;
+        }
+
+        private long fetchedAt(int logical) {
+            return fetchedAt[physical(logical)];
+        }
+
+        /** Orders by fetch time, then by id like the database does. */
+        private int compare(int logical, DetectorRing other, int otherLogical) {
+            int comparison = Long.compare(fetchedAt(logical), other.fetchedAt(otherLogical));
+            return comparison != 0 ? comparison : Long.compare(ids[physical(logical)], other.ids[other.physical(otherLogical)]);
+        }
+
+        private int firstAtOrAfter(long micros) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (fetchedAt(mid) < micros) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private DetectorReading toReading(String controllerId, int logical) {
+            int i = physical(logical);
+            return DetectorReading.builder()
+                    .id(ids[i] != NULL_LONG ? ids[i] : null)
+                    .controllerId(controllerId)
+                    .detectorId(detectorId)
+                    .detectorName(names[i])
+                    .vehicleCount(vehicleCount[i] != NULL_INT ? vehicleCount[i] : null)
+                    .occupancy(occupancyBasisPoints[i] != NULL_INT ? OccupancyConverter.fromBasisPoints(occupancyBasisPoints[i]) : null)
+                    .readingTimestamp(readingTimestamp[i] != NULL_LONG ? instant(readingTimestamp[i]) : null)
+                    .fetchedAt(instant(fetchedAt[i]))
+                    .build();
+        }
+    }
+}
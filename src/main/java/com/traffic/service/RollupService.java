@@ -0,0 +1,87 @@
+package com.traffic.service;
+
+import com.traffic.domain.DetectorReading;
+import com.traffic.domain.RollupResolution;
+import com.traffic.domain.TrafficRollup;
+import com.traffic.repository.RollupRepository;
+import com.traffic.repository.RollupRepository.RollupDelta;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Folds freshly ingested detector readings into the 1m/15m/1h rollup tables, per detector and
+ * per controller, so long-range traffic queries never have to scan raw readings.
+ */
+@Service
+@RequiredArgsConstructor
+public class RollupService {
+
+    private final RollupRepository rollupRepository;
+
+    public void record(List<DetectorReading> readings) {
+        Map<BucketKey, Accumulator> buckets = new HashMap<>();
+        for (DetectorReading reading : readings) {
+            for (RollupResolution resolution : RollupResolution.values()) {
+                Instant bucketStart = resolution.bucketStart(reading.getFetchedAt());
+                buckets.computeIfAbsent(
+                        new BucketKey(reading.getControllerId(), reading.getDetectorId(), resolution, bucketStart),
+                        k -> new Accumulator()).add(reading);
+                buckets.computeIfAbsent(
+                        new BucketKey(reading.getControllerId(), null, resolution, bucketStart),
+                        k -> new Accumulator()).add(reading);
+            }
+        }
+
+        List<RollupDelta> deltas = new ArrayList<>(buckets.size());
+        buckets.forEach((key, acc) -> deltas.add(new RollupDelta(
+                key.controllerId(), key.detectorId(), key.resolution(), key.bucketStart(),
+                acc.sampleCount, acc.vehicleCount, acc.occupancySamples, acc.occupancySum,
+                acc.occupancyMin, acc.occupancyMax)));
+        rollupRepository.upsert(deltas);
+    }
+
+    public List<TrafficRollup> getRollups(String controllerId, Integer detectorId, RollupResolution resolution,
+                                          Instant from, Instant to) {
+        Instant rangeEnd = to != null ? to : Instant.now();
+        Instant rangeStart = from != null ? from : rangeEnd.minus(resolution.getDefaultRange());
+
+        if (detectorId == null) {
+            return rollupRepository.findControllerRollups(controllerId, resolution, rangeStart, rangeEnd);
+        }
+        return rollupRepository.findDetectorRollups(controllerId, detectorId, resolution, rangeStart, rangeEnd);
+    }
+
+    private record BucketKey(String controllerId, Integer detectorId, RollupResolution resolution,
+                             Instant bucketStart) {
+    }
+
+    private static class Accumulator {
+        private int sampleCount;
+        private long vehicleCount;
+        private int occupancySamples;
+        private BigDecimal occupancySum = BigDecimal.ZERO;
+        private BigDecimal occupancyMin;
+        private BigDecimal occupancyMax;
+
+        void add(DetectorReading reading) {
+            sampleCount++;
+            if (reading.getVehicleCount() != null) {
+                vehicleCount += reading.getVehicleCount();
+            }
+            BigDecimal occupancy = reading.getOccupancy();
+            if (occupancy != null) {
+                occupancySamples++;
+                occupancySum = occupancySum.add(occupancy);
+                occupancyMin = occupancyMin == null ? occupancy : occupancyMin.min(occupancy);
+                occupancyMax = occupancyMax == null ? occupancy : occupancyMax.max(occupancy);
+            }
+        }
+    }
+}
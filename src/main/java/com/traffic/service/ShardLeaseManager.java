@@ -0,0 +1,223 @@
+package com.traffic.service;
+
+import com.traffic.config.ClusterConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Splits ingestion between service instances that share one database.
+ * <p>
+ * Controller ids are mapped onto {@code cluster.shard-count} shards with jump consistent hashing,
+ * and each shard is leased to at most one instance through {@code ingestion_shard_leases}. Every
+ * heartbeat an instance renews its leases, gives up shards above its fair share
+ * ({@code ceil(shards / live members)}) and claims free or expired shards up to it. When an instance
+ * stops, its leases expire after {@code cluster.lease-ttl-ms} and the remaining instances take them over.
+ * <p>
+ * Ownership is also bounded locally: if heartbeats stop succeeding, this instance stops polling once
+ * its leases may have expired, before another instance can have claimed them.
+ */
+@Service
+@Slf4j
+public class ShardLeaseManager {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ClusterConfig clusterConfig;
+    private final LiveStateStore liveStateStore;
+    private final RecentReadingsStore recentReadingsStore;
+    private final DetectorHealthMonitor detectorHealthMonitor;
+    private final String instanceId;
+
+    private volatile Set<Integer> ownedShards = Set.of();
+    private volatile long leasedUntilNanos;
+    private boolean shardsCreated;
+
+    public ShardLeaseManager(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                             ClusterConfig clusterConfig, LiveStateStore liveStateStore,
+                             RecentReadingsStore recentReadingsStore, DetectorHealthMonitor detectorHealthMonitor) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.clusterConfig = clusterConfig;
+        this.liveStateStore = liveStateStore;
+        this.recentReadingsStore = recentReadingsStore;
+        this.detectorHealthMonitor = detectorHealthMonitor;
+        this.instanceId = clusterConfig.getInstanceId() != null && !clusterConfig.getInstanceId().isBlank()
+                ? clusterConfig.getInstanceId()
+                : hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Whether this instance should poll the controller. Always true when clustering is disabled.
+     */
+    public boolean owns(String controllerId) {
+        if (!clusterConfig.isEnabled()) {
+            return true;
+        }
+        return System.nanoTime() - leasedUntilNanos < 0
+                && ownedShards.contains(shardOf(controllerId, clusterConfig.getShardCount()));
+    }
+
+    public Set<Integer> getOwnedShards() {
+        return ownedShards;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    /**
+     * The instance holding an unexpired lease on the controller's shard, or {@code null} if none does
+     * right now. This instance when clustering is disabled.
+     */
+    public String ownerOf(String controllerId) {
+        if (!clusterConfig.isEnabled()) {
+            return instanceId;
+        }
+        List<String> owners = jdbcTemplate.queryForList(
+                "SELECT owner FROM ingestion_shard_leases WHERE shard = ? AND expires_at > now()",
+                String.class, shardOf(controllerId, clusterConfig.getShardCount()));
+        return owners.isEmpty() ? null : owners.getFirst();
+    }
+
+    @Scheduled(fixedDelayString = "${cluster.heartbeat-interval-ms}")
+    public void heartbeat() {
+        if (!clusterConfig.isEnabled()) {
+            return;
+        }
+        // Measured before the database sets expires_at, so the local bound is never later than the lease
+        long startedNanos = System.nanoTime();
+        try {
+            Set<Integer> owned = transactionTemplate.execute(tx -> renewAndRebalance());
+            leasedUntilNanos = startedNanos + MILLISECONDS.toNanos(clusterConfig.getLeaseTtlMs());
+            setOwnedShards(owned);
+        } catch (Exception e) {
+            log.error("Shard lease heartbeat of {} failed", instanceId, e);
+        }
+    }
+
+    @PreDestroy
+    public void releaseLeases() {
+        if (!clusterConfig.isEnabled()) {
+            return;
+        }
+        setOwnedShards(Set.of());
+        try {
+            // Lets the other instances take over at their next heartbeat instead of after the lease TTL
+            jdbcTemplate.update("UPDATE ingestion_shard_leases SET owner = NULL, expires_at = NULL WHERE owner = ?",
+                    instanceId);
+            jdbcTemplate.update("DELETE FROM ingestion_members WHERE instance_id = ?", instanceId);
+        } catch (Exception e) {
+            log.warn("Could not release shard leases of {}; they expire on their own", instanceId, e);
+        }
+    }
+
+    private Set<Integer> renewAndRebalance() {
+        int shardCount = clusterConfig.getShardCount();
+        long ttlMs = clusterConfig.getLeaseTtlMs();
+        if (!shardsCreated) {
+            jdbcTemplate.update("INSERT INTO ingestion_shard_leases (shard) " +
+                    "SELECT generate_series(0, ? - 1) ON CONFLICT (shard) DO NOTHING", shardCount);
+            shardsCreated = true;
+        }
+
+        jdbcTemplate.update("INSERT INTO ingestion_members (instance_id, heartbeat_at) VALUES (?, now()) " +
+                "ON CONFLICT (instance_id) DO UPDATE SET heartbeat_at = now()", instanceId);
+        jdbcTemplate.update("DELETE FROM ingestion_members WHERE heartbeat_at < now() - ? * INTERVAL '1 millisecond'",
+                ttlMs);
+        Integer members = jdbcTemplate.queryForObject("SELECT count(*) FROM ingestion_members", Integer.class);
+        int fairShare = (shardCount + members - 1) / members;
+
+        TreeSet<Integer> owned = new TreeSet<>(jdbcTemplate.queryForList(
+                "UPDATE ingestion_shard_leases SET expires_at = now() + ? * INTERVAL '1 millisecond' " +
+                "WHERE owner = ? AND expires_at > now() AND shard < ? RETURNING shard",
+                Integer.class, ttlMs, instanceId, shardCount));
+
+        if (owned.size() > fairShare) {
+            List<Integer> released = List.copyOf(owned.descendingSet()).subList(0, owned.size() - fairShare);
+            released.forEach(owned::remove);
+            // Stop polling them before another instance can claim them
+            setOwnedShards(Set.copyOf(owned));
+            jdbcTemplate.update(con -> {
+                var ps = con.prepareStatement("UPDATE ingestion_shard_leases SET owner = NULL, expires_at = NULL " +
+                        "WHERE owner = ? AND shard = ANY (?)");
+                ps.setString(1, instanceId);
+                ps.setArray(2, con.createArrayOf("integer", released.toArray()));
+                return ps;
+            });
+        } else if (owned.size() < fairShare) {
+            owned.addAll(jdbcTemplate.queryForList(
+                    "UPDATE ingestion_shard_leases SET owner = ?, expires_at = now() + ? * INTERVAL '1 millisecond' " +
+                    "WHERE shard IN (SELECT shard FROM ingestion_shard_leases " +
+                    "WHERE shard < ? AND (owner IS NULL OR expires_at IS NULL OR expires_at <= now()) " +
+                    "ORDER BY shard LIMIT ? FOR UPDATE SKIP LOCKED) " +
+                    "RETURNING shard",
+                    Integer.class, instanceId, ttlMs, shardCount, fairShare - owned.size()));
+        }
+        return Set.copyOf(owned);
+    }
+
+    private void setOwnedShards(Set<Integer> owned) {
+        Set<Integer> previous = ownedShards;
+        if (owned.equals(previous)) {
+            return;
+        }
+        ownedShards = owned;
+
+        Set<Integer> lost = new HashSet<>(previous);
+        lost.removeAll(owned);
+        if (!lost.isEmpty()) {
+            // The new owner keeps the live state, recent readings and detector health of these controllers
+            // now. Live state and recent readings fall back to the database here; detector health is
+            // not persisted, so requests for it are answered with the owning instance instead
+            int shardCount = clusterConfig.getShardCount();
+            liveStateStore.removeIf(controllerId -> lost.contains(shardOf(controllerId, shardCount)));
+            recentReadingsStore.removeIf(controllerId -> lost.contains(shardOf(controllerId, shardCount)));
+            detectorHealthMonitor.removeIf(controllerId -> lost.contains(shardOf(controllerId, shardCount)));
+        }
+        log.info("Instance {} now holds {} of {} shards", instanceId, owned.size(), clusterConfig.getShardCount());
+    }
+
+    /**
+     * Jump consistent hash (Lamping and Veach) of the controller id: spreads ids evenly and, should
+     * the shard count ever change, moves only the share of controllers that has to move.
+     */
+    static int shardOf(String controllerId, int shardCount) {
+        // FNV-1a, so the mapping is the same on every instance and JVM
+        long key = 0xcbf29ce484222325L;
+        for (byte b : controllerId.getBytes(StandardCharsets.UTF_8)) {
+            key = (key ^ (b & 0xff)) * 0x100000001b3L;
+        }
+
+        long bucket = -1;
+        long next = 0;
+        while (next < shardCount) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "instance";
+        }
+    }
+}
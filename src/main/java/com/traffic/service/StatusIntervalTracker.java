@@ -0,0 +1,96 @@
+package com.traffic.service;
+
+import com.traffic.config.IngestionConfig;
+import com.traffic.domain.ControllerStatus;
+import com.traffic.repository.ControllerStatusRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Decides per polled status whether it continues the controller's current interval or opens
+ * a new one. An interval is continued only if state, program and errors are unchanged, at most
+ * {@value #MAX_MISSED_POLLS} polls were missed in between (a full backoff period for controllers
+ * in a backoff state), and both polls fall on the same UTC day, so an interval never outlives
+ * the daily partition it is stored in.
+ */
+@Component
+@RequiredArgsConstructor
+public class StatusIntervalTracker {
+
+    static final int MAX_MISSED_POLLS = 2;
+
+    private final LiveStateStore liveStateStore;
+    private final ControllerStatusRepository controllerStatusRepository;
+    private final IngestionConfig ingestionConfig;
+
+    /**
+     * @param polled statuses of one poll cycle with {@code validFrom == validTo == fetchedAt}
+     */
+    public StatusChanges track(List<ControllerStatus> polled, Instant fetchedAt) {
+        Map<String, ControllerStatus> stored = loadIntervalsMissingFromLiveState(polled, fetchedAt);
+
+        List<ControllerStatus> opened = new ArrayList<>();
+        List<ControllerStatus> extended = new ArrayList<>();
+        List<ControllerStatus> current = new ArrayList<>(polled.size());
+        for (ControllerStatus status : polled) {
+            LiveStateStore.LiveState live = liveStateStore.get(status.getControllerId());
+            ControllerStatus previous = live != null ? live.status() : stored.get(status.getControllerId());
+
+            if (previous != null && previous.hasSameStateAs(status)
+                    && !previous.getValidTo().isAfter(fetchedAt)
+                    && Duration.between(previous.getValidTo(), fetchedAt).compareTo(maxGap(previous)) <= 0
+                    && utcDay(previous.getValidFrom()).equals(utcDay(fetchedAt))) {
+                ControllerStatus continued = previous.toBuilder().validTo(fetchedAt).build();
+                extended.add(continued);
+                current.add(continued);
+            } else {
+                opened.add(status);
+                current.add(status);
+            }
+        }
+        return new StatusChanges(opened, extended, current);
+    }
+
+    /** After a restart the live state is empty; pick up today's open intervals from the database instead. */
+    private Map<String, ControllerStatus> loadIntervalsMissingFromLiveState(List<ControllerStatus> polled,
+                                                                            Instant fetchedAt) {
+        List<String> missing = polled.stream()
+                .map(ControllerStatus::getControllerId)
+                .filter(id -> liveStateStore.get(id) == null)
+                .toList();
+        if (missing.isEmpty()) {
+            return Map.of();
+        }
+        return controllerStatusRepository.findCurrentIntervals(missing, utcDay(fetchedAt)).stream()
+                .collect(Collectors.toMap(ControllerStatus::getControllerId, Function.identity(), (a, b) -> a));
+    }
+
+    private Duration maxGap(ControllerStatus previous) {
+        long interval = ingestionConfig.pollingIntervalFor(previous.getControllerId());
+        // Controllers in a backoff state are expected to be polled rarely
+        long gap = ingestionConfig.isBackoffState(previous.getState())
+                ? Math.max(interval, ingestionConfig.getMaxBackoffMs()) + interval
+                : interval * (MAX_MISSED_POLLS + 1);
+        return Duration.ofMillis(gap);
+    }
+
+    private static Instant utcDay(Instant instant) {
+        return instant.truncatedTo(ChronoUnit.DAYS);
+    }
+
+    /**
+     * @param current the controller's interval after this cycle, in the order statuses were polled
+     */
+    public record StatusChanges(List<ControllerStatus> opened, List<ControllerStatus> extended,
+                                List<ControllerStatus> current) {
+    }
+}
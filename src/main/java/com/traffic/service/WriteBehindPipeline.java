@@ -0,0 +1,367 @@
+package com.traffic.service;
+
+import com.traffic.config.IngestionConfig;
+import com.traffic.domain.ControllerStatus;
+import com.traffic.domain.DetectorReading;
+import com.traffic.repository.IngestionWriter;
+import com.traffic.repository.WriteStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Writes poll cycles to the database behind the pollers' back. {@link #submit} queues a cycle and
+ * returns; writer threads drain their queue and write whatever has accumulated in one short
+ * transaction. No connection is held while waiting for controllers, and the next cycle's device
+ * I/O overlaps with the previous cycle's commit.
+ * <p>
+ * Every controller belongs to one writer, so its rows are written in poll order. A writer merges
+ * the cycles it drains: an interval opened and extended within the same round is inserted once
+ * with its latest {@code validTo}, and repeated extensions become one update.
+ * <p>
+ * When a writer falls behind, its queue fills up and {@link #submit} blocks the poller for up to
+ * {@code write-queue-timeout-ms}. If the queue is still full, the cycle's status changes are merged
+ * into an overflow batch the writer picks up once it has caught up, and its readings are dropped:
+ * a missing sample only leaves a gap, a missing status change would corrupt the intervals. Until
+ * that overflow is written, later cycles for the writer are merged into it as well, even if the
+ * queue has room again; otherwise they could be written before the intervals they extend.
+ */
+@Component
+@Slf4j
+public class WriteBehindPipeline {
+
+    private static final long MAX_RETRY_DELAY_MS = 5000;
+    private static final long SHUTDOWN_TIMEOUT_MS = 30000;
+
+    private final IngestionWriter ingestionWriter;
+    private final RollupService rollupService;
+    private final RecentReadingsStore recentReadingsStore;
+    private final IngestionMetrics ingestionMetrics;
+    private final IngestionConfig ingestionConfig;
+    private final TransactionTemplate transactionTemplate;
+    private final List<Writer> writers = new ArrayList<>();
+
+    public WriteBehindPipeline(IngestionWriter ingestionWriter, RollupService rollupService,
+                               RecentReadingsStore recentReadingsStore, IngestionMetrics ingestionMetrics,
+                               IngestionConfig ingestionConfig, PlatformTransactionManager transactionManager) {
+        this.ingestionWriter = ingestionWriter;
+        this.rollupService = rollupService;
+        this.recentReadingsStore = recentReadingsStore;
+        this.ingestionMetrics = ingestionMetrics;
+        this.ingestionConfig = ingestionConfig;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < Math.max(1, ingestionConfig.getWriters()); i++) {
+            writers.add(new Writer(i));
+        }
+        ingestionMetrics.monitorWriteQueue(this, WriteBehindPipeline::queuedCycles);
+    }
+
+    @PostConstruct
+    void start() {
+        writers.forEach(Writer::start);
+    }
+
+    /**
+     * Queues the status changes and readings of one poll cycle. Blocks while the writer of any of
+     * the controllers is behind, for at most {@code write-queue-timeout-ms}.
+     */
+    public void submit(List<ControllerStatus> opened, List<ControllerStatus> extended, List<DetectorReading> readings) {
+        if (writers.size() == 1) {
+            writers.getFirst().submit(new Batch(opened, extended, readings, null));
+            return;
+        }
+        List<Batch> batches = new ArrayList<>(writers.size());
+        for (int i = 0; i < writers.size(); i++) {
+            batches.add(new Batch(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), null));
+        }
+        opened.forEach(status -> batches.get(writerOf(status.getControllerId())).opened().add(status));
+        extended.forEach(status -> batches.get(writerOf(status.getControllerId())).extended().add(status));
+        readings.forEach(reading -> batches.get(writerOf(reading.getControllerId())).readings().add(reading));
+        for (int i = 0; i < writers.size(); i++) {
+            if (!batches.get(i).isEmpty()) {
+                writers.get(i).submit(batches.get(i));
+            }
+        }
+    }
+
+    /**
+     * Waits until everything submitted before the call has been written (or given up on).
+     */
+    public void flush() {
+        List<CompletableFuture<Void>> barriers = new ArrayList<>(writers.size());
+        for (Writer writer : writers) {
+            CompletableFuture<Void> barrier = new CompletableFuture<>();
+            writer.enqueue(new Batch(List.of(), List.of(), List.of(), barrier));
+            barriers.add(barrier);
+        }
+        CompletableFuture.allOf(barriers.toArray(CompletableFuture[]::new)).join();
+    }
+
+    int queuedCycles() {
+        return writers.stream().mapToInt(writer -> writer.queue.size()).sum();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        writers.forEach(writer -> writer.running = false);
+        for (Writer writer : writers) {
+            writer.thread.join(SHUTDOWN_TIMEOUT_MS);
+            if (writer.thread.isAlive()) {
+                log.warn("Writer {} did not finish within {} ms, {} cycles are lost",
+                        writer.index, SHUTDOWN_TIMEOUT_MS, writer.queue.size());
+            }
+        }
+    }
+
+    private int writerOf(String controllerId) {
+        return Math.floorMod(controllerId.hashCode(), writers.size());
+    }
+
+    private final class Writer implements Runnable {
+
+        private final int index;
+        private final BlockingQueue<Batch> queue;
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        /** Status changes of cycles that did not fit into the queue; guarded by {@code this}. */
+        private Round overflow;
+
+        private Writer(int index) {
+            this.index = index;
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, ingestionConfig.getWriteQueueCapacity()));
+            this.thread = Thread.ofPlatform().name("ingestion-writer-" + index).daemon().unstarted(this);
+        }
+
+        private void start() {
+            thread.start();
+        }
+
+        private void submit(Batch batch) {
+            if (mergeIntoOverflow(batch, false)) {
+                return;
+            }
+            boolean queued;
+            try {
+                queued = queue.offer(batch, ingestionConfig.getWriteQueueTimeoutMs(), MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queued = false;
+            }
+            if (!queued) {
+                mergeIntoOverflow(batch, true);
+            }
+        }
+
+        /**
+         * Adds the batch's status changes to the overflow and drops its readings, if there is an
+         * overflow already or {@code force} starts one.
+         */
+        private boolean mergeIntoOverflow(Batch batch, boolean force) {
+            synchronized (this) {
+                if (overflow == null) {
+                    if (!force) {
+                        return false;
+                    }
+                    overflow = new Round();
+                }
+                overflow.addStatuses(batch.opened(), batch.extended());
+                overflow.cycles++;
+            }
+            ingestionMetrics.recordDroppedReadings(batch.readings().size());
+            log.warn("Writer {} is {} cycles behind, dropped {} readings", index, queue.size(),
+                    batch.readings().size());
+            return true;
+        }
+
+        private void enqueue(Batch barrier) {
+            try {
+                queue.put(barrier);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                barrier.barrier().complete(null);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running || !queue.isEmpty() || hasOverflow()) {
+                try {
+                    Batch first = queue.poll(1, TimeUnit.SECONDS);
+                    Round round = new Round();
+                    if (first != null) {
+                        round.add(first);
+                        collect(round);
+                    }
+                    // Nothing but flush barriers is queued while an overflow is pending, so once the
+                    // queue is drained every cycle older than the overflow has been written
+                    if (queue.isEmpty()) {
+                        round.addOverflow(takeOverflow());
+                    }
+                    write(round);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (RuntimeException e) {
+                    log.error("Writer {} failed", index, e);
+                }
+            }
+        }
+
+        private void collect(Round round) throws InterruptedException {
+            long deadline = System.nanoTime() + MILLISECONDS.toNanos(ingestionConfig.getWriteLingerMs());
+            while (round.readings.size() < ingestionConfig.getWriteMaxRows() && round.barriers.isEmpty()) {
+                long remaining = deadline - System.nanoTime();
+                Batch next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                if (next == null) {
+                    return;
+                }
+                round.add(next);
+            }
+        }
+
+        private synchronized boolean hasOverflow() {
+            return overflow != null;
+        }
+
+        private synchronized Round takeOverflow() {
+            Round taken = overflow;
+            overflow = null;
+            return taken;
+        }
+
+        private void write(Round round) throws InterruptedException {
+            if (!round.isEmpty()) {
+                long delay = 100;
+                while (true) {
+                    try {
+                        writeInTransaction(round);
+                        break;
+                    } catch (TransientDataAccessException | RecoverableDataAccessException
+                             | DataAccessResourceFailureException | CannotCreateTransactionException e) {
+                        if (!running) {
+                            log.error("Writer {} stopped, dropping {} readings of {} cycles: {}",
+                                    index, round.readings.size(), round.cycles, e.getMessage());
+                            break;
+                        }
+                        // Pollers carry on meanwhile; the queue absorbs the backlog until it fills up
+                        log.warn("Writer {} could not write {} cycles, retrying in {} ms: {}",
+                                index, round.cycles, delay, e.getMessage());
+                        Thread.sleep(delay);
+                        delay = Math.min(delay * 2, MAX_RETRY_DELAY_MS);
+                    } catch (RuntimeException e) {
+                        log.error("Writer {} dropped {} readings of {} cycles that cannot be written",
+                                index, round.readings.size(), round.cycles, e);
+                        break;
+                    }
+                }
+            }
+            round.barriers.forEach(barrier -> barrier.complete(null));
+        }
+
+        private void writeInTransaction(Round round) {
+            long start = System.nanoTime();
+            // The submitted readings are already published to live state, SSE subscribers and health
+            // monitoring; the writer sets the generated ids, so it gets copies of its own
+            List<DetectorReading> rows = round.readings.stream().map(reading -> reading.toBuilder().build()).toList();
+            WriteStats stats = transactionTemplate.execute(tx -> {
+                WriteStats written = ingestionWriter.write(
+                        List.copyOf(round.opened.values()), List.copyOf(round.extended.values()), rows);
+                rollupService.record(rows);
+                return written;
+            });
+            recentReadingsStore.record(rows);
+            ingestionMetrics.recordWrite(stats, System.nanoTime() - start);
+            log.info("Wrote {} cycles, {} rows via {} in {} ms ({} rows/s, {} status intervals opened, {} extended)",
+                    round.cycles, stats.totalRows(), ingestionConfig.getWriteMode(), stats.duration().toMillis(),
+                    Math.round(stats.rowsPerSecond()), stats.statusRows(), stats.extendedStatusRows());
+        }
+    }
+
+    /** One submitted cycle, or a flush barrier without rows. */
+    private record Batch(List<ControllerStatus> opened, List<ControllerStatus> extended,
+                         List<DetectorReading> readings, CompletableFuture<Void> barrier) {
+
+        boolean isEmpty() {
+            return opened.isEmpty() && extended.isEmpty() && readings.isEmpty();
+        }
+    }
+
+    /** Cycles merged into one write. */
+    private static final class Round {
+
+        private final Map<IntervalKey, ControllerStatus> opened = new LinkedHashMap<>();
+        private final Map<IntervalKey, ControllerStatus> extended = new LinkedHashMap<>();
+        private final List<DetectorReading> readings = new ArrayList<>();
+        private final List<CompletableFuture<Void>> barriers = new ArrayList<>();
+        private int cycles;
+
+        private void add(Batch batch) {
+            if (batch.barrier() != null) {
+                barriers.add(batch.barrier());
+                return;
+            }
+            addStatuses(batch.opened(), batch.extended());
+            readings.addAll(batch.readings());
+            cycles++;
+        }
+
+        private void addOverflow(Round overflow) {
+            if (overflow != null) {
+                addStatuses(List.copyOf(overflow.opened.values()), List.copyOf(overflow.extended.values()));
+                cycles += overflow.cycles;
+            }
+        }
+
+        private void addStatuses(List<ControllerStatus> openedStatuses, List<ControllerStatus> extendedStatuses) {
+            for (ControllerStatus status : openedStatuses) {
+                IntervalKey key = IntervalKey.of(status);
+                ControllerStatus extension = extended.remove(key);
+                opened.merge(key, extension != null ? later(status, extension) : status, Round::later);
+            }
+            for (ControllerStatus status : extendedStatuses) {
+                IntervalKey key = IntervalKey.of(status);
+                if (opened.containsKey(key)) {
+                    opened.merge(key, status, Round::later);
+                } else {
+                    extended.merge(key, status, Round::later);
+                }
+            }
+        }
+
+        private boolean isEmpty() {
+            return opened.isEmpty() && extended.isEmpty() && readings.isEmpty();
+        }
+
+        /** Cycles can be merged out of poll order; the interval reaching furthest wins. */
+        private static ControllerStatus later(ControllerStatus a, ControllerStatus b) {
+            return b.getValidTo().isAfter(a.getValidTo()) ? b : a;
+        }
+    }
+
+    private record IntervalKey(String controllerId, Instant validFrom) {
+
+        static IntervalKey of(ControllerStatus status) {
+            return new IntervalKey(status.getControllerId(), status.getValidFrom());
+        }
+    }
+}
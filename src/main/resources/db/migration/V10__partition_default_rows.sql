@@ -0,0 +1,26 @@
+-- V3 only created daily partitions for the 90 days before the migration, so older
+-- history went into the DEFAULT partitions. PartitionMaintenanceService only creates
+-- partitions from today onwards, so nothing ever moved those rows out again; they
+-- were only ever deleted by retention, never dropped with a partition.
+-- Give every day that still has rows in a DEFAULT partition its own daily partition.
+-- This goes back to the oldest row and uses the same move-and-attach steps as
+-- PartitionMaintenanceService. Retention then drops these partitions like any other.
+DO $$
+DECLARE
+    parent TEXT;
+    key TEXT;
+    partition TEXT;
+    day DATE;
+BEGIN
+    FOR parent, key IN VALUES ('detector_readings', 'fetched_at'), ('controller_status', 'valid_from') LOOP
+        FOR day IN EXECUTE format('SELECT DISTINCT %I::date FROM %I ORDER BY 1', key, parent || '_default') LOOP
+            partition := parent || '_p' || to_char(day, 'YYYYMMDD');
+            EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS)', partition, parent);
+            EXECUTE format('WITH moved AS (DELETE FROM %I WHERE %I >= %L AND %I < %L RETURNING *) '
+                           'INSERT INTO %I SELECT * FROM moved',
+                           parent || '_default', key, day, key, day + 1, partition);
+            EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                           parent, partition, day, day + 1);
+        END LOOP;
+    END LOOP;
+END $$;
@@ -0,0 +1,10 @@
+-- Cursor pages compare (timestamp, id) against the cursor as one row value. With id in the
+-- index the comparison becomes the start of the index scan, so a page never reads the
+-- rows of the pages before it, and rows sharing a timestamp come back in index order.
+DROP INDEX idx_detector_readings_controller_fetched;
+CREATE INDEX idx_detector_readings_controller_fetched
+    ON detector_readings(controller_key, fetched_at, id);
+
+DROP INDEX idx_command_executions_controller_executed;
+CREATE INDEX idx_command_executions_controller_executed
+    ON command_executions(controller_key, executed_at DESC, id DESC);
@@ -0,0 +1,8 @@
+-- Hand out history IDs in blocks of 50 so Hibernate's pooled optimizer can
+-- assign IDs in memory and send inserts as JDBC batches. Must match the
+-- allocationSize of the @SequenceGenerator on each entity.
+ALTER SEQUENCE controller_status_id_seq INCREMENT BY 50;
+
+ALTER SEQUENCE detector_readings_id_seq INCREMENT BY 50;
+
+ALTER SEQUENCE command_executions_id_seq INCREMENT BY 50;
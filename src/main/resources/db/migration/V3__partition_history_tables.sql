@@ -0,0 +1,85 @@
+-- Range-partition detector_readings and controller_status by day on fetched_at.
+-- Retention then drops whole partitions instead of deleting rows, and index
+-- maintenance and vacuum only ever touch the partitions being written.
+-- Future partitions are created ahead of time by PartitionMaintenanceService;
+-- the DEFAULT partition only catches rows outside every daily range.
+
+-- Detector readings
+ALTER TABLE detector_readings RENAME TO detector_readings_unpartitioned;
+ALTER INDEX detector_readings_pkey RENAME TO detector_readings_unpartitioned_pkey;
+DROP INDEX idx_detector_readings_controller_fetched;
+ALTER SEQUENCE detector_readings_id_seq OWNED BY NONE;
+
+CREATE TABLE detector_readings (
+    id BIGINT NOT NULL DEFAULT nextval('detector_readings_id_seq'),
+    controller_id VARCHAR(100) NOT NULL REFERENCES controllers(id),
+    detector_id INTEGER NOT NULL,
+    detector_name VARCHAR(50),
+    vehicle_count INTEGER,
+    occupancy DECIMAL(5,4),
+    reading_timestamp TIMESTAMP NOT NULL,
+    fetched_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (id, fetched_at)
+) PARTITION BY RANGE (fetched_at);
+
+ALTER SEQUENCE detector_readings_id_seq OWNED BY detector_readings.id;
+
+CREATE TABLE detector_readings_default PARTITION OF detector_readings DEFAULT;
+
+-- Controller status history
+ALTER TABLE controller_status RENAME TO controller_status_unpartitioned;
+ALTER INDEX controller_status_pkey RENAME TO controller_status_unpartitioned_pkey;
+DROP INDEX idx_controller_status_controller_fetched;
+ALTER SEQUENCE controller_status_id_seq OWNED BY NONE;
+
+CREATE TABLE controller_status (
+    id BIGINT NOT NULL DEFAULT nextval('controller_status_id_seq'),
+    controller_id VARCHAR(100) NOT NULL REFERENCES controllers(id),
+    state VARCHAR(50) NOT NULL,
+    program VARCHAR(50),
+    fetched_at TIMESTAMP NOT NULL,
+    errors JSONB,
+    PRIMARY KEY (id, fetched_at)
+) PARTITION BY RANGE (fetched_at);
+
+ALTER SEQUENCE controller_status_id_seq OWNED BY controller_status.id;
+
+CREATE TABLE controller_status_default PARTITION OF controller_status DEFAULT;
+
+-- Daily partitions for the last 90 days of existing data up to a week ahead;
+-- anything older lands in the DEFAULT partition and is purged by retention
+DO $$
+DECLARE
+    parent TEXT;
+    first_day DATE;
+    day DATE;
+BEGIN
+    FOREACH parent IN ARRAY ARRAY['detector_readings', 'controller_status'] LOOP
+        EXECUTE format('SELECT MIN(fetched_at)::date FROM %I', parent || '_unpartitioned') INTO first_day;
+        first_day := GREATEST(LEAST(COALESCE(first_day, CURRENT_DATE), CURRENT_DATE), CURRENT_DATE - 90);
+
+        FOR day IN SELECT d::date FROM generate_series(first_day, CURRENT_DATE + 7, INTERVAL '1 day') AS d LOOP
+            EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                           parent || '_p' || to_char(day, 'YYYYMMDD'), parent, day, day + 1);
+        END LOOP;
+    END LOOP;
+END $$;
+
+INSERT INTO detector_readings (id, controller_id, detector_id, detector_name, vehicle_count, occupancy,
+                               reading_timestamp, fetched_at)
+SELECT id, controller_id, detector_id, detector_name, vehicle_count, occupancy, reading_timestamp, fetched_at
+FROM detector_readings_unpartitioned;
+
+INSERT INTO controller_status (id, controller_id, state, program, fetched_at, errors)
+SELECT id, controller_id, state, program, fetched_at, errors
+FROM controller_status_unpartitioned;
+
+DROP TABLE detector_readings_unpartitioned;
+DROP TABLE controller_status_unpartitioned;
+
+-- Indexes on the parents cascade to every partition, present and future
+CREATE INDEX idx_controller_status_controller_fetched
+    ON controller_status(controller_id, fetched_at DESC);
+
+CREATE INDEX idx_detector_readings_controller_fetched
+    ON detector_readings(controller_id, fetched_at DESC);
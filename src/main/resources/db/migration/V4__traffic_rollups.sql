@@ -0,0 +1,29 @@
+-- Pre-aggregated traffic per time bucket, maintained incrementally by ingestion.
+-- Averages are kept as sum + sample count so buckets can be merged with upserts.
+-- Rollups are derived data and go away with their controller.
+CREATE TABLE detector_rollups (
+    controller_id VARCHAR(100) NOT NULL REFERENCES controllers(id) ON DELETE CASCADE,
+    detector_id INTEGER NOT NULL,
+    resolution VARCHAR(8) NOT NULL,
+    bucket_start TIMESTAMP NOT NULL,
+    sample_count INTEGER NOT NULL,
+    vehicle_count BIGINT NOT NULL,
+    occupancy_samples INTEGER NOT NULL,
+    occupancy_sum DECIMAL(14,4) NOT NULL,
+    occupancy_min DECIMAL(5,4),
+    occupancy_max DECIMAL(5,4),
+    PRIMARY KEY (controller_id, detector_id, resolution, bucket_start)
+);
+
+CREATE TABLE controller_rollups (
+    controller_id VARCHAR(100) NOT NULL REFERENCES controllers(id) ON DELETE CASCADE,
+    resolution VARCHAR(8) NOT NULL,
+    bucket_start TIMESTAMP NOT NULL,
+    sample_count INTEGER NOT NULL,
+    vehicle_count BIGINT NOT NULL,
+    occupancy_samples INTEGER NOT NULL,
+    occupancy_sum DECIMAL(14,4) NOT NULL,
+    occupancy_min DECIMAL(5,4),
+    occupancy_max DECIMAL(5,4),
+    PRIMARY KEY (controller_id, resolution, bucket_start)
+);
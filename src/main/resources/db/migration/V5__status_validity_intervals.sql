@@ -0,0 +1,44 @@
+-- Store controller status as run-length intervals: a row covers every poll from
+-- valid_from to valid_to that returned the same state, program and errors.
+-- Intervals never span a UTC day, so they always live entirely inside the daily
+-- partition of their valid_from and partition-drop retention stays exact.
+
+ALTER TABLE controller_status RENAME COLUMN fetched_at TO valid_from;
+ALTER TABLE controller_status ADD COLUMN valid_to TIMESTAMP;
+UPDATE controller_status SET valid_to = valid_from;
+ALTER TABLE controller_status ALTER COLUMN valid_to SET NOT NULL;
+
+ALTER INDEX idx_controller_status_controller_fetched RENAME TO idx_controller_status_controller_valid_from;
+
+-- Collapse existing consecutive identical rows into one interval per run:
+-- first stretch each run's head row over the whole run, then delete the rest
+CREATE VIEW controller_status_runs AS
+SELECT id, valid_from, starts_run,
+       MAX(valid_from) OVER (PARTITION BY controller_id, run) AS run_valid_to
+FROM (
+    SELECT id, controller_id, valid_from, starts_run,
+           SUM(starts_run) OVER (PARTITION BY controller_id ORDER BY valid_from, id) AS run
+    FROM (
+        SELECT id, controller_id, valid_from,
+               CASE WHEN state IS NOT DISTINCT FROM LAG(state) OVER w
+                     AND program IS NOT DISTINCT FROM LAG(program) OVER w
+                     AND errors IS NOT DISTINCT FROM LAG(errors) OVER w
+                     AND valid_from::date = (LAG(valid_from) OVER w)::date
+                    THEN 0 ELSE 1 END AS starts_run
+        FROM controller_status
+        WINDOW w AS (PARTITION BY controller_id ORDER BY valid_from, id)
+    ) marked
+) numbered;
+
+UPDATE controller_status s
+SET valid_to = r.run_valid_to
+FROM controller_status_runs r
+WHERE s.id = r.id AND s.valid_from = r.valid_from
+  AND r.starts_run = 1 AND r.run_valid_to > s.valid_from;
+
+DELETE FROM controller_status s
+USING controller_status_runs r
+WHERE s.id = r.id AND s.valid_from = r.valid_from
+  AND r.starts_run = 0;
+
+DROP VIEW controller_status_runs;
@@ -0,0 +1,16 @@
+-- Commands are accepted first and dispatched to the device afterwards.
+-- executed_at is now the time the command was accepted; completed_at is when the
+-- device answered, and success stays NULL until then.
+ALTER TABLE command_executions ADD COLUMN status VARCHAR(20);
+ALTER TABLE command_executions ADD COLUMN completed_at TIMESTAMP;
+
+UPDATE command_executions
+SET status = CASE WHEN success THEN 'SUCCEEDED' ELSE 'FAILED' END,
+    completed_at = executed_at;
+
+ALTER TABLE command_executions ALTER COLUMN status SET NOT NULL;
+ALTER TABLE command_executions ALTER COLUMN success DROP NOT NULL;
+
+-- Lets the dispatcher find commands left pending by a shutdown cheaply
+CREATE INDEX idx_command_executions_pending
+    ON command_executions(executed_at) WHERE status = 'PENDING';
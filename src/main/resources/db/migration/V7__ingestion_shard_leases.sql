@@ -0,0 +1,14 @@
+-- Lets several instances share ingestion. Controllers are hashed onto a fixed number of
+-- shards; an instance polls only the controllers of shards it holds an unexpired lease on.
+-- Rows are created by ShardLeaseManager for the configured cluster.shard-count.
+CREATE TABLE ingestion_shard_leases (
+    shard INTEGER PRIMARY KEY,
+    owner VARCHAR(200),
+    expires_at TIMESTAMP
+);
+
+-- Live instances; the number of members decides how many shards each one should hold
+CREATE TABLE ingestion_members (
+    instance_id VARCHAR(200) PRIMARY KEY,
+    heartbeat_at TIMESTAMP NOT NULL
+);
@@ -0,0 +1,45 @@
+-- Shrink history rows. Every row repeated the full controller id (typically 25 bytes
+-- plus header) and stored occupancy as NUMERIC; history tables now reference controllers
+-- by a 4-byte surrogate key, detector ids are SMALLINT and occupancy is SMALLINT basis
+-- points (0.1234 -> 1234). The string id stays the external identifier in controllers.
+ALTER TABLE controllers ADD COLUMN controller_key INTEGER GENERATED BY DEFAULT AS IDENTITY;
+ALTER TABLE controllers ADD CONSTRAINT controllers_controller_key_key UNIQUE (controller_key);
+
+-- Detector readings; the type change rewrites every partition, which also drops the
+-- space of the old controller_id column
+ALTER TABLE detector_readings ADD COLUMN controller_key INTEGER;
+UPDATE detector_readings r SET controller_key = c.controller_key FROM controllers c WHERE c.id = r.controller_id;
+DROP INDEX idx_detector_readings_controller_fetched;
+ALTER TABLE detector_readings DROP COLUMN controller_id;
+ALTER TABLE detector_readings
+    ALTER COLUMN controller_key SET NOT NULL,
+    ALTER COLUMN detector_id TYPE SMALLINT,
+    ALTER COLUMN occupancy TYPE SMALLINT USING round(occupancy * 10000)::SMALLINT,
+    ADD CONSTRAINT detector_readings_controller_key_fkey
+        FOREIGN KEY (controller_key) REFERENCES controllers(controller_key);
+CREATE INDEX idx_detector_readings_controller_fetched
+    ON detector_readings(controller_key, fetched_at DESC);
+
+-- Status intervals and commands are small; existing rows keep their old size until the
+-- next VACUUM FULL, new rows are written compact
+ALTER TABLE controller_status ADD COLUMN controller_key INTEGER;
+UPDATE controller_status s SET controller_key = c.controller_key FROM controllers c WHERE c.id = s.controller_id;
+DROP INDEX idx_controller_status_controller_valid_from;
+ALTER TABLE controller_status DROP COLUMN controller_id;
+ALTER TABLE controller_status
+    ALTER COLUMN controller_key SET NOT NULL,
+    ADD CONSTRAINT controller_status_controller_key_fkey
+        FOREIGN KEY (controller_key) REFERENCES controllers(controller_key);
+CREATE INDEX idx_controller_status_controller_valid_from
+    ON controller_status(controller_key, valid_from DESC);
+
+ALTER TABLE command_executions ADD COLUMN controller_key INTEGER;
+UPDATE command_executions e SET controller_key = c.controller_key FROM controllers c WHERE c.id = e.controller_id;
+DROP INDEX idx_command_executions_controller_executed;
+ALTER TABLE command_executions DROP COLUMN controller_id;
+ALTER TABLE command_executions
+    ALTER COLUMN controller_key SET NOT NULL,
+    ADD CONSTRAINT command_executions_controller_key_fkey
+        FOREIGN KEY (controller_key) REFERENCES controllers(controller_key);
+CREATE INDEX idx_command_executions_controller_executed
+    ON command_executions(controller_key, executed_at DESC);
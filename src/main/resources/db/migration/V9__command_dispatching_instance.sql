@@ -0,0 +1,3 @@
+-- Pending commands are queued in the memory of the instance that accepted them. Recording that
+-- instance lets the others tell a command still in flight from one whose instance is gone.
+ALTER TABLE command_executions ADD COLUMN dispatched_by VARCHAR(200);
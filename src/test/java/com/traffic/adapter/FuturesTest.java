@@ -0,0 +1,81 @@
+package com.traffic.adapter;
+
+import com.traffic.adapter.dto.CommandResultDto;
+import com.traffic.adapter.dto.ControllerStatusDto;
+import com.traffic.adapter.dto.DetectorReadingsDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FuturesTest {
+
+    @Test
+    void hedged_usesTheFasterAttemptAndCancelsTheOther() {
+        List<CompletableFuture<String>> attempts = new CopyOnWriteArrayList<>();
+        CompletableFuture<String> result = Futures.hedged(() -> {
+            CompletableFuture<String> attempt = new CompletableFuture<>();
+            attempts.add(attempt);
+            if (attempts.size() == 2) {
+                attempt.complete("second");
+            }
+            return attempt;
+        }, 50);
+
+        assertThat(result.orTimeout(5, SECONDS).join()).isEqualTo("second");
+        assertThat(attempts).hasSize(2);
+        assertThat(attempts.getFirst()).isCancelled();
+    }
+
+    @Test
+    void hedged_failsOnlyWhenBothAttemptsFail() {
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> result = Futures.hedged(() -> CompletableFuture.failedFuture(
+                new IllegalStateException("attempt " + calls.incrementAndGet() + " failed")), 60_000);
+
+        // The first failure starts the second attempt at once instead of waiting for the delay
+        assertThatThrownBy(() -> result.get(5, SECONDS)).hasRootCauseMessage("attempt 2 failed");
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void blockingBridge_interruptsTheCallWhenItsFutureTimesOut() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        ProtocolAdapter hanging = new ProtocolAdapter() {
+            @Override
+            public ControllerStatusDto readStatus(String controllerId) {
+                try {
+                    Thread.sleep(60_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                throw new IllegalStateException("Interrupted");
+            }
+
+            @Override
+            public DetectorReadingsDto readDetectorReadings(String controllerId) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CommandResultDto sendCommand(String controllerId, String command, String value) {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        CompletableFuture<?> call = AsyncProtocolAdapter.of(hanging).readSnapshotAsync("hung")
+                .orTimeout(100, MILLISECONDS);
+
+        assertThatThrownBy(call::join).hasCauseInstanceOf(TimeoutException.class);
+        assertThat(interrupted.await(5, SECONDS)).isTrue();
+    }
+}
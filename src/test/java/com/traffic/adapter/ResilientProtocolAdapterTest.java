@@ -0,0 +1,192 @@
+package com.traffic.adapter;
+
+import com.traffic.adapter.ProtocolAdapter.SnapshotResult;
+import com.traffic.adapter.ResilientProtocolAdapter.CallNotPermittedException;
+import com.traffic.adapter.dto.CommandResultDto;
+import com.traffic.adapter.dto.ControllerStatusDto;
+import com.traffic.adapter.dto.DetectorReadingsDto;
+import com.traffic.config.ResilienceConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResilientProtocolAdapterTest {
+
+    private final ScriptedAdapter device = new ScriptedAdapter();
+
+    @Test
+    void failingController_opensCircuitAndFailsFast() {
+        ResilientProtocolAdapter adapter = new ResilientProtocolAdapter(device, config(60000));
+        device.failing.set(true);
+
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> adapter.readStatus("broken")).isInstanceOf(IllegalStateException.class);
+        }
+        assertThatThrownBy(() -> adapter.readStatus("broken")).isInstanceOf(CallNotPermittedException.class);
+
+        assertThat(device.calls.get()).isEqualTo(5);
+        CircuitBreaker.Snapshot snapshot = adapter.getCircuitBreaker("broken");
+        assertThat(snapshot.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(snapshot.failureRate()).isEqualTo(100.0);
+        assertThat(snapshot.openedAt()).isNotNull();
+        assertThat(adapter.getCircuitBreaker("healthy").state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(adapter.getCircuitBreakers(CircuitBreaker.State.OPEN))
+                .extracting(CircuitBreaker.Snapshot::controllerId).containsExactly("broken");
+    }
+
+    @Test
+    void occasionalFailures_keepCircuitClosed() {
+        ResilientProtocolAdapter adapter = new ResilientProtocolAdapter(device, config(60000));
+
+        for (int i = 0; i < 30; i++) {
+            device.failing.set(i % 3 == 0);
+            try {
+                adapter.readStatus("flaky");
+            } catch (IllegalStateException expected) {
+                // every third call fails
+            }
+        }
+
+        assertThat(adapter.getCircuitBreaker("flaky").state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(device.calls.get()).isEqualTo(30);
+    }
+
+    @Test
+    void halfOpenCircuit_closesAfterSuccessfulTrialsAndReopensOnFailure() throws InterruptedException {
+        ResilientProtocolAdapter adapter = new ResilientProtocolAdapter(device, config(50));
+        device.failing.set(true);
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> adapter.readStatus("c1")).isInstanceOf(IllegalStateException.class);
+        }
+
+        Thread.sleep(80);
+        assertThatThrownBy(() -> adapter.readStatus("c1")).isInstanceOf(IllegalStateException.class);
+        assertThat(adapter.getCircuitBreaker("c1").state()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        Thread.sleep(80);
+        device.failing.set(false);
+        adapter.readStatus("c1");
+        assertThat(adapter.getCircuitBreaker("c1").state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        adapter.readDetectorReadings("c1");
+        assertThat(adapter.getCircuitBreaker("c1").state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(adapter.getCircuitBreaker("c1").bufferedCalls()).isZero();
+    }
+
+    @Test
+    void bulkhead_limitsConcurrentCallsPerController() throws InterruptedException {
+        ResilienceConfig config = config(60000);
+        config.setMaxConcurrentCalls(2);
+        config.setMaxWaitMs(0);
+        ResilientProtocolAdapter adapter = new ResilientProtocolAdapter(device, config);
+        device.blocking = new CountDownLatch(1);
+
+        List<Thread> hanging = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            hanging.add(Thread.ofVirtual().start(() -> adapter.sendCommand("slow", "SET_PROGRAM", "SP1")));
+        }
+        while (device.calls.get() < 2) {
+            Thread.sleep(5);
+        }
+
+        assertThatThrownBy(() -> adapter.readStatus("slow")).isInstanceOf(CallNotPermittedException.class);
+        assertThat(adapter.getCircuitBreaker("slow").activeCalls()).isEqualTo(2);
+        device.blocking.countDown();
+        for (Thread thread : hanging) {
+            thread.join();
+        }
+        // Rejected calls are not failures, and other controllers were never affected
+        assertThat(adapter.getCircuitBreaker("slow").failedCalls()).isZero();
+        assertThat(adapter.readStatus("slow")).isNotNull();
+    }
+
+    @Test
+    void batchRead_skipsOpenCircuitsAndCountsEachControllersResult() {
+        ResilientProtocolAdapter adapter = new ResilientProtocolAdapter(device, config(60000));
+        device.broken.add("broken");
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(adapter.readSnapshots(List.of("ok", "broken")))
+                    .extracting(SnapshotResult::succeeded).containsExactly(true, false);
+        }
+        int callsBefore = device.calls.get();
+        List<SnapshotResult> results = adapter.readSnapshots(List.of("broken", "ok"));
+
+        assertThat(results).extracting(SnapshotResult::controllerId).containsExactly("broken", "ok");
+        assertThat(results.get(0).failure()).isInstanceOf(CallNotPermittedException.class);
+        assertThat(results.get(1).snapshot().getStatus().getState()).isEqualTo("OPERATIONAL");
+        // Only the healthy controller reached the device, with its status and detector reads
+        assertThat(device.calls.get() - callsBefore).isEqualTo(2);
+        assertThat(adapter.getCircuitBreaker("broken").state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(adapter.getCircuitBreaker("ok").state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void disabled_passesCallsThrough() {
+        ResilienceConfig config = config(60000);
+        config.setEnabled(false);
+        ResilientProtocolAdapter adapter = new ResilientProtocolAdapter(device, config);
+        device.failing.set(true);
+
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> adapter.readStatus("c1")).isInstanceOf(IllegalStateException.class);
+        }
+
+        assertThat(device.calls.get()).isEqualTo(10);
+        assertThat(adapter.getCircuitBreakers(null)).isEmpty();
+    }
+
+    private static ResilienceConfig config(long openDurationMs) {
+        ResilienceConfig config = new ResilienceConfig();
+        config.setOpenDurationMs(openDurationMs);
+        return config;
+    }
+
+    private static class ScriptedAdapter implements ProtocolAdapter {
+        final AtomicBoolean failing = new AtomicBoolean();
+        final Set<String> broken = ConcurrentHashMap.newKeySet();
+        final AtomicInteger calls = new AtomicInteger();
+        volatile CountDownLatch blocking;
+
+        @Override
+        public ControllerStatusDto readStatus(String controllerId) {
+            answer(controllerId);
+            return ControllerStatusDto.builder().controllerId(controllerId).state("OPERATIONAL").build();
+        }
+
+        @Override
+        public DetectorReadingsDto readDetectorReadings(String controllerId) {
+            answer(controllerId);
+            return DetectorReadingsDto.builder().controllerId(controllerId).detectors(List.of()).build();
+        }
+
+        @Override
+        public CommandResultDto sendCommand(String controllerId, String command, String value) {
+            answer(controllerId);
+            return CommandResultDto.builder().controllerId(controllerId).success(true).build();
+        }
+
+        private void answer(String controllerId) {
+            calls.incrementAndGet();
+            CountDownLatch latch = blocking;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failing.get() || broken.contains(controllerId)) {
+                throw new IllegalStateException("Controller unreachable");
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.traffic.adapter.nio;
+
+import com.traffic.adapter.ProtocolAdapter.SnapshotResult;
+import com.traffic.adapter.dto.CommandResultDto;
+import com.traffic.adapter.dto.ControllerStatusDto;
+import com.traffic.adapter.dto.DetectorReadingsDto;
+import com.traffic.config.DeviceConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NioProtocolAdapterTest {
+
+    private DeviceSimulator simulator;
+    private NioProtocolAdapter adapter;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        simulator = startSimulator(0, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (adapter != null) {
+            adapter.close();
+        }
+        simulator.stop();
+    }
+
+    @Test
+    void answers_roundTripThroughTheSimulator() {
+        adapter = new NioProtocolAdapter(config(5000));
+
+        ControllerStatusDto status = adapter.readStatus("fd11.z1.downtown.loc");
+        DetectorReadingsDto readings = adapter.readDetectorReadings("fd11.z1.downtown.loc");
+        CommandResultDto result = adapter.sendCommand("fd11.z1.downtown.loc", "SET_PROGRAM", "SP2");
+
+        assertThat(status.getControllerId()).isEqualTo("fd11.z1.downtown.loc");
+        assertThat(status.getState()).isNotBlank();
+        assertThat(status.getLastUpdated()).isNotNull();
+        assertThat(readings.getDetectors()).isNotEmpty().allSatisfy(detector -> {
+            assertThat(detector.getName()).isEqualTo("D" + detector.getId());
+            assertThat(detector.getOccupancy().scale()).isEqualTo(4);
+        });
+        assertThat(result.getCommand()).isEqualTo("SET_PROGRAM");
+        assertThat(result.getValue()).isEqualTo("SP2");
+    }
+
+    @Test
+    void concurrentCalls_arePipelinedOverOneConnection() throws Exception {
+        simulator.stop();
+        simulator = startSimulator(0, 50);
+        adapter = new NioProtocolAdapter(config(5000));
+
+        List<Future<DetectorReadingsDto>> calls = new ArrayList<>();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 2000; i++) {
+                String controllerId = "fd" + i + ".z1.simulated.loc";
+                calls.add(executor.submit(() -> adapter.readDetectorReadings(controllerId)));
+            }
+            for (int i = 0; i < calls.size(); i++) {
+                assertThat(calls.get(i).get().getControllerId()).isEqualTo("fd" + i + ".z1.simulated.loc");
+            }
+        }
+
+        // 2000 calls of 50 ms each, 256 at a time, instead of one after another
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+        assertThat(simulator.getAcceptedConnections()).isEqualTo(1);
+        assertThat(adapter.connectionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void batchRead_takesOneRequestPerConnection() {
+        DeviceConfig config = config(5000);
+        config.setConnectionsPerEndpoint(2);
+        config.setMaxBatchSize(100);
+        adapter = new NioProtocolAdapter(config);
+        List<String> ids = IntStream.range(0, 150).mapToObj(i -> "fd" + i + ".z1.simulated.loc").toList();
+
+        List<SnapshotResult> results = adapter.readSnapshots(ids);
+
+        assertThat(results).extracting(SnapshotResult::controllerId).containsExactlyElementsOf(ids);
+        assertThat(results).allSatisfy(result -> {
+            assertThat(result.succeeded()).isTrue();
+            assertThat(result.snapshot().getStatus().getControllerId()).isEqualTo(result.controllerId());
+            assertThat(result.snapshot().getReadings().getDetectors()).isNotEmpty();
+        });
+        // 150 controllers over two connections, each share within one batch
+        assertThat(simulator.getRequestsServed()).isEqualTo(2);
+    }
+
+    @Test
+    void slowDevice_failsAfterRequestTimeout() throws IOException {
+        simulator.stop();
+        simulator = startSimulator(0, 2000);
+        adapter = new NioProtocolAdapter(config(200));
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> adapter.readStatus("fd11.z1.downtown.loc"))
+                .isInstanceOf(NioProtocolAdapter.DeviceException.class)
+                .hasMessageContaining("no answer within 200 ms");
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void lostConnection_isReopenedByTheNextCall() throws IOException {
+        adapter = new NioProtocolAdapter(config(5000));
+        adapter.readStatus("fd11.z1.downtown.loc");
+        int port = simulator.getPort();
+
+        simulator.stop();
+        assertThatThrownBy(() -> adapter.readStatus("fd11.z1.downtown.loc"))
+                .isInstanceOf(NioProtocolAdapter.DeviceException.class);
+
+        simulator = startSimulator(port, 0);
+        assertThat(adapter.readStatus("fd11.z1.downtown.loc").getControllerId()).isEqualTo("fd11.z1.downtown.loc");
+        assertThat(simulator.getAcceptedConnections()).isEqualTo(1);
+    }
+
+    private DeviceConfig config(long requestTimeoutMs) {
+        DeviceConfig config = new DeviceConfig();
+        config.setProtocol(DeviceConfig.Protocol.NIO);
+        config.setDefaultEndpoint("localhost:" + simulator.getPort());
+        config.setRequestTimeoutMs(requestTimeoutMs);
+        config.setMaxInFlight(256);
+        return config;
+    }
+
+    private static DeviceSimulator startSimulator(int port, long latencyMs) throws IOException {
+        DeviceSimulator started = new DeviceSimulator(port, latencyMs);
+        started.start();
+        return started;
+    }
+}
@@ -0,0 +1,90 @@
+package com.traffic.controller;
+
+import com.traffic.AbstractIntegrationTest;
+import com.traffic.service.IngestionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LiveControllerIntegrationTest extends AbstractIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private IngestionService ingestionService;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() {
+        ingestionService.registerControllers();
+    }
+
+    @Test
+    void subscribeToZone_receivesUpdatesForControllersInZone() throws Exception {
+        HttpResponse<InputStream> response = httpClient.send(
+                request("/api/live?zone=z1"), HttpResponse.BodyHandlers.ofInputStream());
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Type")).hasValueSatisfying(
+                type -> assertThat(type).startsWith("text/event-stream"));
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            CompletableFuture<List<String>> events = CompletableFuture.supplyAsync(() -> readDataLines(reader, 3));
+            ingestionService.pollControllers();
+
+            // application-test.yml configures three controllers in zone z1
+            assertThat(events.get(10, TimeUnit.SECONDS))
+                    .hasSize(3)
+                    .allSatisfy(data -> assertThat(data).contains(".z1.").contains("\"readings\""));
+        }
+    }
+
+    @Test
+    void subscribeToUnknownController_returns404() throws Exception {
+        HttpResponse<Void> response = httpClient.send(
+                request("/api/live?controllerId=non.existent.controller"), HttpResponse.BodyHandlers.discarding());
+
+        assertThat(response.statusCode()).isEqualTo(404);
+    }
+
+    private HttpRequest request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Accept", "text/event-stream")
+                .timeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    private static List<String> readDataLines(BufferedReader reader, int count) {
+        List<String> data = new ArrayList<>();
+        try {
+            String line;
+            while (data.size() < count && (line = reader.readLine()) != null) {
+                if (line.startsWith("data:")) {
+                    data.add(line.substring("data:".length()));
+                }
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return data;
+    }
+}
@@ -1,7 +1,10 @@
 package com.traffic.controller;
 
 import com.traffic.AbstractIntegrationTest;
+import com.traffic.adapter.ProtocolAdapter;
 import com.traffic.controller.dto.CommandRequest;
+import com.traffic.domain.CommandExecution;
+import com.traffic.domain.CommandStatus;
 import com.traffic.domain.Controller;
 import com.traffic.domain.ControllerStatus;
 import com.traffic.domain.DetectorReading;
@@ -9,17 +12,25 @@ import com.traffic.repository.CommandExecutionRepository;
 import com.traffic.repository.ControllerRepository;
 import com.traffic.repository.ControllerStatusRepository;
 import com.traffic.repository.DetectorReadingRepository;
+import com.traffic.service.DetectorHealthMonitor;
+import com.traffic.service.RollupService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.RestClient;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -44,7 +55,25 @@ class MonitoringControllerIntegrationTest extends AbstractIntegrationTest {
     @Autowired
     private CommandExecutionRepository commandExecutionRepository;
 
+    @Autowired
+    private RollupService rollupService;
+
+    @Autowired
+    private ProtocolAdapter protocolAdapter;
+
+    @Autowired
+    private DetectorHealthMonitor detectorHealthMonitor;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     private static final String TEST_CONTROLLER_ID = "test.controller.1";
+    private static final ParameterizedTypeReference<List<Map<String, Object>>> JSON_LIST =
+            new ParameterizedTypeReference<>() {
+            };
 
     @BeforeEach
     void setUp() {
@@ -66,11 +95,13 @@ class MonitoringControllerIntegrationTest extends AbstractIntegrationTest {
 
     @Test
     void getStatus_whenStatusExists_returnsLatestStatus() {
+        Instant now = Instant.now();
         ControllerStatus status = ControllerStatus.builder()
                 .controllerId(TEST_CONTROLLER_ID)
                 .state("OPERATIONAL")
                 .program("SP1")
-                .fetchedAt(Instant.now())
+                .validFrom(now)
+                .validTo(now)
                 .errors(List.of())
                 .build();
         controllerStatusRepository.save(status);
@@ -84,6 +115,33 @@ class MonitoringControllerIntegrationTest extends AbstractIntegrationTest {
         assertThat(response.getState()).isEqualTo("OPERATIONAL");
     }
 
+    @Test
+    void getStatusHistory_returnsIntervalsOverlappingRange() {
+        Instant now = Instant.now();
+        controllerStatusRepository.save(ControllerStatus.builder()
+                .controllerId(TEST_CONTROLLER_ID).state("OPERATIONAL").program("SP1").errors(List.of())
+                .validFrom(now.minusSeconds(7200)).validTo(now.minusSeconds(3600))
+                .build());
+        controllerStatusRepository.save(ControllerStatus.builder()
+                .controllerId(TEST_CONTROLLER_ID).state("FAULT").program("SP1").errors(List.of())
+                .validFrom(now.minusSeconds(3570)).validTo(now)
+                .build());
+
+        Map response = restClient.get()
+                .uri("/api/controllers/{id}/status/history?from={from}&to={to}",
+                        TEST_CONTROLLER_ID, now.minusSeconds(5400), now.minusSeconds(1800))
+                .retrieve()
+                .body(Map.class);
+        Map all = restClient.get()
+                .uri("/api/controllers/{id}/status/history", TEST_CONTROLLER_ID)
+                .retrieve()
+                .body(Map.class);
+
+        assertThat((List<Map<String, Object>>) response.get("content"))
+                .extracting(s -> s.get("state")).containsExactly("FAULT", "OPERATIONAL");
+        assertThat((List<Map<String, Object>>) all.get("content")).hasSize(2);
+    }
+
     @Test
     void getDetectorReadings_returnsLatestReadings() {
         Instant now = Instant.now();
@@ -116,19 +174,77 @@ class MonitoringControllerIntegrationTest extends AbstractIntegrationTest {
     }
 
     @Test
-    void sendCommand_executesAndReturnsResult() {
+    void getDetectorHealth_returnsStatisticsOfIngestedReadings() {
+        Instant start = Instant.now();
+        for (int i = 0; i < 3; i++) {
+            detectorHealthMonitor.observe(TEST_CONTROLLER_ID, List.of(DetectorReading.builder()
+                    .controllerId(TEST_CONTROLLER_ID)
+                    .detectorId(1)
+                    .detectorName("D1")
+                    .vehicleCount(10 + i)
+                    .occupancy(BigDecimal.valueOf(0.25))
+                    .build()), start.plusSeconds(30L * i));
+        }
+
+        List<Map<String, Object>> response = restClient.get()
+                .uri("/api/controllers/{id}/detectors/health", TEST_CONTROLLER_ID)
+                .retrieve()
+                .body(JSON_LIST);
+
+        assertThat(response).singleElement().satisfies(detector -> {
+            assertThat(detector.get("detectorId")).isEqualTo(1);
+            assertThat(detector.get("status")).isEqualTo("OK");
+            assertThat(detector.get("samples")).isEqualTo(3);
+            assertThat(detector.get("lastVehicleCount")).isEqualTo(12);
+            assertThat(detector.get("unchangedOccupancyStreak")).isEqualTo(3);
+        });
+
+        HttpStatusCode unknown = restClient.get()
+                .uri("/api/controllers/{id}/detectors/health", "unknown.controller")
+                .exchange((request, result) -> result.getStatusCode());
+        assertThat(unknown).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void sendCommand_acceptsCommandAndCompletesItAsynchronously() throws InterruptedException {
         CommandRequest request = new CommandRequest("CHANGE_PROGRAM", "SP2");
 
-        Map response = restClient.post()
+        ResponseEntity<Map> accepted = restClient.post()
                 .uri("/api/controllers/{id}/commands", TEST_CONTROLLER_ID)
                 .contentType(MediaType.APPLICATION_JSON)
                 .body(request)
                 .retrieve()
-                .body(Map.class);
+                .toEntity(Map.class);
+
+        assertThat(accepted.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(accepted.getBody().get("command")).isEqualTo("CHANGE_PROGRAM");
+        assertThat(accepted.getBody().get("value")).isEqualTo("SP2");
+        assertThat(accepted.getHeaders().getLocation().getPath())
+                .isEqualTo("/api/controllers/" + TEST_CONTROLLER_ID + "/commands/" + accepted.getBody().get("id"));
+
+        Map execution = null;
+        for (int i = 0; i < 50; i++) {
+            execution = restClient.get()
+                    .uri(accepted.getHeaders().getLocation())
+                    .retrieve()
+                    .body(Map.class);
+            if (!"PENDING".equals(execution.get("status"))) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        assertThat(execution.get("status")).isIn("SUCCEEDED", "FAILED");
+        assertThat(execution.get("success")).isNotNull();
+        assertThat(execution.get("completedAt")).isNotNull();
+    }
 
-        assertThat(response).isNotNull();
-        assertThat(response.get("command")).isEqualTo("CHANGE_PROGRAM");
-        assertThat(response.get("value")).isEqualTo("SP2");
+    @Test
+    void getCommand_whenCommandNotFound_returns404() {
+        HttpStatusCode statusCode = restClient.get()
+                .uri("/api/controllers/{id}/commands/{executionId}", TEST_CONTROLLER_ID, Long.MAX_VALUE)
+                .exchange((request, response) -> response.getStatusCode());
+
+        assertThat(statusCode).isEqualTo(HttpStatus.NOT_FOUND);
     }
 
     @Test
@@ -170,6 +286,171 @@ class MonitoringControllerIntegrationTest extends AbstractIntegrationTest {
         assertThat(content).hasSize(1);
     }
 
+    @Test
+    void getDetectorRollups_aggregatesReadingsPerBucket() {
+        Instant minute = Instant.parse("2024-03-01T10:15:00Z");
+        rollupService.record(List.of(
+                reading(1, 10, "0.20", minute.plusSeconds(5)),
+                reading(1, 20, "0.40", minute.plusSeconds(35)),
+                reading(2, 7, "0.10", minute.plusSeconds(35))));
+
+        List<Map<String, Object>> perDetector = restClient.get()
+                .uri("/api/controllers/{id}/detectors/rollups?resolution=1m&detectorId=1&from={from}&to={to}",
+                        TEST_CONTROLLER_ID, minute.minusSeconds(60).toString(), minute.plusSeconds(60).toString())
+                .retrieve()
+                .body(JSON_LIST);
+
+        assertThat(perDetector).hasSize(1);
+        assertThat(perDetector.get(0).get("vehicleCount")).isEqualTo(30);
+        assertThat(perDetector.get(0).get("sampleCount")).isEqualTo(2);
+        assertThat(perDetector.get(0).get("occupancyAvg")).isEqualTo(0.3);
+
+        List<Map<String, Object>> perController = restClient.get()
+                .uri("/api/controllers/{id}/detectors/rollups?resolution=1h&from={from}&to={to}",
+                        TEST_CONTROLLER_ID, minute.minusSeconds(3600).toString(), minute.plusSeconds(3600).toString())
+                .retrieve()
+                .body(JSON_LIST);
+
+        assertThat(perController).hasSize(1);
+        assertThat(perController.get(0).get("vehicleCount")).isEqualTo(37);
+        assertThat(perController.get(0).get("occupancyMax")).isEqualTo(0.4);
+    }
+
+    @Test
+    void getDetectorRollups_withUnknownResolution_returns400() {
+        HttpStatusCode statusCode = restClient.get()
+                .uri("/api/controllers/{id}/detectors/rollups?resolution=5s", TEST_CONTROLLER_ID)
+                .exchange((request, response) -> response.getStatusCode());
+
+        assertThat(statusCode).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    // ==================== Fleet Snapshot Tests ====================
+
+    @Test
+    void getSnapshot_returnsLatestStateOfRequestedControllers() {
+        Controller other = Controller.builder().id("test.controller.2").registeredAt(Instant.now()).build();
+        controllerRepository.save(other);
+        Instant now = Instant.now();
+        controllerStatusRepository.save(ControllerStatus.builder()
+                .controllerId(TEST_CONTROLLER_ID).state("OPERATIONAL").program("SP1").errors(List.of())
+                .validFrom(now.minusSeconds(120)).validTo(now.minusSeconds(60))
+                .build());
+        controllerStatusRepository.save(ControllerStatus.builder()
+                .controllerId(TEST_CONTROLLER_ID).state("FAULT").program("SP2")
+                .errors(List.of(new ControllerStatus.ErrorInfo("E1", "Lamp failure")))
+                .validFrom(now).validTo(now)
+                .build());
+        detectorReadingRepository.save(reading(1, 3, "0.10", now.minusSeconds(60)));
+        detectorReadingRepository.save(reading(1, 7, "0.20", now));
+        detectorReadingRepository.save(reading(2, 9, "0.30", now));
+
+        Map response = restClient.get()
+                .uri("/api/controllers/snapshot?ids={a},{b},unknown.controller", TEST_CONTROLLER_ID, "test.controller.2")
+                .retrieve()
+                .body(Map.class);
+
+        assertThat(response.get("count")).isEqualTo(2);
+        List<Map<String, Object>> controllers = (List<Map<String, Object>>) response.get("controllers");
+        assertThat(controllers).extracting(c -> c.get("controllerId"))
+                .containsExactly(TEST_CONTROLLER_ID, "test.controller.2");
+
+        Map<String, Object> first = controllers.get(0);
+        assertThat(((Map<String, Object>) first.get("status")).get("state")).isEqualTo("FAULT");
+        assertThat((List<Map<String, Object>>) ((Map<String, Object>) first.get("status")).get("errors"))
+                .extracting(e -> e.get("code")).containsExactly("E1");
+        assertThat((List<Map<String, Object>>) first.get("readings"))
+                .extracting(r -> r.get("vehicleCount")).containsExactly(7, 9);
+
+        Map<String, Object> second = controllers.get(1);
+        assertThat(second.get("status")).isNull();
+        assertThat((List<?>) second.get("readings")).isEmpty();
+    }
+
+    @Test
+    void getSnapshot_byZone_onlyIncludesControllersOfThatZone() {
+        controllerRepository.save(Controller.builder().id("fd1.z7.test.loc").registeredAt(Instant.now()).build());
+        controllerRepository.save(Controller.builder().id("fd2.z8.test.loc").registeredAt(Instant.now()).build());
+
+        Map response = restClient.get()
+                .uri("/api/controllers/snapshot?zone=z7")
+                .retrieve()
+                .body(Map.class);
+
+        assertThat((List<Map<String, Object>>) response.get("controllers"))
+                .extracting(c -> c.get("controllerId")).containsExactly("fd1.z7.test.loc");
+
+        Map filtered = restClient.get()
+                .uri("/api/controllers/snapshot?ids=fd1.z7.test.loc,fd2.z8.test.loc&zone=z8")
+                .retrieve()
+                .body(Map.class);
+
+        assertThat((List<Map<String, Object>>) filtered.get("controllers"))
+                .extracting(c -> c.get("controllerId")).containsExactly("fd2.z8.test.loc");
+    }
+
+    // ==================== Export Tests ====================
+
+    @Test
+    void exportDetectorReadings_asNdjson_streamsOneObjectPerLine() {
+        Instant now = Instant.now();
+        for (int i = 0; i < 3; i++) {
+            detectorReadingRepository.save(reading(1, i, "0.10", now.minusSeconds(180 - i * 60)));
+        }
+
+        ResponseEntity<String> response = restClient.get()
+                .uri("/api/controllers/{id}/detectors/export?format=ndjson", TEST_CONTROLLER_ID)
+                .retrieve()
+                .toEntity(String.class);
+
+        assertThat(response.getHeaders().getContentType().toString()).startsWith("application/x-ndjson");
+        assertThat(response.getHeaders().getContentDisposition().getFilename())
+                .isEqualTo(TEST_CONTROLLER_ID + "-detectors.ndjson");
+        String[] lines = response.getBody().split("\n");
+        assertThat(lines).hasSize(3);
+        assertThat(lines[0]).startsWith("{").contains("\"vehicleCount\":0");
+        assertThat(lines[2]).contains("\"vehicleCount\":2");
+    }
+
+    @Test
+    void exportDetectorReadings_asCsv_writesHeaderAndQuotedFields() {
+        DetectorReading quoted = reading(1, 5, "0.25", Instant.now().minusSeconds(60));
+        quoted.setDetectorName("Lane \"A\", north");
+        detectorReadingRepository.save(quoted);
+
+        String body = restClient.get()
+                .uri("/api/controllers/{id}/detectors/export?format=csv", TEST_CONTROLLER_ID)
+                .retrieve()
+                .body(String.class);
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).isEqualTo(
+                "id,controllerId,detectorId,detectorName,vehicleCount,occupancy,readingTimestamp,fetchedAt");
+        assertThat(lines[1]).contains(",test.controller.1,1,\"Lane \"\"A\"\", north\",5,0.2500,");
+    }
+
+    @Test
+    void exportDetectorReadings_whenControllerNotFound_returns404() {
+        HttpStatusCode statusCode = restClient.get()
+                .uri("/api/controllers/{id}/detectors/export", "non.existent.controller")
+                .exchange((request, response) -> response.getStatusCode());
+
+        assertThat(statusCode).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    private DetectorReading reading(int detectorId, int vehicleCount, String occupancy, Instant fetchedAt) {
+        return DetectorReading.builder()
+                .controllerId(TEST_CONTROLLER_ID)
+                .detectorId(detectorId)
+                .detectorName("D" + detectorId)
+                .vehicleCount(vehicleCount)
+                .occupancy(new BigDecimal(occupancy))
+                .readingTimestamp(fetchedAt)
+                .fetchedAt(fetchedAt)
+                .build();
+    }
+
     // ==================== 404 Error Tests ====================
 
     @Test
@@ -307,4 +588,142 @@ class MonitoringControllerIntegrationTest extends AbstractIntegrationTest {
         assertThat(response.get("totalElements")).isEqualTo(5);
         assertThat(response.get("totalPages")).isEqualTo(3);
     }
+
+    // ==================== Cursor Pagination Tests ====================
+
+    @Test
+    void getDetectorReadingsHistoryPage_walksAllRowsWithCursor() {
+        Instant now = Instant.now();
+        for (int i = 0; i < 5; i++) {
+            detectorReadingRepository.save(reading(1, i, "0.10", now.minusSeconds(300 - i * 60)));
+        }
+
+        List<Object> vehicleCounts = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            Map response = restClient.get()
+                    .uri(cursor == null
+                                    ? "/api/controllers/{id}/detectors/history/cursor?size=2"
+                                    : "/api/controllers/{id}/detectors/history/cursor?size=2&cursor=" + cursor,
+                            TEST_CONTROLLER_ID)
+                    .retrieve()
+                    .body(Map.class);
+            List<Map<String, Object>> content = (List<Map<String, Object>>) response.get("content");
+            content.forEach(r -> vehicleCounts.add(r.get("vehicleCount")));
+            cursor = (String) response.get("nextCursor");
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(vehicleCounts).containsExactly(0, 1, 2, 3, 4);
+    }
+
+    @Test
+    void getCommandHistoryPage_returnsNewestFirstWithoutTotals() {
+        for (String value : List.of("SP1", "SP2", "SP3")) {
+            restClient.post()
+                    .uri("/api/controllers/{id}/commands", TEST_CONTROLLER_ID)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(new CommandRequest("CHANGE_PROGRAM", value))
+                    .retrieve()
+                    .toBodilessEntity();
+        }
+
+        Map first = restClient.get()
+                .uri("/api/controllers/{id}/commands/history/cursor?size=2", TEST_CONTROLLER_ID)
+                .retrieve()
+                .body(Map.class);
+        Map second = restClient.get()
+                .uri("/api/controllers/{id}/commands/history/cursor?size=2&cursor={cursor}",
+                        TEST_CONTROLLER_ID, first.get("nextCursor"))
+                .retrieve()
+                .body(Map.class);
+
+        assertThat(first).doesNotContainKey("totalElements");
+        assertThat((List<Map<String, Object>>) first.get("content"))
+                .extracting(c -> c.get("value")).containsExactly("SP3", "SP2");
+        assertThat((List<Map<String, Object>>) second.get("content"))
+                .extracting(c -> c.get("value")).containsExactly("SP1");
+        assertThat(second.get("nextCursor")).isNull();
+    }
+
+    @Test
+    void historyPages_readOnlyTheirOwnRowsHoweverDeep() {
+        Instant start = Instant.now().minusSeconds(3600);
+        List<DetectorReading> readings = new ArrayList<>();
+        List<CommandExecution> commands = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            readings.add(reading(1, i, "0.10", start.plusSeconds(i)));
+            commands.add(CommandExecution.builder()
+                    .controllerId(TEST_CONTROLLER_ID)
+                    .command("CHANGE_PROGRAM")
+                    .value("SP" + i)
+                    .status(CommandStatus.SUCCEEDED)
+                    .executedAt(start.plusSeconds(i))
+                    .build());
+        }
+        detectorReadingRepository.saveAll(readings);
+        commandExecutionRepository.saveAll(commands);
+        DetectorReading after = readings.get(450);
+        CommandExecution before = commands.get(50);
+
+        long readingRowsRead = rowsReadFrom("detector_readings", () -> assertThat(detectorReadingRepository.findPageAfter(
+                TEST_CONTROLLER_ID, Instant.EPOCH, Instant.now(), after.getFetchedAt(), after.getId(), Limit.of(3)))
+                .extracting(DetectorReading::getVehicleCount).containsExactly(451, 452, 453));
+        long commandRowsRead = rowsReadFrom("command_executions", () -> assertThat(commandExecutionRepository.findPageBefore(
+                TEST_CONTROLLER_ID, before.getExecutedAt(), before.getId(), Limit.of(3)))
+                .extracting(CommandExecution::getValue).containsExactly("SP49", "SP48", "SP47"));
+
+        assertThat(readingRowsRead).isLessThanOrEqualTo(3);
+        assertThat(commandRowsRead).isLessThanOrEqualTo(3);
+    }
+
+    /** Rows of {@code table} and its partitions that the query read, from the transaction's own statistics. */
+    private long rowsReadFrom(String table, Runnable query) {
+        return transactionTemplate.execute(tx -> {
+            // The tables are small enough that the planner would otherwise read them whole
+            jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+            query.run();
+            return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(seq_tup_read + COALESCE(idx_tup_fetch, 0)), 0) " +
+                    "FROM pg_stat_xact_user_tables WHERE relname LIKE ?", Long.class, table + "%");
+        });
+    }
+
+    @Test
+    void getDetectorReadingsHistoryPage_withInvalidCursor_returns400() {
+        HttpStatusCode statusCode = restClient.get()
+                .uri("/api/controllers/{id}/detectors/history/cursor?cursor=not-a-cursor", TEST_CONTROLLER_ID)
+                .exchange((request, response) -> response.getStatusCode());
+
+        assertThat(statusCode).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void getCircuitBreaker_returnsStateOfCalledController() {
+        protocolAdapter.readStatus(TEST_CONTROLLER_ID);
+
+        Map breaker = restClient.get()
+                .uri("/api/controllers/{id}/circuit-breaker", TEST_CONTROLLER_ID)
+                .retrieve()
+                .body(Map.class);
+        List<Map<String, Object>> open = restClient.get()
+                .uri("/api/controllers/circuit-breakers?state=OPEN")
+                .retrieve()
+                .body(JSON_LIST);
+
+        assertThat(breaker.get("controllerId")).isEqualTo(TEST_CONTROLLER_ID);
+        assertThat(breaker.get("state")).isEqualTo("CLOSED");
+        assertThat((Integer) breaker.get("bufferedCalls")).isPositive();
+        assertThat(open).isEmpty();
+    }
+
+    @Test
+    void getCircuitBreaker_withUnknownController_returns404() {
+        HttpStatusCode statusCode = restClient.get()
+                .uri("/api/controllers/{id}/circuit-breaker", "unknown.controller")
+                .exchange((request, response) -> response.getStatusCode());
+
+        assertThat(statusCode).isEqualTo(HttpStatus.NOT_FOUND);
+    }
 }
@@ -0,0 +1,251 @@
+package com.traffic.load;
+
+import com.traffic.AbstractIntegrationTest;
+import com.traffic.service.PartitionMaintenanceService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the read endpoints at a fixed request rate against a bulk-seeded database and reports
+ * latency percentiles and throughput per endpoint. Excluded from the regular build; run with
+ * {@code mvn -Pload-test test}.
+ * <p>
+ * Requests are sent open-loop: each one has an intended start time derived from {@code load.rate}
+ * and its latency is measured from that time, so a stalled server shows up in the percentiles
+ * instead of silently lowering the request rate. {@code load.concurrency} caps requests in flight.
+ * <p>
+ * All sizes are system properties, e.g. {@code -Dload.controllers=5000 -Dload.days=60 -Dload.rate=5000}.
+ * Results are logged and written to {@code target/load-test/read-path.csv}.
+ */
+@Tag("load")
+@TestPropertySource(properties = "spring.jpa.show-sql=false")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Slf4j
+class ReadPathLoadTest extends AbstractIntegrationTest {
+
+    private static final int CONTROLLERS = Integer.getInteger("load.controllers", 1000);
+    private static final int DAYS = Integer.getInteger("load.days", 14);
+    private static final int SAMPLE_INTERVAL_SECONDS = Integer.getInteger("load.sample-interval-seconds", 900);
+    private static final int DETECTORS = 4;
+    private static final int COMMANDS_PER_CONTROLLER = 50;
+
+    private static final int RATE = Integer.getInteger("load.rate", 1000);
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 256);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmup-seconds", 5);
+    private static final int DURATION_SECONDS = Integer.getInteger("load.duration-seconds", 20);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PartitionMaintenanceService partitionMaintenanceService;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    private final List<EndpointResult> results = new ArrayList<>();
+    private Instant now;
+
+    @BeforeAll
+    void seed() {
+        now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        long started = System.nanoTime();
+
+        jdbcTemplate.update("INSERT INTO controllers (id, registered_at) " +
+                "SELECT 'fd' || g || '.z' || (g % 20) || '.load.loc', now() FROM generate_series(1, ?) g " +
+                "ON CONFLICT (id) DO NOTHING", CONTROLLERS);
+
+        for (int i = DAYS; i >= 0; i--) {
+            LocalDate day = today.minusDays(i);
+            partitionMaintenanceService.ensurePartition("detector_readings", day);
+            partitionMaintenanceService.ensurePartition("controller_status", day);
+
+            // One day per statement keeps every insert inside a single partition
+            jdbcTemplate.update("INSERT INTO detector_readings (controller_key, detector_id, detector_name, " +
+                    "vehicle_count, occupancy, reading_timestamp, fetched_at) " +
+                    "SELECT c.controller_key, d, 'D' || d, (random() * 50)::int, (random() * 10000)::int, t, t " +
+                    "FROM controllers c CROSS JOIN generate_series(1, ?) d " +
+                    "CROSS JOIN generate_series(?::timestamp, LEAST(?::timestamp + INTERVAL '1 day' - INTERVAL '1 second', " +
+                    "?::timestamp), ? * INTERVAL '1 second') t " +
+                    "WHERE c.id LIKE '%.load.loc'",
+                    DETECTORS, day.toString(), day.toString(), now.toString(),
+                    SAMPLE_INTERVAL_SECONDS);
+
+            // A status change every six hours
+            jdbcTemplate.update("INSERT INTO controller_status (controller_key, state, program, valid_from, valid_to, errors) " +
+                    "SELECT c.controller_key, (ARRAY['OPERATIONAL', 'OPERATIONAL', 'OPERATIONAL', 'DETECTOR_FAILURE'])[1 + (h / 6)], " +
+                    "'SP' || (1 + h / 6), ?::timestamp + h * INTERVAL '1 hour', " +
+                    "?::timestamp + (h + 6) * INTERVAL '1 hour' - INTERVAL '1 second', '[]'::jsonb " +
+                    "FROM controllers c CROSS JOIN generate_series(0, 18, 6) h " +
+                    "WHERE c.id LIKE '%.load.loc'",
+                    day.toString(), day.toString());
+        }
+
+        jdbcTemplate.update("INSERT INTO command_executions (controller_key, command, value, status, success, " +
+                "executed_at, completed_at) " +
+                "SELECT c.controller_key, 'CHANGE_PROGRAM', 'SP' || (1 + n % 3), 'SUCCEEDED', true, " +
+                "now() - n * INTERVAL '1 hour', now() - n * INTERVAL '1 hour' " +
+                "FROM controllers c CROSS JOIN generate_series(1, ?) n WHERE c.id LIKE '%.load.loc'",
+                COMMANDS_PER_CONTROLLER);
+
+        jdbcTemplate.execute("ANALYZE");
+        Long readings = jdbcTemplate.queryForObject("SELECT count(*) FROM detector_readings", Long.class);
+        log.info("Seeded {} controllers with {} detector readings over {} days in {} s",
+                CONTROLLERS, readings, DAYS, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started));
+    }
+
+    @Test
+    void readEndpoints_underSustainedLoad() throws IOException {
+        String from = now.minus(1, ChronoUnit.DAYS).toString();
+        String to = now.toString();
+
+        Map<String, IntFunction<String>> endpoints = new LinkedHashMap<>();
+        endpoints.put("status", i -> "/api/controllers/" + randomController() + "/status");
+        endpoints.put("detectors", i -> "/api/controllers/" + randomController() + "/detectors");
+        endpoints.put("status-history", i -> "/api/controllers/" + randomController()
+                + "/status/history?from=" + from + "&to=" + to);
+        endpoints.put("detector-history", i -> "/api/controllers/" + randomController()
+                + "/detectors/history?from=" + from + "&to=" + to + "&size=20");
+        endpoints.put("detector-history-cursor", i -> "/api/controllers/" + randomController()
+                + "/detectors/history/cursor?from=" + from + "&to=" + to + "&size=100");
+        endpoints.put("command-history", i -> "/api/controllers/" + randomController() + "/commands/history?size=20");
+
+        // Warm every endpoint first so the first one measured does not carry the JIT warm-up
+        endpoints.values().forEach(path -> drive(path, WARMUP_SECONDS));
+        endpoints.forEach((endpoint, path) -> results.add(new EndpointResult(endpoint, drive(path, DURATION_SECONDS))));
+
+        report();
+        for (EndpointResult result : results) {
+            assertThat(result.errors()).as("failed requests to %s", result.endpoint())
+                    .isLessThanOrEqualTo(result.requests() / 100);
+        }
+    }
+
+    private Measurement drive(IntFunction<String> path, int seconds) {
+        int total = RATE * seconds;
+        long[] latencies = new long[total];
+        AtomicInteger errors = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(CONCURRENCY);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / RATE;
+        long start = System.nanoTime();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < total; i++) {
+                long intendedStart = start + i * intervalNanos;
+                long wait = intendedStart - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                inFlight.acquireUninterruptibly();
+                HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path.apply(i)))
+                        .GET()
+                        .build();
+                int slot = i;
+                executor.execute(() -> {
+                    try {
+                        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 400) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    } finally {
+                        latencies[slot] = System.nanoTime() - intendedStart;
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        return new Measurement(latencies, errors.get(), System.nanoTime() - start);
+    }
+
+    private void report() throws IOException {
+        StringBuilder csv = new StringBuilder("endpoint,requests,errors,throughput_rps,p50_ms,p99_ms,p999_ms,max_ms\n");
+        log.info("Read path at {} req/s, concurrency {}, {} controllers, {} days of readings",
+                RATE, CONCURRENCY, CONTROLLERS, DAYS);
+        log.info(String.format("%-24s %9s %7s %10s %9s %9s %9s %9s",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        for (EndpointResult result : results) {
+            String row = String.format(Locale.ROOT, "%s,%d,%d,%.1f,%.2f,%.2f,%.2f,%.2f",
+                    result.endpoint(), result.requests(), result.errors(), result.throughput(),
+                    result.percentileMs(50), result.percentileMs(99), result.percentileMs(99.9), result.percentileMs(100));
+            csv.append(row).append('\n');
+            log.info(String.format(Locale.ROOT, "%-24s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f",
+                    result.endpoint(), result.requests(), result.errors(), result.throughput(),
+                    result.percentileMs(50), result.percentileMs(99), result.percentileMs(99.9), result.percentileMs(100)));
+        }
+        Path output = Path.of("target", "load-test", "read-path.csv");
+        Files.createDirectories(output.getParent());
+        Files.writeString(output, csv);
+    }
+
+    private static String randomController() {
+        int n = 1 + ThreadLocalRandom.current().nextInt(CONTROLLERS);
+        return "fd" + n + ".z" + (n % 20) + ".load.loc";
+    }
+
+    private record Measurement(long[] latencies, int errors, long elapsedNanos) {
+    }
+
+    private record EndpointResult(String endpoint, Measurement measurement) {
+
+        int requests() {
+            return measurement.latencies().length;
+        }
+
+        int errors() {
+            return measurement.errors();
+        }
+
+        double throughput() {
+            return requests() * 1e9 / measurement.elapsedNanos();
+        }
+
+        double percentileMs(double percentile) {
+            long[] sorted = measurement.latencies().clone();
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.traffic.service;
+
+import com.traffic.AbstractIntegrationTest;
+import com.traffic.adapter.ProtocolAdapter;
+import com.traffic.adapter.dto.CommandResultDto;
+import com.traffic.adapter.dto.ControllerStatusDto;
+import com.traffic.adapter.dto.DetectorReadingsDto;
+import com.traffic.config.ClusterConfig;
+import com.traffic.config.DeviceConfig;
+import com.traffic.domain.CommandExecution;
+import com.traffic.domain.CommandStatus;
+import com.traffic.repository.CommandExecutionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CommandDispatcherTest extends AbstractIntegrationTest {
+
+    private static final String CONTROLLER_A = "fd132.z1.highway.a21.loc";
+    private static final String CONTROLLER_B = "fd11.z1.downtown.loc";
+
+    @Autowired
+    private IngestionService ingestionService;
+
+    @Autowired
+    private CommandExecutionRepository commandExecutionRepository;
+
+    @Autowired
+    private ShardLeaseManager shardLeaseManager;
+
+    @Autowired
+    private ClusterConfig clusterConfig;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private RecordingAdapter adapter;
+    private DeviceConfig deviceConfig;
+    private CommandDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        ingestionService.registerControllers();
+        adapter = new RecordingAdapter();
+        deviceConfig = new DeviceConfig();
+        dispatcher = new CommandDispatcher(adapter, deviceConfig, commandExecutionRepository, event -> {
+        }, shardLeaseManager, clusterConfig);
+    }
+
+    @AfterEach
+    void tearDown() {
+        adapter.release.countDown();
+        dispatcher.shutdown();
+        jdbcTemplate.update("DELETE FROM ingestion_members WHERE instance_id = 'live-instance'");
+    }
+
+    @Test
+    void dispatch_runsCommandsOfOneControllerInAcceptanceOrder() {
+        adapter.release.countDown();
+        List<CompletableFuture<Void>> futures = List.of("SP1", "SP2", "SP3", "SP4", "SP5").stream()
+                .map(value -> dispatcher.dispatch(pending(CONTROLLER_A, value)))
+                .toList();
+
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        assertThat(adapter.sent).containsExactly(
+                CONTROLLER_A + ":SP1", CONTROLLER_A + ":SP2", CONTROLLER_A + ":SP3",
+                CONTROLLER_A + ":SP4", CONTROLLER_A + ":SP5");
+    }
+
+    @Test
+    void dispatch_doesNotHoldBackOtherControllers() throws Exception {
+        adapter.blockedController = CONTROLLER_A;
+        CompletableFuture<Void> blocked = dispatcher.dispatch(pending(CONTROLLER_A, "SP1"));
+        CompletableFuture<Void> queuedBehind = dispatcher.dispatch(pending(CONTROLLER_A, "SP2"));
+
+        CommandExecution other = pending(CONTROLLER_B, "SP3");
+        dispatcher.dispatch(other).get(5, TimeUnit.SECONDS);
+
+        assertThat(blocked).isNotDone();
+        assertThat(queuedBehind).isNotDone();
+        assertThat(commandExecutionRepository.findById(other.getId()).orElseThrow().getStatus())
+                .isEqualTo(CommandStatus.SUCCEEDED);
+    }
+
+    @Test
+    void dispatch_recordsFailureWhenAdapterThrows() {
+        adapter.release.countDown();
+        adapter.failingController = CONTROLLER_B;
+        CommandExecution execution = pending(CONTROLLER_B, "SP1");
+
+        dispatcher.dispatch(execution).join();
+
+        CommandExecution stored = commandExecutionRepository.findById(execution.getId()).orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(CommandStatus.FAILED);
+        assertThat(stored.getSuccess()).isFalse();
+        assertThat(stored.getCompletedAt()).isNotNull();
+    }
+
+    @Test
+    void dispatch_recordsTimeoutAsUnknownAndHoldsTheNextCommandUntilTheDeviceAnswers() throws Exception {
+        deviceConfig.setCommandTimeoutMs(100);
+        adapter.blockedController = CONTROLLER_A;
+        CommandExecution unconfirmed = pending(CONTROLLER_A, "SP1");
+        CompletableFuture<Void> first = dispatcher.dispatch(unconfirmed);
+        CompletableFuture<Void> second = dispatcher.dispatch(pending(CONTROLLER_A, "SP2"));
+
+        first.get(5, TimeUnit.SECONDS);
+        CommandExecution stored = commandExecutionRepository.findById(unconfirmed.getId()).orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(CommandStatus.TIMED_OUT);
+        assertThat(stored.getSuccess()).isNull();
+
+        // SP1 may still be on the wire, so SP2 must not overtake it
+        assertThatThrownBy(() -> second.get(300, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+        assertThat(adapter.started).containsExactly(CONTROLLER_A + ":SP1");
+
+        deviceConfig.setCommandTimeoutMs(10_000);
+        adapter.release.countDown();
+        second.get(5, TimeUnit.SECONDS);
+        assertThat(adapter.sent).containsExactly(CONTROLLER_A + ":SP1", CONTROLLER_A + ":SP2");
+    }
+
+    @Test
+    void failAbandonedCommands_failsOnlyCommandsOfInstancesThatAreGone() {
+        jdbcTemplate.update("INSERT INTO ingestion_members (instance_id, heartbeat_at) VALUES ('live-instance', now())");
+        Instant longAgo = Instant.now().minus(Duration.ofMinutes(5));
+        CommandExecution ofStoppedInstance = pending(CONTROLLER_A, "SP1", "stopped-instance", longAgo);
+        CommandExecution ofLiveInstance = pending(CONTROLLER_A, "SP2", "live-instance", longAgo);
+        CommandExecution ofPreviousRun = pending(CONTROLLER_A, "SP3", dispatcher.getInstanceId(), longAgo);
+        CommandExecution inFlight = pending(CONTROLLER_A, "SP4");
+        CommandExecution justAccepted = pending(CONTROLLER_B, "SP5", "starting-instance", Instant.now());
+
+        dispatcher.failAbandonedCommands();
+
+        assertThat(statusOf(ofStoppedInstance)).isEqualTo(CommandStatus.FAILED);
+        assertThat(statusOf(ofPreviousRun)).isEqualTo(CommandStatus.FAILED);
+        assertThat(statusOf(ofLiveInstance)).isEqualTo(CommandStatus.PENDING);
+        assertThat(statusOf(inFlight)).isEqualTo(CommandStatus.PENDING);
+        assertThat(statusOf(justAccepted)).isEqualTo(CommandStatus.PENDING);
+
+        // A late answer does not overwrite a command that was already given up
+        assertThat(commandExecutionRepository.complete(ofStoppedInstance.getId(), CommandStatus.SUCCEEDED, true,
+                Instant.now())).isZero();
+        assertThat(statusOf(ofStoppedInstance)).isEqualTo(CommandStatus.FAILED);
+    }
+
+    private CommandStatus statusOf(CommandExecution execution) {
+        return commandExecutionRepository.findById(execution.getId()).orElseThrow().getStatus();
+    }
+
+    private CommandExecution pending(String controllerId, String value) {
+        return pending(controllerId, value, dispatcher.getInstanceId(), Instant.now());
+    }
+
+    private CommandExecution pending(String controllerId, String value, String dispatchedBy, Instant acceptedAt) {
+        return commandExecutionRepository.save(CommandExecution.builder()
+                .controllerId(controllerId)
+                .command("CHANGE_PROGRAM")
+                .value(value)
+                .status(CommandStatus.PENDING)
+                .executedAt(acceptedAt)
+                .dispatchedBy(dispatchedBy)
+                .build());
+    }
+
+    private static class RecordingAdapter implements ProtocolAdapter {
+        final List<String> started = new CopyOnWriteArrayList<>();
+        final List<String> sent = new CopyOnWriteArrayList<>();
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile String blockedController;
+        volatile String failingController;
+
+        @Override
+        public ControllerStatusDto readStatus(String controllerId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public DetectorReadingsDto readDetectorReadings(String controllerId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CommandResultDto sendCommand(String controllerId, String command, String value) {
+            started.add(controllerId + ":" + value);
+            try {
+                if (controllerId.equals(blockedController)) {
+                    release.await();
+                }
+                Thread.sleep(ThreadLocalRandom.current().nextInt(1, 20));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (controllerId.equals(failingController)) {
+                throw new IllegalStateException("device unreachable");
+            }
+            sent.add(controllerId + ":" + value);
+            return CommandResultDto.builder()
+                    .controllerId(controllerId)
+                    .command(command)
+                    .value(value)
+                    .success(true)
+                    .timestamp(Instant.now())
+                    .build();
+        }
+    }
+}
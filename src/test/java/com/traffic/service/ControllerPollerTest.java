@@ -0,0 +1,186 @@
+package com.traffic.service;
+
+import com.traffic.adapter.ProtocolAdapter;
+import com.traffic.adapter.dto.CommandResultDto;
+import com.traffic.adapter.dto.ControllerSnapshotDto;
+import com.traffic.adapter.dto.ControllerStatusDto;
+import com.traffic.adapter.dto.DetectorReadingsDto;
+import com.traffic.config.IngestionConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ControllerPollerTest {
+
+    private ControllerPoller poller;
+
+    @AfterEach
+    void tearDown() {
+        poller.shutdown();
+    }
+
+    @Test
+    void pollAll_pollsControllersConcurrently() {
+        poller = new ControllerPoller(new SlowAdapter(200, null), config(64, 5000, 10000));
+        List<String> ids = IntStream.range(0, 50).mapToObj(i -> "c" + i).toList();
+
+        long start = System.nanoTime();
+        List<PollResult> results = poller.pollAll(ids);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(results).hasSize(50);
+        assertThat(results).extracting(PollResult::controllerId).containsExactlyElementsOf(ids);
+        assertThat(elapsed).isLessThan(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void pollAll_dropsControllersThatExceedTheirTimeout() {
+        poller = new ControllerPoller(new SlowAdapter(20, "hung"), config(64, 300, 10000));
+
+        long start = System.nanoTime();
+        List<PollResult> results = poller.pollAll(List.of("a", "hung", "b"));
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(results).extracting(PollResult::controllerId).containsExactly("a", "b");
+        assertThat(elapsed).isLessThan(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void pollAll_respectsConcurrencyLimit() {
+        SlowAdapter adapter = new SlowAdapter(50, null);
+        poller = new ControllerPoller(adapter, config(3, 5000, 10000));
+
+        poller.pollAll(IntStream.range(0, 20).mapToObj(i -> "c" + i).toList());
+
+        assertThat(adapter.maxInFlight.get()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void pollAll_stopsAtCycleBudget() {
+        poller = new ControllerPoller(new SlowAdapter(20, "hung"), config(64, 60000, 300));
+
+        long start = System.nanoTime();
+        List<PollResult> results = poller.pollAll(List.of("a", "hung"));
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(results).extracting(PollResult::controllerId).containsExactly("a");
+        assertThat(elapsed).isLessThan(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void pollAll_readsInBatchesWhenTheAdapterSupportsThem() {
+        BatchAdapter adapter = new BatchAdapter("broken");
+        poller = new ControllerPoller(adapter, config(64, 5000, 10000));
+        List<String> ids = IntStream.range(0, 24).mapToObj(i -> "c" + i).collect(Collectors.toList());
+        ids.add(7, "broken");
+
+        List<PollResult> results = poller.pollAll(ids);
+
+        assertThat(results).extracting(PollResult::controllerId)
+                .containsExactlyElementsOf(ids.stream().filter(id -> !id.equals("broken")).toList());
+        assertThat(adapter.batchSizes).containsExactlyInAnyOrder(10, 10, 5);
+    }
+
+    private static IngestionConfig config(int maxConcurrency, long controllerTimeoutMs, long cycleBudgetMs) {
+        IngestionConfig config = new IngestionConfig();
+        config.setMaxConcurrency(maxConcurrency);
+        config.setControllerTimeoutMs(controllerTimeoutMs);
+        config.setCycleBudgetMs(cycleBudgetMs);
+        return config;
+    }
+
+    private static class SlowAdapter implements ProtocolAdapter {
+
+        private final long delayMs;
+        private final String hungControllerId;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+
+        SlowAdapter(long delayMs, String hungControllerId) {
+            this.delayMs = delayMs;
+            this.hungControllerId = hungControllerId;
+        }
+
+        @Override
+        public ControllerStatusDto readStatus(String controllerId) {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                sleep(controllerId.equals(hungControllerId) ? 60_000 : delayMs);
+                return ControllerStatusDto.builder().controllerId(controllerId).state("OPERATIONAL").build();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        @Override
+        public DetectorReadingsDto readDetectorReadings(String controllerId) {
+            return DetectorReadingsDto.builder().controllerId(controllerId).detectors(List.of()).build();
+        }
+
+        @Override
+        public CommandResultDto sendCommand(String controllerId, String command, String value) {
+            throw new UnsupportedOperationException();
+        }
+
+        private static void sleep(long millis) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted", e);
+            }
+        }
+    }
+
+    private static class BatchAdapter implements ProtocolAdapter {
+
+        private final String brokenControllerId;
+        private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+        BatchAdapter(String brokenControllerId) {
+            this.brokenControllerId = brokenControllerId;
+        }
+
+        @Override
+        public List<SnapshotResult> readSnapshots(List<String> controllerIds) {
+            batchSizes.add(controllerIds.size());
+            return controllerIds.stream()
+                    .map(id -> id.equals(brokenControllerId)
+                            ? SnapshotResult.failure(id, new IllegalStateException("Controller unreachable"))
+                            : SnapshotResult.success(ControllerSnapshotDto.builder()
+                                    .controllerId(id)
+                                    .status(ControllerStatusDto.builder().controllerId(id).state("OPERATIONAL").build())
+                                    .readings(DetectorReadingsDto.builder().controllerId(id).detectors(List.of()).build())
+                                    .build()))
+                    .toList();
+        }
+
+        @Override
+        public int maxBatchSize() {
+            return 10;
+        }
+
+        @Override
+        public ControllerStatusDto readStatus(String controllerId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public DetectorReadingsDto readDetectorReadings(String controllerId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CommandResultDto sendCommand(String controllerId, String command, String value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.traffic.service;
+
+import com.traffic.config.DetectorHealthConfig;
+import com.traffic.domain.DetectorReading;
+import com.traffic.service.DetectorHealthMonitor.DetectorHealth;
+import com.traffic.service.DetectorHealthMonitor.HealthStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DetectorHealthMonitorTest {
+
+    private static final String CONTROLLER_ID = "fd11.z1.downtown.loc";
+    private static final Instant BASE = Instant.parse("2024-03-01T10:00:00Z");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<DetectorHealthEvent> events = new ArrayList<>();
+    private final DetectorHealthMonitor monitor = new DetectorHealthMonitor(
+            new DetectorHealthConfig(), event -> events.add((DetectorHealthEvent) event), meterRegistry);
+    private int poll;
+
+    @Test
+    void zeroCounts_markOnlyDetectorsThatUsedToCountTrafficAsStuck() {
+        for (int i = 0; i < 30; i++) {
+            observe(reading(1, 12 + i % 3, occupancy(i)), reading(2, 0, "0.0000"));
+        }
+        for (int i = 0; i < 19; i++) {
+            observe(reading(1, 0, "0.0000"), reading(2, 0, "0.0000"));
+        }
+        // The sudden drop may be reported as anomalous first, but is not judged stuck yet
+        assertThat(events).extracting(DetectorHealthEvent::current).doesNotContain(HealthStatus.STUCK_ZERO);
+
+        observe(reading(1, 0, "0.0000"), reading(2, 0, "0.0000"));
+
+        assertThat(events).allSatisfy(event -> assertThat(event.detectorId()).isEqualTo(1));
+        assertThat(events.getLast().current()).isEqualTo(HealthStatus.STUCK_ZERO);
+        assertThat(monitor.getHealth(CONTROLLER_ID)).extracting(DetectorHealth::detectorId, DetectorHealth::status)
+                .containsExactly(Tuple.tuple(1, HealthStatus.STUCK_ZERO), Tuple.tuple(2, HealthStatus.OK));
+        assertThat(meterRegistry.get("detector.health.unhealthy").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void frozenOccupancy_isReportedAsFlatlineUntilItMovesAgain() {
+        for (int i = 0; i < 20; i++) {
+            observe(reading(1, 10 + i % 4, "0.2345"));
+        }
+        DetectorHealth frozen = monitor.getHealth(CONTROLLER_ID).getFirst();
+        assertThat(frozen.status()).isEqualTo(HealthStatus.FLATLINE);
+        assertThat(frozen.unchangedOccupancyStreak()).isEqualTo(20);
+        assertThat(frozen.lastOccupancy()).isEqualByComparingTo("0.2345");
+
+        observe(reading(1, 11, "0.2400"));
+
+        assertThat(events).extracting(DetectorHealthEvent::current)
+                .containsExactly(HealthStatus.FLATLINE, HealthStatus.OK);
+        assertThat(meterRegistry.get("detector.health.events").tag("status", "FLATLINE").counter().count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.get("detector.health.unhealthy").gauge().value()).isZero();
+    }
+
+    @Test
+    void countFarFromTheMovingMean_isAnomalousOnlyAfterWarmup() {
+        observe(reading(1, 10, "0.1000"));
+        observe(reading(1, 500, "0.1100"));
+        assertThat(events).isEmpty();
+
+        for (int i = 0; i < 40; i++) {
+            observe(reading(1, 10 + i % 5, occupancy(i)));
+        }
+        observe(reading(1, 250, "0.9000"));
+
+        DetectorHealth spike = monitor.getHealth(CONTROLLER_ID).getFirst();
+        assertThat(spike.status()).isEqualTo(HealthStatus.ANOMALOUS);
+        assertThat(spike.deviation()).isGreaterThan(4.0);
+        assertThat(spike.samples()).isEqualTo(43);
+
+        observe(reading(1, 12, "0.1200"));
+        assertThat(events).extracting(DetectorHealthEvent::current)
+                .containsExactly(HealthStatus.ANOMALOUS, HealthStatus.OK);
+    }
+
+    @Test
+    void readingsWithoutValues_meanNoData_andRepeatedPollsAreIgnored() {
+        observe(reading(1, 10, "0.1000"));
+        for (int i = 0; i < 3; i++) {
+            observe(reading(1, null, null));
+        }
+        Instant lastPoll = BASE.plusSeconds(30L * (poll - 1));
+        monitor.observe(CONTROLLER_ID, List.of(reading(1, null, null)), lastPoll);
+
+        DetectorHealth health = monitor.getHealth(CONTROLLER_ID).getFirst();
+        assertThat(health.status()).isEqualTo(HealthStatus.NO_DATA);
+        assertThat(health.since()).isEqualTo(lastPoll);
+        assertThat(health.lastVehicleCount()).isEqualTo(10);
+        assertThat(events).extracting(DetectorHealthEvent::current).containsExactly(HealthStatus.NO_DATA);
+        assertThat(monitor.getHealth("unknown")).isEmpty();
+    }
+
+    @Test
+    void removedControllers_leaveTheUnhealthyGaugeAndStartOver() {
+        for (int i = 0; i < 20; i++) {
+            observe(reading(1, 10 + i % 4, "0.2345"), reading(2, 10 + i % 4, "0.3456"));
+        }
+        assertThat(meterRegistry.get("detector.health.unhealthy").gauge().value()).isEqualTo(2.0);
+
+        monitor.removeIf(CONTROLLER_ID::equals);
+
+        assertThat(meterRegistry.get("detector.health.unhealthy").gauge().value()).isZero();
+        assertThat(monitor.getHealth(CONTROLLER_ID)).isEmpty();
+        observe(reading(1, 11, "0.2345"));
+        assertThat(monitor.getHealth(CONTROLLER_ID)).extracting(DetectorHealth::status).containsExactly(HealthStatus.OK);
+        assertThat(meterRegistry.get("detector.health.unhealthy").gauge().value()).isZero();
+    }
+
+    private void observe(DetectorReading... readings) {
+        Instant fetchedAt = BASE.plusSeconds(30L * poll++);
+        monitor.observe(CONTROLLER_ID, List.of(readings), fetchedAt);
+    }
+
+    private static String occupancy(int i) {
+        return "0.1" + (i % 10) + "00";
+    }
+
+    private static DetectorReading reading(int detectorId, Integer vehicleCount, String occupancy) {
+        return DetectorReading.builder()
+                .controllerId(CONTROLLER_ID)
+                .detectorId(detectorId)
+                .detectorName("D" + detectorId)
+                .vehicleCount(vehicleCount)
+                .occupancy(occupancy != null ? new BigDecimal(occupancy) : null)
+                .build();
+    }
+}
@@ -8,10 +8,15 @@ import com.traffic.repository.CommandExecutionRepository;
 import com.traffic.repository.ControllerRepository;
 import com.traffic.repository.ControllerStatusRepository;
 import com.traffic.repository.DetectorReadingRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 
+import java.time.Instant;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -33,11 +38,21 @@ class IngestionServiceTest extends AbstractIntegrationTest {
     @Autowired
     private CommandExecutionRepository commandExecutionRepository;
 
+    @Autowired
+    private LiveStateStore liveStateStore;
+
+    @Autowired
+    private RecentReadingsStore recentReadingsStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @BeforeEach
     void setUp() {
         commandExecutionRepository.deleteAll();
         detectorReadingRepository.deleteAll();
         controllerStatusRepository.deleteAll();
+        recentReadingsStore.removeIf(controllerId -> true);
         // Re-register controllers since they may have been deleted by other tests
         ingestionService.registerControllers();
     }
@@ -74,4 +89,79 @@ class IngestionServiceTest extends AbstractIntegrationTest {
         assertThat(statuses).extracting(ControllerStatus::getControllerId)
                 .contains("fd132.z1.highway.a21.loc", "fd11.z1.downtown.loc");
     }
+
+    @Test
+    void pollControllers_batchWrittenRowsReadBackThroughJpa() {
+        ingestionService.pollControllers();
+
+        ControllerStatus status = controllerStatusRepository
+                .findTopByControllerIdOrderByValidFromDesc("fd132.z1.highway.a21.loc")
+                .orElseThrow();
+        List<DetectorReading> readings = detectorReadingRepository
+                .findLatestByControllerId("fd132.z1.highway.a21.loc");
+
+        assertThat(status.getErrors()).isNotNull();
+        assertThat(readings).isNotEmpty();
+        assertThat(readings).allSatisfy(r -> {
+            assertThat(r.getFetchedAt()).isEqualTo(status.getValidTo());
+            assertThat(r.getOccupancy()).isNotNull();
+        });
+    }
+
+    @Test
+    void pollControllers_updatesLiveState() {
+        ingestionService.pollControllers();
+
+        LiveStateStore.LiveState live = liveStateStore.get("fd11.z1.downtown.loc");
+        ControllerStatus persisted = controllerStatusRepository
+                .findTopByControllerIdOrderByValidFromDesc("fd11.z1.downtown.loc")
+                .orElseThrow();
+
+        assertThat(live).isNotNull();
+        assertThat(live.status().getState()).isEqualTo(persisted.getState());
+        assertThat(live.readings()).hasSize(
+                detectorReadingRepository.findLatestByControllerId("fd11.z1.downtown.loc").size());
+    }
+
+    @Test
+    void pollControllers_recordsCycleAndAdapterMetrics() {
+        long cycles = meterRegistry.get("ingestion.cycle").tag("phase", "total").timer().count();
+        double readingRows = meterRegistry.get("ingestion.rows.written").tag("table", "detector_readings")
+                .summary().totalAmount();
+
+        ingestionService.pollControllers(List.of("fd132.z1.highway.a21.loc"));
+        ingestionService.flush();
+
+        assertThat(meterRegistry.get("ingestion.cycle").tag("phase", "total").timer().count()).isEqualTo(cycles + 1);
+        assertThat(meterRegistry.get("ingestion.cycle").tag("phase", "persistence").timer().count()).isPositive();
+        assertThat(meterRegistry.get("ingestion.rows.written").tag("table", "detector_readings")
+                .summary().totalAmount()).isGreaterThan(readingRows);
+        assertThat(meterRegistry.get("adapter.calls").tags("method", "readSnapshot", "zone", "z1", "outcome", "success")
+                .timer().count()).isPositive();
+        assertThat(meterRegistry.get("adapter.controller.calls")
+                .tags("method", "readSnapshot", "controller", "fd132.z1.highway.a21.loc")
+                .timer().count()).isPositive();
+    }
+
+    @Test
+    void pollControllers_recentHistoryServedFromMemoryMatchesDatabase() {
+        String controllerId = "fd132.z1.highway.a21.loc";
+        ingestionService.pollControllers();
+        ingestionService.pollControllers();
+
+        Instant from = detectorReadingRepository.findByControllerId(controllerId, PageRequest.of(0, 1, Sort.by("fetchedAt")))
+                .getContent().getFirst().getFetchedAt();
+        Instant to = Instant.now();
+        PageRequest pageable = PageRequest.of(0, 5, Sort.by(Sort.Direction.DESC, "fetchedAt", "id"));
+        PageRequest byFetchTime = PageRequest.of(0, 5, Sort.by(Sort.Direction.DESC, "fetchedAt"));
+
+        Page<DetectorReading> database = detectorReadingRepository
+                .findByControllerIdAndFetchedAtBetween(controllerId, from, to, pageable);
+        Page<DetectorReading> memory = recentReadingsStore.findPage(controllerId, from, to, byFetchTime).orElseThrow();
+
+        assertThat(memory.getTotalElements()).isEqualTo(database.getTotalElements());
+        assertThat(memory.getContent()).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(database.getContent());
+        assertThat(recentReadingsStore.findPage(controllerId, from.minusSeconds(1), to, byFetchTime)).isEmpty();
+    }
 }
@@ -0,0 +1,171 @@
+package com.traffic.service;
+
+import com.traffic.config.LiveConfig;
+import com.traffic.domain.ControllerStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LiveUpdateBroadcasterTest {
+
+    private LiveConfig config;
+    private LiveStateStore liveStateStore;
+    private LiveUpdateBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        config = new LiveConfig();
+        config.setSubscriberBufferCycles(2);
+        liveStateStore = new LiveStateStore();
+        broadcaster = new LiveUpdateBroadcaster(config, liveStateStore);
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void publish_deliversToSubscribersWhoseScopeMatches() throws InterruptedException {
+        CollectingSink controllerSink = new CollectingSink();
+        CollectingSink zoneSink = new CollectingSink();
+        CollectingSink fleetSink = new CollectingSink();
+        broadcaster.subscribe(new LiveScope("fd11.z1.downtown.loc", null), controllerSink);
+        broadcaster.subscribe(new LiveScope(null, "z1"), zoneSink);
+        broadcaster.subscribe(LiveScope.FLEET, fleetSink);
+
+        broadcaster.publish(List.of(
+                update("fd11.z1.downtown.loc"),
+                update("fd132.z1.highway.a21.loc"),
+                update("fd99.z3.airport.loc")));
+
+        assertThat(fleetSink.take(3)).containsExactly(
+                "fd11.z1.downtown.loc", "fd132.z1.highway.a21.loc", "fd99.z3.airport.loc");
+        assertThat(zoneSink.take(2)).containsExactly("fd11.z1.downtown.loc", "fd132.z1.highway.a21.loc");
+        assertThat(controllerSink.take(1)).containsExactly("fd11.z1.downtown.loc");
+        assertThat(zoneSink.received).isEmpty();
+        assertThat(controllerSink.received).isEmpty();
+    }
+
+    @Test
+    void publish_evictsSubscriberWhoseBufferIsFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CollectingSink slowSink = new CollectingSink() {
+            @Override
+            public void send(LiveUpdate update) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        CollectingSink fastSink = new CollectingSink();
+        broadcaster.subscribe(LiveScope.FLEET, slowSink);
+        broadcaster.subscribe(LiveScope.FLEET, fastSink);
+
+        // One cycle is held by the blocked sink, two fill the buffer, the next one overflows it
+        for (int i = 0; i < 5; i++) {
+            broadcaster.publish(List.of(update("fd11.z1.downtown.loc")));
+            fastSink.take(1);
+        }
+
+        assertThat(slowSink.closed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(broadcaster.subscriberCount()).isEqualTo(1);
+        release.countDown();
+    }
+
+    @Test
+    void subscribe_neverExceedsMaxSubscribersUnderConcurrency() throws Exception {
+        config.setMaxSubscribers(5);
+        CountDownLatch start = new CountDownLatch(1);
+        List<LiveUpdateBroadcaster.Subscriber> accepted = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<LiveUpdateBroadcaster.Subscriber>> attempts = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                attempts.add(executor.submit(() -> {
+                    start.await();
+                    return broadcaster.subscribe(LiveScope.FLEET, new CollectingSink());
+                }));
+            }
+            start.countDown();
+
+            for (Future<LiveUpdateBroadcaster.Subscriber> attempt : attempts) {
+                try {
+                    accepted.add(attempt.get(5, TimeUnit.SECONDS));
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOf(LiveUpdateBroadcaster.TooManySubscribersException.class);
+                }
+            }
+        }
+        assertThat(accepted).hasSize(5);
+        assertThat(broadcaster.subscriberCount()).isEqualTo(5);
+
+        broadcaster.unsubscribe(accepted.getFirst());
+        broadcaster.subscribe(LiveScope.FLEET, new CollectingSink());
+        assertThat(broadcaster.subscriberCount()).isEqualTo(5);
+    }
+
+    @Test
+    void subscribe_toSingleController_startsWithCurrentState() throws InterruptedException {
+        liveStateStore.update(status("fd11.z1.downtown.loc"), List.of());
+        CollectingSink sink = new CollectingSink();
+
+        broadcaster.subscribe(new LiveScope("fd11.z1.downtown.loc", null), sink);
+
+        assertThat(sink.take(1)).containsExactly("fd11.z1.downtown.loc");
+    }
+
+    private static LiveUpdate update(String controllerId) {
+        return new LiveUpdate(controllerId, status(controllerId), List.of(), Instant.now());
+    }
+
+    private static ControllerStatus status(String controllerId) {
+        Instant now = Instant.now();
+        return ControllerStatus.builder()
+                .controllerId(controllerId)
+                .state("OPERATIONAL")
+                .validFrom(now)
+                .validTo(now)
+                .build();
+    }
+
+    private static class CollectingSink implements LiveUpdateSink {
+        final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        final CountDownLatch closed = new CountDownLatch(1);
+
+        @Override
+        public void send(LiveUpdate update) {
+            received.add(update.controllerId());
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+
+        List<String> take(int count) throws InterruptedException {
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String id = received.poll(5, TimeUnit.SECONDS);
+                assertThat(id).as("update %d of %d", i + 1, count).isNotNull();
+                ids.add(id);
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.traffic.service;
+
+import com.traffic.AbstractIntegrationTest;
+import com.traffic.domain.DetectorReading;
+import com.traffic.repository.DetectorReadingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+class PartitionMaintenanceServiceTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private PartitionMaintenanceService partitionMaintenanceService;
+
+    @Autowired
+    private IngestionService ingestionService;
+
+    @Autowired
+    private DetectorReadingRepository detectorReadingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private LocalDate today;
+
+    @BeforeEach
+    void setUp() {
+        ingestionService.registerControllers();
+        today = LocalDate.now(ZoneOffset.UTC);
+    }
+
+    @Test
+    void maintainPartitions_createsPartitionsAhead() {
+        partitionMaintenanceService.maintainPartitions();
+
+        for (String table : PartitionMaintenanceService.PARTITIONED_TABLES) {
+            assertThat(partitionExists(PartitionMaintenanceService.partitionName(table, today))).isTrue();
+            assertThat(partitionExists(PartitionMaintenanceService.partitionName(table, today.plusDays(7)))).isTrue();
+        }
+    }
+
+    @Test
+    void ensurePartition_movesRowsOutOfDefaultPartition() {
+        LocalDate farFuture = today.plusDays(400);
+        detectorReadingRepository.save(reading(farFuture.atStartOfDay().toInstant(ZoneOffset.UTC).plusSeconds(3600)));
+        assertThat(countIn("detector_readings_default")).isPositive();
+
+        partitionMaintenanceService.ensurePartition("detector_readings", farFuture);
+
+        String partition = PartitionMaintenanceService.partitionName("detector_readings", farFuture);
+        assertThat(partitionExists(partition)).isTrue();
+        assertThat(countIn(partition)).isEqualTo(1);
+        assertThat(countIn("detector_readings_default")).isZero();
+        jdbcTemplate.execute("DROP TABLE " + partition);
+    }
+
+    @Test
+    void ensurePartition_toleratesInstancesCreatingTheSamePartition() {
+        LocalDate day = today.plusDays(300);
+        String partition = PartitionMaintenanceService.partitionName("controller_status", day);
+        List<CompletableFuture<Void>> instances = IntStream.range(0, 4)
+                .mapToObj(i -> CompletableFuture.runAsync(
+                        () -> partitionMaintenanceService.ensurePartition("controller_status", day)))
+                .toList();
+
+        assertThatCode(() -> CompletableFuture.allOf(instances.toArray(CompletableFuture[]::new)).join())
+                .doesNotThrowAnyException();
+        assertThat(partitionExists(partition)).isTrue();
+        jdbcTemplate.execute("DROP TABLE " + partition);
+    }
+
+    @Test
+    void ensurePartition_movesRowsByUtcDayWhateverTheSessionZone() {
+        LocalDate farFuture = today.plusDays(500);
+        detectorReadingRepository.save(reading(farFuture.atStartOfDay().toInstant(ZoneOffset.UTC).plusSeconds(1800)));
+        String partition = PartitionMaintenanceService.partitionName("detector_readings", farFuture);
+
+        transactionTemplate.executeWithoutResult(tx -> {
+            jdbcTemplate.execute("SET LOCAL TIME ZONE 'Pacific/Auckland'");
+            partitionMaintenanceService.ensurePartition("detector_readings", farFuture);
+        });
+
+        assertThat(countIn(partition)).isEqualTo(1);
+        assertThat(countIn("detector_readings_default")).isZero();
+        jdbcTemplate.execute("DROP TABLE " + partition);
+    }
+
+    @Test
+    void dropExpiredPartitions_dropsWholePartitionsPastRetention() {
+        LocalDate old = today.minusDays(200);
+        partitionMaintenanceService.ensurePartition("detector_readings", old);
+        String partition = PartitionMaintenanceService.partitionName("detector_readings", old);
+        assertThat(partitionExists(partition)).isTrue();
+
+        partitionMaintenanceService.dropExpiredPartitions("detector_readings", today.minusDays(90));
+
+        assertThat(partitionExists(partition)).isFalse();
+        assertThat(partitionExists(PartitionMaintenanceService.partitionName("detector_readings", today))).isTrue();
+    }
+
+    private DetectorReading reading(Instant fetchedAt) {
+        return DetectorReading.builder()
+                .controllerId("fd132.z1.highway.a21.loc")
+                .detectorId(1)
+                .detectorName("D1")
+                .vehicleCount(10)
+                .occupancy(BigDecimal.valueOf(0.25))
+                .readingTimestamp(fetchedAt)
+                .fetchedAt(fetchedAt)
+                .build();
+    }
+
+    private boolean partitionExists(String name) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, name));
+    }
+
+    private long countIn(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+}
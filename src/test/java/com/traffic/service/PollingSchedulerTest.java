@@ -0,0 +1,157 @@
+package com.traffic.service;
+
+import com.traffic.config.IngestionConfig;
+import com.traffic.domain.ControllerStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PollingSchedulerTest {
+
+    private PollingScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void start_spreadsFirstPollsOverTheInterval() throws InterruptedException {
+        RecordingPoller poller = new RecordingPoller(id -> "OPERATIONAL");
+        List<String> ids = List.of("c1", "c2", "c3", "c4", "c5", "c6", "c7", "c8", "c9", "c10");
+        scheduler = new PollingScheduler(poller, ids, id -> true, config(1000));
+
+        scheduler.start();
+        for (String id : ids) {
+            poller.awaitPolls(id, 1);
+        }
+
+        assertThat(poller.batches.size()).isGreaterThan(1);
+        assertThat(poller.polls.keySet()).containsExactlyInAnyOrderElementsOf(ids);
+    }
+
+    @Test
+    void offlineAndUnreachableControllers_areBackedOff() throws InterruptedException {
+        RecordingPoller poller = new RecordingPoller(id -> switch (id) {
+            case "offline" -> "OFFLINE";
+            case "unreachable" -> null;
+            default -> "OPERATIONAL";
+        });
+        scheduler = new PollingScheduler(poller, List.of("healthy", "offline", "unreachable"), id -> true, config(50));
+
+        scheduler.start();
+        // Counted in polls of the healthy controller rather than wall-clock time, so a slow machine
+        // only stretches the test
+        poller.awaitPolls("healthy", 30);
+
+        assertThat(poller.count("offline")).isLessThan(10);
+        assertThat(poller.count("unreachable")).isLessThan(10);
+    }
+
+    @Test
+    void triggerNow_pollsControllerWithoutWaitingForItsInterval() throws InterruptedException {
+        RecordingPoller poller = new RecordingPoller(id -> "OPERATIONAL");
+        IngestionConfig config = config(3_600_000);
+        scheduler = new PollingScheduler(poller, List.of("c1"), id -> true, config);
+        scheduler.start();
+
+        scheduler.onCommandCompleted(new CommandCompletedEvent("c1", 1L, null));
+        poller.awaitPolls("c1", 1);
+
+        assertThat(poller.count("c1")).isEqualTo(1);
+    }
+
+    @Test
+    void controllersOwnedByAnotherInstance_areNotPolled() throws InterruptedException {
+        RecordingPoller poller = new RecordingPoller(id -> "OPERATIONAL");
+        CountDownLatch theirsChecked = new CountDownLatch(3);
+        Predicate<String> ownership = id -> {
+            if (id.equals("theirs")) {
+                theirsChecked.countDown();
+            }
+            return id.equals("mine");
+        };
+        scheduler = new PollingScheduler(poller, List.of("mine", "theirs"), ownership, config(50));
+
+        scheduler.start();
+
+        assertThat(theirsChecked.await(10, TimeUnit.SECONDS)).isTrue();
+        poller.awaitPolls("mine", 3);
+        assertThat(poller.count("theirs")).isZero();
+    }
+
+    @Test
+    void nextDelay_usesZoneAndControllerIntervalsAndCapsBackoff() {
+        IngestionConfig config = config(30000);
+        config.setZoneIntervalsMs(Map.of("z2", 120000L));
+        config.setControllerIntervalsMs(Map.of("fd1.z2.fast.loc", 5000L));
+        config.setMaxBackoffMs(600000);
+        scheduler = new PollingScheduler(new RecordingPoller(id -> "OPERATIONAL"), List.of(), id -> true, config);
+
+        assertThat(scheduler.nextDelayMs("fd9.z1.a.loc", 0)).isBetween(27000L, 33000L);
+        assertThat(scheduler.nextDelayMs("fd9.z2.a.loc", 0)).isBetween(108000L, 132000L);
+        assertThat(scheduler.nextDelayMs("fd1.z2.fast.loc", 0)).isBetween(4500L, 5500L);
+        assertThat(scheduler.nextDelayMs("fd9.z1.a.loc", 2)).isBetween(108000L, 132000L);
+        assertThat(scheduler.nextDelayMs("fd9.z1.a.loc", 50)).isBetween(540000L, 660000L);
+    }
+
+    private static IngestionConfig config(long intervalMs) {
+        IngestionConfig config = new IngestionConfig();
+        config.setPollingIntervalMs(intervalMs);
+        config.setBatchWindowMs(5);
+        config.setMaxBackoffMs(intervalMs * 64);
+        return config;
+    }
+
+    private static class RecordingPoller implements Function<List<String>, List<ControllerStatus>> {
+        final Function<String, String> stateOf;
+        final List<List<String>> batches = new CopyOnWriteArrayList<>();
+        final Map<String, Integer> polls = new ConcurrentHashMap<>();
+
+        RecordingPoller(Function<String, String> stateOf) {
+            this.stateOf = stateOf;
+        }
+
+        @Override
+        public List<ControllerStatus> apply(List<String> ids) {
+            synchronized (this) {
+                batches.add(ids);
+                ids.forEach(id -> polls.merge(id, 1, Integer::sum));
+                notifyAll();
+            }
+            return ids.stream()
+                    .filter(id -> stateOf.apply(id) != null)
+                    .map(id -> ControllerStatus.builder()
+                            .controllerId(id)
+                            .state(stateOf.apply(id))
+                            .validFrom(Instant.now())
+                            .validTo(Instant.now())
+                            .build())
+                    .toList();
+        }
+
+        int count(String id) {
+            return polls.getOrDefault(id, 0);
+        }
+
+        synchronized void awaitPolls(String id, int polls) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (count(id) < polls) {
+                long remaining = deadline - System.nanoTime();
+                assertThat(remaining).as("polls of %s", id).isPositive();
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        }
+    }
+}
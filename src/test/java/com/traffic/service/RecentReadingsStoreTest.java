@@ -0,0 +1,148 @@
+package com.traffic.service;
+
+import com.traffic.config.RecentWindowConfig;
+import com.traffic.domain.DetectorReading;
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecentReadingsStoreTest {
+
+    private static final String CONTROLLER_ID = "fd11.z1.downtown.loc";
+    private static final Instant BASE = Instant.parse("2024-03-01T10:00:00Z");
+
+    private final RecentWindowConfig config = new RecentWindowConfig();
+    private final RecentReadingsStore store = new RecentReadingsStore(config);
+
+    @Test
+    void rangeBeforeFirstRecordedCycle_isLeftToDatabase() {
+        recordCycles(0, 3, 2);
+
+        assertThat(store.findPage(CONTROLLER_ID, BASE.minusSeconds(1), BASE.plusSeconds(300), PageRequest.of(0, 10)))
+                .isEmpty();
+        assertThat(store.findPage("unknown", BASE, BASE.plusSeconds(300), PageRequest.of(0, 10))).isEmpty();
+        assertThat(store.findPage(CONTROLLER_ID, BASE, BASE.plusSeconds(300), PageRequest.of(0, 10)))
+                .hasValueSatisfying(page -> assertThat(page.getTotalElements()).isEqualTo(6));
+    }
+
+    @Test
+    void pages_mergeDetectorsInFetchOrder() {
+        recordCycles(0, 5, 3);
+
+        Page<DetectorReading> ascending = store.findPage(CONTROLLER_ID, BASE.plusSeconds(30), BASE.plusSeconds(90),
+                PageRequest.of(1, 4, Sort.by("fetchedAt"))).orElseThrow();
+        assertThat(ascending.getTotalElements()).isEqualTo(9);
+        assertThat(ascending.getTotalPages()).isEqualTo(3);
+        assertThat(ascending.getContent()).extracting(r -> r.getFetchedAt().getEpochSecond() - BASE.getEpochSecond(),
+                        DetectorReading::getDetectorId)
+                .containsExactly(at(60, 2), at(60, 3), at(90, 1), at(90, 2));
+
+        Page<DetectorReading> descending = store.findPage(CONTROLLER_ID, BASE, BASE.plusSeconds(300),
+                PageRequest.of(0, 4, Sort.by(Sort.Direction.DESC, "fetchedAt"))).orElseThrow();
+        assertThat(descending.getContent()).extracting(r -> r.getFetchedAt().getEpochSecond() - BASE.getEpochSecond(),
+                        DetectorReading::getDetectorId)
+                .containsExactly(at(120, 3), at(120, 2), at(120, 1), at(90, 3));
+
+        assertThat(store.findPage(CONTROLLER_ID, BASE, BASE.plusSeconds(300), PageRequest.of(0, 4, Sort.by("vehicleCount"))))
+                .isEmpty();
+    }
+
+    @Test
+    void wrappedRings_coverOnlyTheReadingsStillHeld() {
+        config.setCapacity(4);
+        recordCycles(0, 10, 2);
+
+        assertThat(store.findPage(CONTROLLER_ID, BASE.plusSeconds(150), BASE.plusSeconds(300), PageRequest.of(0, 10)))
+                .isEmpty();
+        Page<DetectorReading> held = store.findPage(CONTROLLER_ID, BASE.plusSeconds(180), BASE.plusSeconds(300),
+                PageRequest.of(0, 10)).orElseThrow();
+        assertThat(held.getContent()).extracting(DetectorReading::getId)
+                .containsExactly(13L, 14L, 15L, 16L, 17L, 18L, 19L, 20L);
+    }
+
+    @Test
+    void readings_roundTripNullsAndPrecision() {
+        Instant fetchedAt = Instant.parse("2024-03-01T10:00:00.123456789Z");
+        store.record(List.of(
+                DetectorReading.builder().id(1L).controllerId(CONTROLLER_ID).detectorId(1).detectorName("D1")
+                        .vehicleCount(12).occupancy(new BigDecimal("0.4567")).readingTimestamp(BASE)
+                        .fetchedAt(fetchedAt).build(),
+                DetectorReading.builder().id(2L).controllerId(CONTROLLER_ID).detectorId(2)
+                        .fetchedAt(fetchedAt).build()));
+
+        List<DetectorReading> content = store.findPage(CONTROLLER_ID, fetchedAt, fetchedAt.plusSeconds(1),
+                PageRequest.of(0, 10)).orElseThrow().getContent();
+
+        assertThat(content.getFirst().getOccupancy()).isEqualByComparingTo("0.4567");
+        assertThat(content.getFirst().getVehicleCount()).isEqualTo(12);
+        assertThat(content.getFirst().getReadingTimestamp()).isEqualTo(BASE);
+        assertThat(content.getFirst().getFetchedAt()).isEqualTo(Instant.parse("2024-03-01T10:00:00.123457Z"));
+        assertThat(content.get(1).getDetectorName()).isNull();
+        assertThat(content.get(1).getVehicleCount()).isNull();
+        assertThat(content.get(1).getOccupancy()).isNull();
+        assertThat(content.get(1).getReadingTimestamp()).isNull();
+    }
+
+    @Test
+    void readingsSharingATimestamp_areOrderedByIdLikeTheDatabase() {
+        store.record(List.of(reading(11, 1, BASE), reading(10, 2, BASE), reading(12, 3, BASE),
+                reading(14, 1, BASE.plusSeconds(30)), reading(13, 2, BASE.plusSeconds(30))));
+
+        assertThat(store.findPage(CONTROLLER_ID, BASE, BASE.plusSeconds(300),
+                PageRequest.of(0, 10, Sort.by("fetchedAt", "id"))).orElseThrow())
+                .extracting(DetectorReading::getId).containsExactly(10L, 11L, 12L, 13L, 14L);
+        assertThat(store.findPage(CONTROLLER_ID, BASE, BASE.plusSeconds(300),
+                PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "fetchedAt", "id"))).orElseThrow())
+                .extracting(DetectorReading::getId).containsExactly(14L, 13L, 12L, 11L, 10L);
+        assertThat(store.findPage(CONTROLLER_ID, BASE, BASE.plusSeconds(300),
+                PageRequest.of(0, 10, Sort.by("fetchedAt").and(Sort.by(Sort.Direction.DESC, "id"))))).isEmpty();
+    }
+
+    @Test
+    void outOfOrderCycle_restartsWindowAfterIt() {
+        recordCycles(0, 3, 1);
+        store.record(List.of(reading(99, 1, BASE.plusSeconds(15))));
+
+        assertThat(store.findPage(CONTROLLER_ID, BASE, BASE.plusSeconds(300), PageRequest.of(0, 10))).isEmpty();
+        recordCycles(4, 5, 1);
+        assertThat(store.findPage(CONTROLLER_ID, BASE.plusSeconds(61), BASE.plusSeconds(300), PageRequest.of(0, 10)))
+                .hasValueSatisfying(page -> assertThat(page.getContent()).extracting(DetectorReading::getId)
+                        .containsExactly(5L));
+    }
+
+    private void recordCycles(int first, int last, int detectors) {
+        for (int cycle = first; cycle < last; cycle++) {
+            List<DetectorReading> readings = new ArrayList<>();
+            for (int detector = 1; detector <= detectors; detector++) {
+                readings.add(reading((long) cycle * detectors + detector, detector, BASE.plusSeconds(30L * cycle)));
+            }
+            store.record(readings);
+        }
+    }
+
+    private static DetectorReading reading(long id, int detectorId, Instant fetchedAt) {
+        return DetectorReading.builder()
+                .id(id)
+                .controllerId(CONTROLLER_ID)
+                .detectorId(detectorId)
+                .detectorName("D" + detectorId)
+                .vehicleCount(detectorId * 3)
+                .occupancy(new BigDecimal("0.1200"))
+                .readingTimestamp(fetchedAt)
+                .fetchedAt(fetchedAt)
+                .build();
+    }
+
+    private static Tuple at(long secondsAfterBase, int detectorId) {
+        return Tuple.tuple(secondsAfterBase, detectorId);
+    }
+}
@@ -0,0 +1,163 @@
+package com.traffic.service;
+
+import com.traffic.AbstractIntegrationTest;
+import com.traffic.config.ClusterConfig;
+import com.traffic.config.ControllersConfig;
+import com.traffic.config.RecentWindowConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs several lease managers against the same database, standing in for separate instances.
+ */
+class ShardLeaseManagerTest extends AbstractIntegrationTest {
+
+    private static final int SHARDS = 16;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ControllersConfig controllersConfig;
+
+    @Autowired
+    private DetectorHealthMonitor detectorHealthMonitor;
+
+    private final List<ShardLeaseManager> instances = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM ingestion_shard_leases");
+        jdbcTemplate.update("DELETE FROM ingestion_members");
+    }
+
+    @AfterEach
+    void tearDown() {
+        instances.forEach(ShardLeaseManager::releaseLeases);
+    }
+
+    @Test
+    void heartbeats_splitShardsBetweenInstances() {
+        ShardLeaseManager a = instance("a");
+        ShardLeaseManager b = instance("b");
+        ShardLeaseManager c = instance("c");
+
+        heartbeatRounds(3);
+
+        assertPartition(List.of(a, b, c));
+        for (ShardLeaseManager instance : List.of(a, b, c)) {
+            assertThat(instance.getOwnedShards()).hasSizeLessThanOrEqualTo(6);
+        }
+        for (String controllerId : controllersConfig.getIds()) {
+            assertThat(List.of(a, b, c)).filteredOn(instance -> instance.owns(controllerId))
+                    .singleElement()
+                    .extracting(ShardLeaseManager::getInstanceId)
+                    .isEqualTo(a.ownerOf(controllerId));
+        }
+    }
+
+    @Test
+    void shardsOfExpiredInstance_areTakenOverByTheOthers() {
+        ShardLeaseManager a = instance("a");
+        ShardLeaseManager b = instance("b");
+        ShardLeaseManager c = instance("c");
+        heartbeatRounds(3);
+        Set<Integer> orphaned = c.getOwnedShards();
+        assertThat(orphaned).isNotEmpty();
+
+        // c stops heartbeating and its leases run out
+        instances.remove(c);
+        jdbcTemplate.update("UPDATE ingestion_members SET heartbeat_at = now() - INTERVAL '1 hour' WHERE instance_id = 'c'");
+        jdbcTemplate.update("UPDATE ingestion_shard_leases SET expires_at = now() - INTERVAL '1 second' WHERE owner = 'c'");
+        heartbeatRounds(2);
+
+        assertPartition(List.of(a, b));
+        assertThat(a.getOwnedShards()).hasSize(8);
+        assertThat(b.getOwnedShards()).hasSize(8);
+    }
+
+    @Test
+    void releasedLeases_letNewInstanceTakeItsShare() {
+        ShardLeaseManager a = instance("a");
+        heartbeatRounds(1);
+        assertThat(a.getOwnedShards()).hasSize(SHARDS);
+
+        ShardLeaseManager b = instance("b");
+        heartbeatRounds(2);
+
+        assertPartition(List.of(a, b));
+        assertThat(b.getOwnedShards()).hasSize(8);
+    }
+
+    @Test
+    void disabledCluster_ownsEveryController() {
+        ClusterConfig config = new ClusterConfig();
+        ShardLeaseManager standalone = new ShardLeaseManager(jdbcTemplate, transactionTemplate, config, new LiveStateStore(),
+                new RecentReadingsStore(new RecentWindowConfig()), detectorHealthMonitor);
+
+        standalone.heartbeat();
+
+        assertThat(controllersConfig.getIds()).allMatch(standalone::owns);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM ingestion_members", Integer.class)).isZero();
+    }
+
+    @Test
+    void shardOf_isStableAndMovesFewControllersWhenShardsAreAdded() {
+        List<String> ids = IntStream.range(0, 10_000).mapToObj(i -> "fd" + i + ".z" + (i % 7) + ".loc").toList();
+
+        int moved = 0;
+        for (String id : ids) {
+            int shard = ShardLeaseManager.shardOf(id, 64);
+            assertThat(shard).isBetween(0, 63).isEqualTo(ShardLeaseManager.shardOf(id, 64));
+            if (ShardLeaseManager.shardOf(id, 65) != shard) {
+                moved++;
+            }
+        }
+        // Ideally 1/65 of the ids
+        assertThat(moved).isBetween(100, 250);
+    }
+
+    private ShardLeaseManager instance(String id) {
+        ClusterConfig config = new ClusterConfig();
+        config.setEnabled(true);
+        config.setInstanceId(id);
+        config.setShardCount(SHARDS);
+        config.setLeaseTtlMs(60000);
+        ShardLeaseManager instance = new ShardLeaseManager(jdbcTemplate, transactionTemplate, config, new LiveStateStore(),
+                new RecentReadingsStore(new RecentWindowConfig()), detectorHealthMonitor);
+        instances.add(instance);
+        return instance;
+    }
+
+    private void heartbeatRounds(int rounds) {
+        for (int i = 0; i < rounds; i++) {
+            instances.forEach(ShardLeaseManager::heartbeat);
+        }
+    }
+
+    private static void assertPartition(List<ShardLeaseManager> instances) {
+        Set<Integer> all = new HashSet<>();
+        int total = 0;
+        for (ShardLeaseManager instance : instances) {
+            all.addAll(instance.getOwnedShards());
+            total += instance.getOwnedShards().size();
+        }
+        assertThat(total).isEqualTo(SHARDS);
+        assertThat(all).hasSize(SHARDS);
+    }
+}
@@ -0,0 +1,180 @@
+package com.traffic.service;
+
+import com.traffic.AbstractIntegrationTest;
+import com.traffic.domain.Controller;
+import com.traffic.domain.ControllerStatus;
+import com.traffic.repository.ControllerRepository;
+import com.traffic.repository.ControllerStatusRepository;
+import com.traffic.repository.IngestionWriter;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class StatusIntervalTrackerTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private StatusIntervalTracker statusIntervalTracker;
+
+    @Autowired
+    private IngestionWriter ingestionWriter;
+
+    @Autowired
+    private LiveStateStore liveStateStore;
+
+    @Autowired
+    private ControllerRepository controllerRepository;
+
+    @Autowired
+    private ControllerStatusRepository controllerStatusRepository;
+
+    @Autowired
+    private PartitionMaintenanceService partitionMaintenanceService;
+
+    @Autowired
+    private HikariDataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String controllerId;
+
+    private Instant base;
+
+    @BeforeEach
+    void setUp() {
+        // A fresh controller per test keeps the shared live state out of the picture
+        controllerId = "test.interval." + UUID.randomUUID();
+        controllerRepository.save(Controller.builder().id(controllerId).registeredAt(Instant.now()).build());
+        base = Instant.now().truncatedTo(ChronoUnit.DAYS).plus(1, ChronoUnit.DAYS).plusSeconds(3600);
+    }
+
+    @Test
+    void unchangedStatus_extendsCurrentInterval() {
+        poll("OPERATIONAL", "SP1", base);
+        poll("OPERATIONAL", "SP1", base.plusSeconds(60));
+        poll("OPERATIONAL", "SP1", base.plusSeconds(120));
+
+        List<ControllerStatus> intervals = intervals();
+        assertThat(intervals).hasSize(1);
+        assertThat(intervals.getFirst().getValidFrom()).isEqualTo(base);
+        assertThat(intervals.getFirst().getValidTo()).isEqualTo(base.plusSeconds(120));
+        assertThat(liveStateStore.get(controllerId).status().getValidFrom()).isEqualTo(base);
+    }
+
+    @Test
+    void changedStatus_opensNewInterval() {
+        poll("OPERATIONAL", "SP1", base);
+        poll("OPERATIONAL", "SP2", base.plusSeconds(60));
+        poll("OPERATIONAL", "SP2", base.plusSeconds(120));
+
+        assertThat(intervals())
+                .extracting(ControllerStatus::getProgram, ControllerStatus::getValidFrom, ControllerStatus::getValidTo)
+                .containsExactly(
+                        tuple("SP1", base, base),
+                        tuple("SP2", base.plusSeconds(60), base.plusSeconds(120)));
+    }
+
+    @Test
+    void unchangedStatusAfterMissedPolls_opensNewInterval() {
+        poll("OPERATIONAL", "SP1", base);
+        poll("OPERATIONAL", "SP1", base.plusSeconds(3600));
+
+        assertThat(intervals()).hasSize(2);
+    }
+
+    @Test
+    void unchangedStatusOnNextUtcDay_opensNewInterval() {
+        Instant beforeMidnight = base.truncatedTo(ChronoUnit.DAYS).plus(1, ChronoUnit.DAYS).minusSeconds(20);
+        poll("OPERATIONAL", "SP1", beforeMidnight);
+        poll("OPERATIONAL", "SP1", beforeMidnight.plusSeconds(40));
+
+        assertThat(intervals()).extracting(ControllerStatus::getValidFrom)
+                .containsExactly(beforeMidnight, beforeMidnight.plusSeconds(40));
+    }
+
+    @Test
+    void nonUtcJvmZone_stillSplitsAndStoresIntervalsByUtcDay() {
+        Instant beforeMidnight = base.truncatedTo(ChronoUnit.DAYS).plus(1, ChronoUnit.DAYS).minusSeconds(600);
+        Instant afterMidnight = beforeMidnight.plusSeconds(1200);
+        LocalDate firstDay = LocalDate.ofInstant(beforeMidnight, ZoneOffset.UTC);
+        partitionMaintenanceService.ensurePartition("controller_status", firstDay);
+        partitionMaintenanceService.ensurePartition("controller_status", firstDay.plusDays(1));
+
+        TimeZone original = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Pacific/Auckland"));
+        try {
+            // Connections opened from here on would otherwise start their session in Auckland time
+            dataSource.getHikariPoolMXBean().softEvictConnections();
+            assertThat(jdbcTemplate.queryForObject("SHOW TimeZone", String.class)).isEqualTo("UTC");
+
+            poll("OPERATIONAL", "SP1", beforeMidnight);
+            poll("OPERATIONAL", "SP1", afterMidnight);
+
+            assertThat(intervals()).extracting(ControllerStatus::getValidFrom, ControllerStatus::getValidTo)
+                    .containsExactly(tuple(beforeMidnight, beforeMidnight), tuple(afterMidnight, afterMidnight));
+            assertThat(intervalsIn(PartitionMaintenanceService.partitionName("controller_status", firstDay)))
+                    .isEqualTo(1);
+            assertThat(intervalsIn(PartitionMaintenanceService.partitionName("controller_status", firstDay.plusDays(1))))
+                    .isEqualTo(1);
+            assertThat(controllerStatusRepository.findCurrentIntervals(
+                    List.of(controllerId), afterMidnight.truncatedTo(ChronoUnit.DAYS)))
+                    .extracting(ControllerStatus::getValidFrom).containsExactly(afterMidnight);
+        } finally {
+            TimeZone.setDefault(original);
+            dataSource.getHikariPoolMXBean().softEvictConnections();
+        }
+    }
+
+    @Test
+    void extendingDeletedInterval_reinsertsIt() {
+        poll("OPERATIONAL", "SP1", base);
+        controllerStatusRepository.deleteAll(intervals());
+
+        poll("OPERATIONAL", "SP1", base.plusSeconds(60));
+
+        List<ControllerStatus> intervals = intervals();
+        assertThat(intervals).hasSize(1);
+        assertThat(intervals.getFirst().getValidFrom()).isEqualTo(base);
+        assertThat(intervals.getFirst().getValidTo()).isEqualTo(base.plusSeconds(60));
+    }
+
+    private void poll(String state, String program, Instant fetchedAt) {
+        ControllerStatus status = ControllerStatus.builder()
+                .controllerId(controllerId)
+                .state(state)
+                .program(program)
+                .validFrom(fetchedAt)
+                .validTo(fetchedAt)
+                .errors(List.of())
+                .build();
+        StatusIntervalTracker.StatusChanges changes = statusIntervalTracker.track(List.of(status), fetchedAt);
+        ingestionWriter.write(changes.opened(), changes.extended(), List.of());
+        liveStateStore.update(changes.current().getFirst(), List.of());
+    }
+
+    private int intervalsIn(String partition) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + partition + " s " +
+                "JOIN controllers c ON c.controller_key = s.controller_key WHERE c.id = ?", Integer.class, controllerId);
+    }
+
+    private List<ControllerStatus> intervals() {
+        return controllerStatusRepository.findAll().stream()
+                .filter(s -> s.getControllerId().equals(controllerId))
+                .sorted(Comparator.comparing(ControllerStatus::getValidFrom))
+                .toList();
+    }
+}
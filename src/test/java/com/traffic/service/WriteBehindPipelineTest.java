@@ -0,0 +1,262 @@
+package com.traffic.service;
+
+import com.traffic.config.IngestionConfig;
+import com.traffic.config.RecentWindowConfig;
+import com.traffic.domain.ControllerStatus;
+import com.traffic.domain.DetectorReading;
+import com.traffic.repository.IngestionWriter;
+import com.traffic.repository.WriteStats;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WriteBehindPipelineTest {
+
+    private static final Instant T0 = Instant.parse("2024-03-01T10:00:00Z");
+
+    private final RecordingWriter writer = new RecordingWriter();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RecentReadingsStore recentReadingsStore = new RecentReadingsStore(new RecentWindowConfig());
+    private WriteBehindPipeline pipeline;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writer.release();
+        pipeline.stop();
+    }
+
+    @Test
+    void cyclesQueuedWhileWriting_areMergedIntoOneWrite() throws InterruptedException {
+        pipeline = pipeline(config(8, 5000));
+        writer.blockNextWrite();
+        pipeline.submit(List.of(status("c1", T0, T0)), List.of(), List.of(reading("c1", T0)));
+        writer.awaitBlocked();
+
+        pipeline.submit(List.of(status("c2", T0.plusSeconds(30), T0.plusSeconds(30))), List.of(),
+                List.of(reading("c2", T0.plusSeconds(30))));
+        pipeline.submit(List.of(), List.of(status("c1", T0, T0.plusSeconds(60)), status("c2", T0.plusSeconds(30), T0.plusSeconds(60))),
+                List.of(reading("c1", T0.plusSeconds(60)), reading("c2", T0.plusSeconds(60))));
+        pipeline.submit(List.of(), List.of(status("c1", T0, T0.plusSeconds(90))), List.of(reading("c1", T0.plusSeconds(90))));
+        writer.release();
+        pipeline.flush();
+
+        assertThat(writer.writes).hasSize(2);
+        Write merged = writer.writes.get(1);
+        assertThat(merged.opened()).singleElement().satisfies(status -> {
+            assertThat(status.getControllerId()).isEqualTo("c2");
+            assertThat(status.getValidTo()).isEqualTo(T0.plusSeconds(60));
+        });
+        assertThat(merged.extended()).singleElement().satisfies(status -> {
+            assertThat(status.getControllerId()).isEqualTo("c1");
+            assertThat(status.getValidTo()).isEqualTo(T0.plusSeconds(90));
+        });
+        assertThat(merged.readings()).hasSize(4);
+    }
+
+    @Test
+    void fullQueue_dropsReadingsButKeepsStatusChanges() throws InterruptedException {
+        pipeline = pipeline(config(1, 20));
+        writer.blockNextWrite();
+        pipeline.submit(List.of(status("c1", T0, T0)), List.of(), List.of(reading("c1", T0)));
+        writer.awaitBlocked();
+
+        pipeline.submit(List.of(), List.of(status("c1", T0, T0.plusSeconds(30))), List.of(reading("c1", T0.plusSeconds(30))));
+        pipeline.submit(List.of(status("c1", T0.plusSeconds(60), T0.plusSeconds(60))), List.of(),
+                List.of(reading("c1", T0.plusSeconds(60)), reading("c1", T0.plusSeconds(60))));
+        writer.release();
+        pipeline.flush();
+
+        assertThat(writer.writes).flatExtracting(Write::readings).extracting(DetectorReading::getFetchedAt)
+                .containsExactly(T0, T0.plusSeconds(30));
+        assertThat(writer.writes).flatExtracting(Write::opened).extracting(ControllerStatus::getValidFrom)
+                .containsExactly(T0, T0.plusSeconds(60));
+        assertThat(writer.writes).flatExtracting(Write::extended).extracting(ControllerStatus::getValidTo)
+                .containsExactly(T0.plusSeconds(30));
+        assertThat(meterRegistry.get("ingestion.readings.dropped").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void cyclesAfterAnOverflow_areNotWrittenBeforeIt() throws InterruptedException {
+        IngestionConfig config = config(2, 20);
+        config.setWriteMaxRows(1);
+        pipeline = pipeline(config);
+        writer.blockNextWrite();
+        pipeline.submit(List.of(status("c1", T0, T0)), List.of(), List.of(reading("c1", T0)));
+        writer.awaitBlocked();
+        pipeline.submit(List.of(), List.of(status("c1", T0, T0.plusSeconds(30))), List.of(reading("c1", T0.plusSeconds(30))));
+        pipeline.submit(List.of(), List.of(status("c1", T0, T0.plusSeconds(60))), List.of(reading("c1", T0.plusSeconds(60))));
+        Instant reopened = T0.plusSeconds(90);
+        pipeline.submit(List.of(status("c1", reopened, reopened)), List.of(), List.of(reading("c1", reopened)));
+
+        // The writer frees queue slots one at a time while the overflow is still pending
+        writer.blockNextWrite();
+        writer.release();
+        writer.awaitBlocked();
+        pipeline.submit(List.of(), List.of(status("c1", reopened, T0.plusSeconds(120))),
+                List.of(reading("c1", T0.plusSeconds(120))));
+        writer.blockNextWrite();
+        writer.release();
+        writer.awaitBlocked();
+        pipeline.submit(List.of(), List.of(status("c1", reopened, T0.plusSeconds(150))),
+                List.of(reading("c1", T0.plusSeconds(150))));
+        writer.release();
+        pipeline.flush();
+
+        // The cycle submitted while the overflow was pending went with it; the last one came after it
+        assertThat(writer.writes).flatExtracting(Write::readings).extracting(DetectorReading::getFetchedAt)
+                .containsExactly(T0, T0.plusSeconds(30), T0.plusSeconds(60), T0.plusSeconds(150));
+        int opening = indexOf(write -> write.opened().stream().anyMatch(status -> status.getValidFrom().equals(reopened)));
+        int extending = indexOf(write -> write.extended().stream().anyMatch(status -> status.getValidFrom().equals(reopened)));
+        assertThat(opening).isLessThan(extending);
+        assertThat(writer.writes.get(opening).opened()).filteredOn(status -> status.getValidFrom().equals(reopened))
+                .singleElement().satisfies(status -> assertThat(status.getValidTo()).isEqualTo(T0.plusSeconds(120)));
+        assertThat(meterRegistry.get("ingestion.readings.dropped").counter().count()).isEqualTo(2);
+    }
+
+    private int indexOf(Predicate<Write> matching) {
+        for (int i = 0; i < writer.writes.size(); i++) {
+            if (matching.test(writer.writes.get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    void transientFailure_isRetried() {
+        pipeline = pipeline(config(8, 5000));
+        writer.failures.set(2);
+
+        pipeline.submit(List.of(status("c1", T0, T0)), List.of(), List.of(reading("c1", T0)));
+        long start = System.nanoTime();
+        pipeline.flush();
+
+        assertThat(writer.writes).hasSize(1);
+        assertThat(writer.attempts.get()).isEqualTo(3);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void generatedIds_goToTheRecentWindowButNotToThePublishedReadings() {
+        pipeline = pipeline(config(8, 5000));
+        DetectorReading published = reading("c1", T0);
+
+        pipeline.submit(List.of(status("c1", T0, T0)), List.of(), List.of(published));
+        pipeline.flush();
+
+        assertThat(writer.writes.getFirst().readings()).singleElement().isNotSameAs(published);
+        assertThat(published.getId()).isNull();
+        assertThat(recentReadingsStore.findPage("c1", T0, T0, Pageable.unpaged()))
+                .hasValueSatisfying(page -> assertThat(page.getContent()).extracting(DetectorReading::getId)
+                        .containsExactly(1L));
+    }
+
+    private WriteBehindPipeline pipeline(IngestionConfig config) {
+        RollupService rollups = new RollupService(null) {
+            @Override
+            public void record(List<DetectorReading> readings) {
+            }
+        };
+        WriteBehindPipeline created = new WriteBehindPipeline(writer, rollups,
+                recentReadingsStore,
+                new IngestionMetrics(meterRegistry, config), config, new NoTransactionManager());
+        created.start();
+        return created;
+    }
+
+    private static IngestionConfig config(int queueCapacity, long queueTimeoutMs) {
+        IngestionConfig config = new IngestionConfig();
+        config.setWriteQueueCapacity(queueCapacity);
+        config.setWriteQueueTimeoutMs(queueTimeoutMs);
+        config.setWriteLingerMs(0);
+        return config;
+    }
+
+    private static ControllerStatus status(String controllerId, Instant validFrom, Instant validTo) {
+        return ControllerStatus.builder().controllerId(controllerId).state("OPERATIONAL")
+                .validFrom(validFrom).validTo(validTo).build();
+    }
+
+    private static DetectorReading reading(String controllerId, Instant fetchedAt) {
+        return DetectorReading.builder().controllerId(controllerId).detectorId(1).fetchedAt(fetchedAt).build();
+    }
+
+    private record Write(List<ControllerStatus> opened, List<ControllerStatus> extended, List<DetectorReading> readings) {
+    }
+
+    private static class RecordingWriter implements IngestionWriter {
+        final List<Write> writes = new CopyOnWriteArrayList<>();
+        final AtomicInteger attempts = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        private final AtomicLong nextId = new AtomicLong();
+        private final Semaphore blocked = new Semaphore(0);
+        private final Semaphore gate = new Semaphore(0);
+        private final AtomicInteger blockNext = new AtomicInteger();
+
+        void blockNextWrite() {
+            blockNext.incrementAndGet();
+        }
+
+        void awaitBlocked() throws InterruptedException {
+            assertThat(blocked.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+        }
+
+        void release() {
+            gate.release();
+        }
+
+        @Override
+        public WriteStats write(List<ControllerStatus> openedStatuses, List<ControllerStatus> extendedStatuses,
+                                List<DetectorReading> readings) {
+            attempts.incrementAndGet();
+            if (blockNext.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                blocked.release();
+                try {
+                    gate.tryAcquire(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failures.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                throw new TransientDataAccessResourceException("Connection reset");
+            }
+            readings.forEach(reading -> reading.setId(nextId.incrementAndGet()));
+            writes.add(new Write(List.copyOf(openedStatuses), List.copyOf(extendedStatuses), List.copyOf(readings)));
+            return new WriteStats(openedStatuses.size(), extendedStatuses.size(), readings.size(), Duration.ZERO);
+        }
+    }
+
+    private static class NoTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}